@@ -0,0 +1,48 @@
+package smack.benchmark;
+
+import java.io.File;
+import java.util.Properties;
+import java.util.logging.LogManager;
+import smack.Smack;
+import smack.controller.LogController;
+import smack.utilities.Utilities;
+
+/**
+ * The BenchmarkEnvironment class sets up the static state the application expects from
+ * its entry point: an empty configuration and the application log
+ *
+ * The console handler of the root logger is removed so that only the log file is written,
+ * as when the application runs unattended.
+ *
+ * @version 1.0
+ */
+public final class BenchmarkEnvironment {
+
+    private static boolean initialized;
+
+    /**
+     * BenchmarkEnvironment class constructor hidden since the class only has static methods
+     */
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Set up the environment once per benchmark process
+     */
+    public static synchronized void init() {
+
+        if (initialized) {
+            return;
+        }
+
+        LogManager.getLogManager().reset();
+
+        // Directory of the application log
+        new File(Utilities.getCurrentWorkingDirectory(), "log").mkdirs();
+
+        Smack.smackConfig = new Properties();
+        Smack.logController = LogController.getLogController();
+
+        initialized = true;
+    }
+}
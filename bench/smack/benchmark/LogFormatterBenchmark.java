@@ -0,0 +1,96 @@
+package smack.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smack.utilities.LogFormatter;
+
+/**
+ * The LogFormatterBenchmark class measures the formatting of a log record in Syslog format
+ *
+ * The former formatter, BaselineLogFormatter, is measured alongside as the baseline. Run it
+ * with the "-prof gc" option of JMH to get the allocations per record as well.
+ *
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogFormatterBenchmark {
+
+    private LogFormatter formatter;
+    private BaselineLogFormatter baselineFormatter;
+    private LogRecord record;
+    private LogRecord multiLineRecord;
+
+    /**
+     * Build the formatter and the records
+     */
+    @Setup
+    public void setUp() {
+
+        this.formatter = new LogFormatter();
+        this.baselineFormatter = new BaselineLogFormatter();
+
+        this.record = new LogRecord(Level.INFO, "Verifying if the file \"/var/spool/smack/inbox/missive.xml\" is valid for acknowledgement.");
+        this.record.setSourceClassName("Smack");
+
+        this.multiLineRecord = new LogRecord(Level.SEVERE, "The missive could not be read:" + System.getProperty("line.separator")
+                + "ParseError at [row,col]:[2,1]" + System.getProperty("line.separator")
+                + "Message: XML document structures must start and end within the same entity.");
+        this.multiLineRecord.setSourceClassName("Smack");
+    }
+
+    /**
+     * Formatting of a single line record
+     *
+     * @return Log line
+     */
+    @Benchmark
+    public String format() {
+        return this.formatter.format(this.record);
+    }
+
+    /**
+     * Formatting of a record whose message spans several lines
+     *
+     * @return Log line
+     */
+    @Benchmark
+    public String formatMultiLine() {
+        return this.formatter.format(this.multiLineRecord);
+    }
+
+    /**
+     * Formatting of a single line record by the former formatter
+     *
+     * @return Log line
+     */
+    @Benchmark
+    public String formatBaseline() {
+        return this.baselineFormatter.format(this.record);
+    }
+
+    /**
+     * Formatting of a record whose message spans several lines by the former formatter
+     *
+     * @return Log line
+     */
+    @Benchmark
+    public String formatMultiLineBaseline() {
+        return this.baselineFormatter.format(this.multiLineRecord);
+    }
+}
@@ -0,0 +1,129 @@
+package smack.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * The Missives class builds the nominal missives used by the benchmarks
+ *
+ * A missive carries a pain.013 payment activation request whose number of credit transfer
+ * transactions sets its size: one transaction gives a missive of about 2 KB, a thousand
+ * transactions give a missive of about 600 KB.
+ *
+ * @version 1.0
+ */
+public final class Missives {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Missives class constructor hidden since the class only has static methods
+     */
+    private Missives() {
+    }
+
+    /**
+     * Build a nominal missive
+     *
+     * @param transactionCount Number of credit transfer transactions of the pain.013 request
+     * @return Missive encoded in UTF-8
+     */
+    public static byte[] nominal(int transactionCount) {
+
+        StringBuilder xml = new StringBuilder(1024 + transactionCount * 640);
+
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<sem:Missive xmlns:sem=\"http://www.sepamail.eu/xsd/bleedingEdge\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"1206\">\n")
+                .append("    <sem:sepamail_missive_001>\n")
+                .append("        <sem:MsvId>MSV-BENCHMARK-0001</sem:MsvId>\n")
+                .append("        <sem:MsvTyp>Nominal</sem:MsvTyp>\n")
+                .append("        <sem:MsvOrd>1</sem:MsvOrd>\n")
+                .append("        <sem:MsvPri>NORMAL</sem:MsvPri>\n")
+                .append("        <sem:MsvHdr>\n")
+                .append("            <sem:Snd>\n")
+                .append("                <sem:BIC>BICVERT1</sem:BIC>\n")
+                .append("                <sem:IBAN>QX87BICVERT1XXXTEST000000000000002</sem:IBAN>\n")
+                .append("            </sem:Snd>\n")
+                .append("            <sem:SndDtTm>2012-11-14T16:16:00</sem:SndDtTm>\n")
+                .append("            <sem:Rcv>\n")
+                .append("                <sem:BIC>BICVERT1</sem:BIC>\n")
+                .append("                <sem:IBAN>QX87BICVERT1XXXTEST000000000000001</sem:IBAN>\n")
+                .append("            </sem:Rcv>\n")
+                .append("        </sem:MsvHdr>\n")
+                .append("        <sem:MsvBody>\n")
+                .append("            <pain013:Document xmlns:pain013=\"urn:iso:std:iso:20022:tech:xsd:pain.013.001.01\">\n")
+                .append("                <pain013:CdtrPmtActvtnReq>\n")
+                .append("                    <pain013:GrpHdr>\n")
+                .append("                        <pain013:MsgId>BENCHMARK-MSG-0001</pain013:MsgId>\n")
+                .append("                        <pain013:CreDtTm>2012-11-14T16:15:00</pain013:CreDtTm>\n")
+                .append("                        <pain013:NbOfTxs>").append(transactionCount).append("</pain013:NbOfTxs>\n")
+                .append("                        <pain013:InitgPty><pain013:Nm>Creditor Company</pain013:Nm></pain013:InitgPty>\n")
+                .append("                    </pain013:GrpHdr>\n")
+                .append("                    <pain013:PmtInf>\n")
+                .append("                        <pain013:PmtInfId>BENCHMARK-PMT-0001</pain013:PmtInfId>\n")
+                .append("                        <pain013:PmtMtd>TRF</pain013:PmtMtd>\n")
+                .append("                        <pain013:ReqdExctnDt>2012-11-30</pain013:ReqdExctnDt>\n")
+                .append("                        <pain013:Dbtr><pain013:Nm>Debtor Name</pain013:Nm></pain013:Dbtr>\n")
+                .append("                        <pain013:DbtrAgt><pain013:FinInstnId><pain013:BIC>BICVERT1</pain013:BIC></pain013:FinInstnId></pain013:DbtrAgt>\n");
+
+        for (int i = 1; i <= transactionCount; i++) {
+
+            xml.append("                        <pain013:CdtTrfTx>\n")
+                    .append("                            <pain013:PmtId><pain013:EndToEndId>E2E-").append(i).append("</pain013:EndToEndId></pain013:PmtId>\n")
+                    .append("                            <pain013:PmtTpInf><pain013:SvcLvl><pain013:Cd>SEPA</pain013:Cd></pain013:SvcLvl></pain013:PmtTpInf>\n")
+                    .append("                            <pain013:Amt><pain013:InstdAmt Ccy=\"EUR\">").append(i % 1000).append(".").append(10 + i % 90).append("</pain013:InstdAmt></pain013:Amt>\n")
+                    .append("                            <pain013:CdtrAgt><pain013:FinInstnId><pain013:BIC>BICVERT1</pain013:BIC></pain013:FinInstnId></pain013:CdtrAgt>\n")
+                    .append("                            <pain013:Cdtr><pain013:Nm>Creditor Company</pain013:Nm></pain013:Cdtr>\n")
+                    .append("                            <pain013:CdtrAcct><pain013:Id><pain013:IBAN>FR7630006000011234567890189</pain013:IBAN></pain013:Id></pain013:CdtrAcct>\n")
+                    .append("                            <pain013:RmtInf><pain013:Ustrd>Invoice ").append(i).append(" of the benchmark missive</pain013:Ustrd></pain013:RmtInf>\n")
+                    .append("                        </pain013:CdtTrfTx>\n");
+        }
+
+        xml.append("                    </pain013:PmtInf>\n")
+                .append("                </pain013:CdtrPmtActvtnReq>\n")
+                .append("            </pain013:Document>\n")
+                .append("        </sem:MsvBody>\n")
+                .append("    </sem:sepamail_missive_001>\n")
+                .append("</sem:Missive>\n");
+
+        return xml.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Write a missive to a temporary file deleted when the benchmark exits
+     *
+     * @param missive Missive to write
+     * @return Temporary file
+     * @throws IOException
+     */
+    public static File toTemporaryFile(byte[] missive) throws IOException {
+
+        File file = File.createTempFile("smack-benchmark-", ".xml");
+        file.deleteOnExit();
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(missive);
+        }
+
+        return file;
+    }
+
+    /**
+     * Get the acknowledgement stylesheet shipped with the application
+     *
+     * The stylesheet is looked up in the "xsl" directory of the working directory unless the
+     * "smack.xsl" system property gives its path.
+     *
+     * @return Absolute path of the stylesheet
+     */
+    public static String stylesheet() {
+
+        String xsl = System.getProperty("smack.xsl",
+                "xsl" + File.separator + "payment_activation_transition_message_ActivationRequest2ActivationAcknowledgement.xsl");
+
+        return new File(xsl).getAbsolutePath();
+    }
+}
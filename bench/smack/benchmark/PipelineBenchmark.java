@@ -0,0 +1,165 @@
+package smack.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import javax.xml.transform.stream.StreamSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import smack.Smack;
+import smack.controller.AcknowledgementProcessor;
+import smack.controller.ProcessingStatus;
+import smack.utilities.RoutingWarning;
+import smack.utilities.Utilities;
+import smack.verification.MissiveHeader;
+import smack.verification.MissiveHeaderReader;
+
+/**
+ * The PipelineBenchmark class measures each stage of the acknowledgement of a nominal missive
+ * and the whole acknowledgement with an in-process verifier
+ *
+ * Every stage is measured for a small missive (one transaction) and a large one (a thousand
+ * transactions).
+ *
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"1", "1000"})
+    public int transactions;
+
+    private byte[] missive;
+    private File missiveFile;
+    private String xslFilename;
+    private Document missiveDocument;
+    private Document acknowledgementDocument;
+    private RoutingWarning routingWarning;
+    private AcknowledgementProcessor processor;
+    private ByteArrayOutputStream output;
+
+    /**
+     * Build the missive of the trial and the documents of the intermediate stages
+     *
+     * @throws Exception
+     */
+    @Setup
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.init();
+
+        this.missive = Missives.nominal(this.transactions);
+        this.missiveFile = Missives.toTemporaryFile(this.missive);
+        this.xslFilename = Missives.stylesheet();
+
+        this.missiveDocument = Utilities.readXMLDocument(this.missiveFile.getPath());
+        this.acknowledgementDocument = Utilities.transformXMLDocument(this.missiveDocument, this.xslFilename);
+        this.routingWarning = new RoutingWarning("PRI_NORMAL", "Priority not handled, NORMAL priority used.");
+
+        this.processor = new AcknowledgementProcessor(this.xslFilename, new StubVerifier(), Smack.logController);
+        this.output = new ByteArrayOutputStream(this.missive.length);
+    }
+
+    /**
+     * Extraction of the missive header with StAX
+     *
+     * @return Header of the missive
+     * @throws Exception
+     */
+    @Benchmark
+    public MissiveHeader readHeader() throws Exception {
+        return MissiveHeaderReader.read(new ByteArrayInputStream(this.missive));
+    }
+
+    /**
+     * Parsing of the missive file into a DOM document
+     *
+     * @return Missive document
+     * @throws Exception
+     */
+    @Benchmark
+    public Document readXMLDocument() throws Exception {
+        return Utilities.readXMLDocument(this.missiveFile.getPath());
+    }
+
+    /**
+     * Check of the missive type on the DOM document
+     *
+     * @return Whether the missive is nominal
+     */
+    @Benchmark
+    public Boolean isMissiveNominal() {
+        return Utilities.isMissiveNominal(this.missiveDocument);
+    }
+
+    /**
+     * Transformation of the missive with the shipped stylesheet
+     *
+     * @return Acknowledgement document
+     * @throws Exception
+     */
+    @Benchmark
+    public Document transformXMLDocument() throws Exception {
+        return Utilities.transformXMLDocument(new StreamSource(new ByteArrayInputStream(this.missive)), this.xslFilename);
+    }
+
+    /**
+     * Patching of the acknowledgement document with the outcome of the verification
+     *
+     * The patching is idempotent so the same document is patched at every invocation.
+     *
+     * @return Acknowledgement document
+     */
+    @Benchmark
+    public Document completeAcknowledgement() {
+
+        AcknowledgementProcessor.completeAcknowledgement(this.acknowledgementDocument, false, "4-2-4", this.routingWarning);
+
+        return this.acknowledgementDocument;
+    }
+
+    /**
+     * Serialisation of the acknowledgement document
+     *
+     * @return Size of the acknowledgement
+     * @throws Exception
+     */
+    @Benchmark
+    public int writeXmlDocument() throws Exception {
+
+        this.output.reset();
+        Utilities.writeXmlDocument(this.acknowledgementDocument, this.output);
+
+        return this.output.size();
+    }
+
+    /**
+     * Whole acknowledgement of the missive, including its log records and its verification
+     * by the in-process stub verifier
+     *
+     * @return Outcome of the acknowledgement
+     */
+    @Benchmark
+    public ProcessingStatus endToEnd() {
+
+        this.output.reset();
+
+        return this.processor.process("benchmark", this.missive, this.output);
+    }
+}
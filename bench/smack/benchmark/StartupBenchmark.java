@@ -0,0 +1,166 @@
+package smack.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The StartupBenchmark class measures the wall-clock time of the one-shot CLI
+ *
+ * The application is started in its own JVM to acknowledge one missive, the way the callers
+ * invoking it per file do, first without and then with the AppCDS archive built by "ant cds".
+ * It runs in the directory prepared by "ant cds", whose configuration answers the verifications
+ * with the NACK fallback so that only the application is measured, not a web service.
+ *
+ * Usage: java smack.benchmark.StartupBenchmark directory runs targetMillis
+ *
+ * @version 1.0
+ */
+public final class StartupBenchmark {
+
+    private static final int WARMUP_RUNS = 2;
+
+    // XSLTC packages needed by the precompiled translets, exported by the manifest with "java -jar" only
+    private static final String[] TRANSLET_EXPORTS = {
+        "com.sun.org.apache.xalan.internal.xsltc",
+        "com.sun.org.apache.xalan.internal.xsltc.runtime",
+        "com.sun.org.apache.xalan.internal.xsltc.dom",
+        "com.sun.org.apache.xalan.internal.lib",
+        "com.sun.org.apache.xml.internal.dtm",
+        "com.sun.org.apache.xml.internal.serializer"
+    };
+
+    /**
+     * StartupBenchmark class constructor hidden since the class only has static methods
+     */
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Run the benchmark
+     *
+     * @param args Directory prepared by "ant cds", number of measured runs and target in milliseconds
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length != 3) {
+            System.err.println("Usage: java smack.benchmark.StartupBenchmark directory runs targetMillis");
+            System.exit(1);
+        }
+
+        File directory = new File(args[0]);
+        int runs = Integer.parseInt(args[1]);
+        long targetMillis = Long.parseLong(args[2]);
+
+        long[] plain = measure(directory, runs, false);
+        long[] archived = measure(directory, runs, true);
+
+        report("without archive", plain, targetMillis);
+        report("with AppCDS archive", archived, targetMillis);
+    }
+
+    /**
+     * Start the application repeatedly and measure each run
+     *
+     * @param directory Directory prepared by "ant cds"
+     * @param runs Number of measured runs
+     * @param useArchive Whether the AppCDS archive is used
+     * @return Wall-clock time of each run in milliseconds, sorted
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static long[] measure(File directory, int runs, boolean useArchive) throws IOException, InterruptedException {
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+
+        if (useArchive) {
+            command.add("-XX:SharedArchiveFile=Smack.jsa");
+        } else {
+            command.add("-Xshare:auto");
+        }
+
+        command.add("-XX:TieredStopAtLevel=1");
+
+        for (String exportedPackage : TRANSLET_EXPORTS) {
+            command.add("--add-exports=java.xml/" + exportedPackage + "=ALL-UNNAMED");
+        }
+
+        command.add("-cp");
+        command.add(getClassPath(directory));
+        command.addAll(Arrays.asList("smack.Smack", "-conf", "conf/smack.properties", "-in", "missive.xml", "-out", "acknowledgement.xml"));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(directory).redirectErrorStream(true);
+        processBuilder.redirectOutput(new File(directory, "startup-benchmark.out"));
+
+        long[] durations = new long[runs];
+
+        for (int i = -WARMUP_RUNS; i < runs; i++) {
+
+            long startTime = System.nanoTime();
+            int exitCode = processBuilder.start().waitFor();
+            long duration = (System.nanoTime() - startTime) / 1000000L;
+
+            if (exitCode != 0) {
+                throw new IOException("The application exited with code " + exitCode + ", see " + new File(directory, "startup-benchmark.out"));
+            }
+
+            if (i >= 0) {
+                durations[i] = duration;
+            }
+        }
+
+        Arrays.sort(durations);
+
+        return durations;
+    }
+
+    /**
+     * Get the class path the archive was recorded with
+     *
+     * @param directory Directory prepared by "ant cds"
+     * @return Jar of the application followed by the jars of its libraries
+     * @throws IOException
+     */
+    private static String getClassPath(File directory) throws IOException {
+
+        String[] libraries = new File(directory, "lib").list();
+
+        if (libraries == null) {
+            throw new IOException("Directory \"" + new File(directory, "lib") + "\" was not found, run \"ant cds\" first.");
+        }
+
+        Arrays.sort(libraries);
+
+        StringBuilder classPath = new StringBuilder("Smack.jar");
+
+        for (String library : libraries) {
+            if (library.endsWith(".jar")) {
+                classPath.append(File.pathSeparator).append("lib").append(File.separator).append(library);
+            }
+        }
+
+        return classPath.toString();
+    }
+
+    /**
+     * Print the distribution of the runs
+     *
+     * @param name Name of the launch mode
+     * @param durations Sorted wall-clock time of each run in milliseconds
+     * @param targetMillis Target of the median in milliseconds
+     */
+    private static void report(String name, long[] durations, long targetMillis) {
+
+        long median = durations[durations.length / 2];
+
+        System.out.println(String.format(Locale.ENGLISH, "%-20s min %4d ms, median %4d ms, p90 %4d ms, max %4d ms - target %d ms %s",
+                name, durations[0], median, durations[Math.min(durations.length - 1, durations.length * 9 / 10)],
+                durations[durations.length - 1], targetMillis, median <= targetMillis ? "met" : "missed"));
+    }
+}
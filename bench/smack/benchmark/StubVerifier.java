@@ -0,0 +1,42 @@
+package smack.benchmark;
+
+import smack.verification.Verifier;
+
+/**
+ * The StubVerifier class answers every verification in-process like the verification web
+ * service would for a valid missive, so that the benchmarks do not depend on the network
+ *
+ * @version 1.0
+ */
+public class StubVerifier implements Verifier {
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public Boolean verifyReceiver(String receiverBIC, String receiverIBAN) {
+        return true;
+    }
+
+    @Override
+    public Boolean verifySender(String senderBIC, String senderIBAN) {
+        return true;
+    }
+
+    @Override
+    public Boolean verifyCorrectDate(String sendDateTime) {
+        return true;
+    }
+
+    @Override
+    public Boolean verifyPassedDate(String sendDateTime) {
+        return true;
+    }
+
+    @Override
+    public String verifyPriority(String priority) {
+        return "true";
+    }
+}
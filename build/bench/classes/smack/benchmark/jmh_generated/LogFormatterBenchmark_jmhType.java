@@ -0,0 +1,4 @@
+package smack.benchmark.jmh_generated;
+public class LogFormatterBenchmark_jmhType extends LogFormatterBenchmark_jmhType_B3 {
+}
+
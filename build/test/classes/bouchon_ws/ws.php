@@ -0,0 +1,167 @@
+<?php
+require_once('./utils.php');
+/**
+ * SMACK verification functions
+ *
+ * This file implements all the functions required to handle
+ * verification for SMACK
+ *
+ * @author Ammit Heeramun <ammit.heeramun@idsoft.mu>
+ */
+
+/**
+ * Receiver verification function
+ * 
+ * @param String $receiverBIC
+ * @param String $receiverIBAN
+ * @return boolean
+ */
+function verifyReceiver($receiverBIC, $receiverIBAN){
+    
+    if(isReceiverBICAuth($receiverBIC)&&isReceiverQXBANAuth($receiverIBAN)) {
+        return true;
+    } else {}
+    
+    return false;
+}
+
+/**
+ * Sender verification function
+ * @param String $sender
+ * @return boolean 
+ */
+function verifySender($senderBIC, $senderIBAN) {
+    
+    if(isSenderBicAuth($senderBIC)&&isValidQXBAN($senderIBAN, $senderBIC)&&!isQXBANBlackListed($senderIBAN)) {
+        return true;
+    } else {}
+    return false;
+}
+
+/**
+ * Correct date verification function
+ * @param String $date
+ * @return boolean
+ */
+function verifyDateCorrecte($date) {
+    
+    return  isDateCorrect($date);
+}
+
+/**
+ * Date passed verification
+ * @param String $date
+ * @return boolean
+ */
+function verifyDatePassed($date) {
+    
+    return isDatePassed($date);
+}
+
+/**
+ * Priority Verification
+ * @param String $priority
+ * @return boolean | string
+ */
+function verifyPriority($priority) {
+    
+    return isPriorityValid($priority);
+}
+
+
+/**
+ * Perform the verification requested by the parameterized query parameters
+ * 
+ * @param array $query Query parameters including the "action"
+ * @return boolean | string
+ */
+function handleAction($query) {
+    
+    // Set the value default value
+    $value = "An error has occurred";
+    
+    // Check if we gave an action
+    if (isset($query["action"]))
+    {
+        // Switch for the action
+        switch ($query["action"])
+        {
+            case "verify_receiver":
+              if (!isset($query["receiverBIC"])) {
+                  $value = "Missing argument receiver BIC";
+                  break;
+              }
+              else {}
+              if (!isset($query["receiverIBAN"])) {
+                  $value = "Missing argument receiver IBAN";
+                  break;
+              }
+              else {}
+              $value = verifyReceiver($query["receiverBIC"], $query["receiverIBAN"]);
+              break;
+            case "verify_sender":
+              if (!isset($query["senderBIC"])) {
+                  $value = "Missing argument sender BIC";
+                  break;
+              }
+              else {}
+              if (!isset($query["senderIBAN"])) {
+                  $value = "Missing argument sender IBAN";
+                  break;
+              }
+              else {}
+              $value = verifySender($query["senderBIC"], $query["senderIBAN"]);
+              break;
+            case "verify_date_correct":
+              if (isset($query["date"])) {
+                  $value = verifyDateCorrecte($query["date"]);
+              }
+              else {
+                  $value = "Missing argument date1";
+              }
+              break;
+            case "verify_date_passed":
+              if (isset($query["date"])) {
+                  $value = verifyDatePassed($query["date"]);
+              }
+              else {
+                  $value = "Missing argument date2";
+              }
+              break;
+            case "verify_priority":
+              if (isset($query["priority"])) {
+                  $value = verifyPriority($query["priority"]);
+              }
+              else {
+                  $value = "Missing argument priority";
+              }
+            break;
+        }
+    }
+    
+    return $value;
+}
+
+
+// Check if we received a batch of verifications
+if (isset($_POST["action"]) && $_POST["action"] == "verify_batch")
+{
+    $values = array();
+    
+    // Each entry is the query string of a single verification, answered in the same order
+    if (isset($_POST["query"]) && is_array($_POST["query"])) {
+        foreach ($_POST["query"] as $queryString) {
+            parse_str($queryString, $query);
+            $values[] = handleAction($query);
+        }
+    }
+    else {}
+    
+    exit(json_encode($values));
+}
+else {}
+
+$value = handleAction($_GET);
+
+exit(json_encode($value));
+?>
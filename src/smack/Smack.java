@@ -3,8 +3,13 @@ package smack;
 import java.util.Properties;
 import java.util.logging.Level;
 import org.apache.commons.cli.*;
+import smack.controller.ArchiveController;
+import smack.controller.BatchController;
+import smack.controller.DaemonController;
+import smack.controller.HttpController;
 import smack.controller.LogController;
 import smack.controller.MainController;
+import smack.metrics.Metrics;
 import smack.utilities.ConfigReader;
 import smack.utilities.Utilities;
 
@@ -44,6 +49,15 @@ public class Smack {
         cliOptions.addOption("in", true, "Nominale missve to acknowledge");
         cliOptions.addOption("out", true, "Acknowledgement missive");
         cliOptions.addOption("conf", true, "Configuration file path (Optional)");
+        cliOptions.addOption("indir", true, "Directory of nominal missives to acknowledge (batch mode)");
+        cliOptions.addOption("outdir", true, "Directory of acknowledgement missives (batch mode)");
+        cliOptions.addOption("inarchive", true, "ZIP or TAR archive of nominal missives to acknowledge (archive mode)");
+        cliOptions.addOption("outarchive", true, "ZIP or TAR archive of acknowledgement missives (archive mode)");
+        cliOptions.addOption("inbox", true, "Directory watched for nominal missives to acknowledge (daemon mode)");
+        cliOptions.addOption("outbox", true, "Directory of acknowledgement missives (daemon mode)");
+        cliOptions.addOption("archive", true, "Directory of processed nominal missives (daemon mode)");
+        cliOptions.addOption("error", true, "Directory of nominal missives that could not be processed (daemon mode)");
+        cliOptions.addOption("port", true, "Port on which missives are acknowledged over HTTP (server mode)");
 
         // initialise the posix parser
         CommandLineParser parser = new PosixParser();
@@ -72,52 +86,185 @@ public class Smack {
 
                 // Parse the properties file
                 smackConfig = configReader.parse();
+                
+                // Switch to the logging mode of the configuration
+                logController.configure(smackConfig);
+                
+                // Start the periodic summary of the metrics
+                Metrics.configure(smackConfig);
 
                 // Log info
-                Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"in\" command line option.");
-                if(cmd.getOptionValue("in") != null) {
-
-                    // Set the missive to process
-                    XML_IN_FILE_NAME = cmd.getOptionValue("in");
+                Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"XSL file\" configuration.");
+                if(smackConfig.getProperty("xslFileName") != null)
+                {
+                    XSL_FILE_NAME = Utilities.getCurrentWorkingDirectory() + System.getProperty("file.separator") + "xsl" + System.getProperty("file.separator") + smackConfig.getProperty("xslFileName");
 
                     // Log info
-                    Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"out\" command line option.");
-                    if(cmd.getOptionValue("out") != null) {
-
-                        // Set the filename for the output file
-                        XML_OUT_FILE_NAME = cmd.getOptionValue("out");
-
-                        // Log info
-                        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"XSL file\" configuration.");
-                        if(smackConfig.getProperty("xslFileName") != null)
-                        {
-                            XSL_FILE_NAME = Utilities.getCurrentWorkingDirectory() + System.getProperty("file.separator") + "xsl" + System.getProperty("file.separator") + smackConfig.getProperty("xslFileName");
-
-                            // Main application controller
-                            MainController mainController = new MainController();
-                            mainController.load();
-
-                        } else {
-                            logController.log(Level.SEVERE, Smack.class.getSimpleName(), "XSL filname config is not define.");
-                        }
-
+                    Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"port\", \"inbox\", \"indir\" and \"inarchive\" command line options.");
+                    if(cmd.getOptionValue("port") != null) {
+                        
+                        // Acknowledge the missives posted over HTTP until stopped
+                        Metrics.exportMBeans();
+                        processRequests(cmd);
+                    } else if(cmd.getOptionValue("inbox") != null) {
+                        
+                        // Acknowledge the missives of a watched directory until stopped
+                        Metrics.exportMBeans();
+                        processInbox(cmd);
+                    } else if(cmd.getOptionValue("indir") != null) {
+                        
+                        // Acknowledge a directory of missives
+                        Metrics.exportMBeans();
+                        processDirectory(cmd);
+                    } else if(cmd.getOptionValue("inarchive") != null) {
+                        
+                        // Acknowledge an archive of missives
+                        Metrics.exportMBeans();
+                        processArchive(cmd);
                     } else {
-                        logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output XML file name was not specify.");
+                        
+                        // Acknowledge a single missive
+                        processMissive(cmd);
                     }
+
                 } else {
-                    logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Input XML file name was not specify.");
+                    logController.log(Level.SEVERE, Smack.class.getSimpleName(), "XSL filname config is not define.");
                 }
             } else {
                 // Log warning
                 Smack.logController.log(Level.WARNING, Smack.class.getSimpleName(), "Input file name and output file name has not been specified.");
                 
                 System.out.println("Usage: java -jar \"Smack.jar\" -in input.xml -out output.xml" );
+                System.out.println("       java -jar \"Smack.jar\" -indir inputDirectory -outdir outputDirectory" );
+                System.out.println("       java -jar \"Smack.jar\" -inarchive input.zip -outarchive output.zip" );
+                System.out.println("       java -jar \"Smack.jar\" -inbox inboxDirectory -outbox outboxDirectory -archive archiveDirectory -error errorDirectory" );
+                System.out.println("       java -jar \"Smack.jar\" -port port" );
             }
         } catch (ParseException ex) {
             logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
         }
         
+        // Write the last summary of the metrics, for every mode
+        Metrics.close();
+        
         // Log info
         Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Smack is now exiting.");
+        
+        // Write the pending log records
+        logController.close();
+    }
+    
+    /**
+     * Acknowledge the missive given by the "in" and "out" command line options
+     * 
+     * @param cmd Parsed command line
+     */
+    private static void processMissive(CommandLine cmd) {
+        
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"in\" command line option.");
+        if(cmd.getOptionValue("in") != null) {
+
+            // Set the missive to process
+            XML_IN_FILE_NAME = cmd.getOptionValue("in");
+
+            // Log info
+            Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"out\" command line option.");
+            if(cmd.getOptionValue("out") != null) {
+
+                // Set the filename for the output file
+                XML_OUT_FILE_NAME = cmd.getOptionValue("out");
+
+                // Main application controller
+                MainController mainController = new MainController();
+                mainController.load();
+
+            } else {
+                logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output XML file name was not specify.");
+            }
+        } else {
+            logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Input XML file name was not specify.");
+        }
+    }
+    
+    /**
+     * Acknowledge all the missives of the directory given by the "indir" and "outdir" command line options
+     * 
+     * @param cmd Parsed command line
+     */
+    private static void processDirectory(CommandLine cmd) {
+        
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"outdir\" command line option.");
+        if(cmd.getOptionValue("outdir") != null) {
+            
+            // Batch controller acknowledging every missive of the input directory
+            BatchController batchController = new BatchController(cmd.getOptionValue("indir"), cmd.getOptionValue("outdir"));
+            batchController.load();
+            
+        } else {
+            logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output directory was not specify.");
+        }
+    }
+    
+    /**
+     * Acknowledge all the missives of the archive given by the "inarchive" and "outarchive" command line options
+     * 
+     * @param cmd Parsed command line
+     */
+    private static void processArchive(CommandLine cmd) {
+        
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"outarchive\" command line option.");
+        if(cmd.getOptionValue("outarchive") != null) {
+            
+            // Archive controller streaming every missive of the input archive
+            ArchiveController archiveController = new ArchiveController(cmd.getOptionValue("inarchive"), cmd.getOptionValue("outarchive"));
+            archiveController.load();
+            
+        } else {
+            logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output archive was not specify.");
+        }
+    }
+    
+    /**
+     * Acknowledge the missives dropped into the directory given by the "inbox" command line
+     * option until the application is stopped
+     * 
+     * @param cmd Parsed command line
+     */
+    private static void processInbox(CommandLine cmd) {
+        
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Getting the \"outbox\", \"archive\" and \"error\" command line options.");
+        if(cmd.getOptionValue("outbox") != null && cmd.getOptionValue("archive") != null && cmd.getOptionValue("error") != null) {
+            
+            // Daemon controller watching the inbox
+            DaemonController daemonController = new DaemonController(cmd.getOptionValue("inbox"), cmd.getOptionValue("outbox"),
+                    cmd.getOptionValue("archive"), cmd.getOptionValue("error"));
+            daemonController.load();
+            
+        } else {
+            logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Outbox, archive and error directories must all be specified.");
+        }
+    }
+    
+    /**
+     * Acknowledge the missives posted to the port given by the "port" command line option
+     * until the application is stopped
+     * 
+     * @param cmd Parsed command line
+     */
+    private static void processRequests(CommandLine cmd) {
+        
+        try {
+            
+            // HTTP controller listening on the port
+            HttpController httpController = new HttpController(Integer.parseInt(cmd.getOptionValue("port").trim()));
+            httpController.load();
+            
+        } catch (NumberFormatException ex) {
+            logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Port \"" + cmd.getOptionValue("port") + "\" is not a number.");
+        }
     }
 }
@@ -0,0 +1,694 @@
+package smack.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import smack.Smack;
+import smack.metrics.Metrics;
+import smack.metrics.OutcomeMetrics;
+import smack.metrics.StageMetrics;
+import smack.utilities.FileIO;
+import smack.utilities.RoutingWarning;
+import smack.utilities.Utilities;
+import smack.verification.MissiveHeader;
+import smack.verification.MissiveHeaderReader;
+import smack.verification.MissiveNominal;
+import smack.verification.VerificationUnavailableException;
+import smack.verification.Verifier;
+
+/**
+ * The AcknowledgementProcessor verifies a nominal missive and writes its acknowledgement missive
+ *
+ * A processor holds no state about the missives it processes, so a single instance can be
+ * shared by all the threads of the application. Its stylesheet, verifier and log are given
+ * once when it is created.
+ *
+ * The latency of each stage of the processing and the outcome of every missive are recorded
+ * in the application metrics.
+ *
+ * When the verification web service is unavailable, "verificationFallback" decides the outcome
+ * of the missive: FAIL reports it as failed, NACK writes a negative acknowledgement with the
+ * return code "verificationFallbackReturnCode" and DEFER leaves the missive to be processed
+ * again later.
+ *
+ * The acknowledgement is written by the stylesheet unless "acknowledgementWriter" is STAX, in
+ * which case a missive read from a stream is acknowledged by the AcknowledgementWriter to a
+ * stream without building any document. That writer is only equivalent to the shipped
+ * stylesheet, a modified stylesheet requires the XSLT writer.
+ *
+ * @version 1.0
+ */
+public class AcknowledgementProcessor {
+
+    private static final StageMetrics HEADER_STAGE = Metrics.getStage("header");
+    private static final StageMetrics VERIFICATION_STAGE = Metrics.getStage("verification");
+    private static final StageMetrics TRANSFORM_STAGE = Metrics.getStage("transform");
+    private static final StageMetrics COMPLETION_STAGE = Metrics.getStage("completion");
+    private static final StageMetrics WRITE_STAGE = Metrics.getStage("write");
+    private static final StageMetrics ACKNOWLEDGEMENT_STAGE = Metrics.getStage("acknowledgement");
+    private static final OutcomeMetrics OUTCOMES = Metrics.getOutcomes();
+    private static AcknowledgementProcessor defaultProcessor;
+
+    private final String xslFilename;
+    private final Verifier verifier;
+    private final LogController logController;
+    private final VerificationFallback fallback;
+    private final String fallbackReturnCode;
+    private final WriterMode writerMode;
+
+    /**
+     * Outcome of a missive whose verification web service is unavailable
+     */
+    public enum VerificationFallback {
+        FAIL, NACK, DEFER
+    }
+
+    /**
+     * Way the acknowledgement missives are written
+     */
+    public enum WriterMode {
+        XSLT, STAX
+    }
+
+    /**
+     * AcknowledgementProcessor class constructor
+     *
+     * @param xslFilename XSL file transforming a nominal missive to an acknowledgement missive
+     * @param verifier Verifier of the nominal missives
+     * @param logController Log of the application
+     */
+    public AcknowledgementProcessor(String xslFilename, Verifier verifier, LogController logController) {
+        this(xslFilename, verifier, logController, VerificationFallback.FAIL, null);
+    }
+
+    /**
+     * AcknowledgementProcessor class constructor
+     *
+     * @param xslFilename XSL file transforming a nominal missive to an acknowledgement missive
+     * @param verifier Verifier of the nominal missives
+     * @param logController Log of the application
+     * @param fallback Outcome of the missives whose verification web service is unavailable
+     * @param fallbackReturnCode Return code (class-subclass-detail) of the NACK fallback
+     */
+    public AcknowledgementProcessor(String xslFilename, Verifier verifier, LogController logController, VerificationFallback fallback, String fallbackReturnCode) {
+        this(xslFilename, verifier, logController, fallback, fallbackReturnCode, WriterMode.XSLT);
+    }
+
+    /**
+     * AcknowledgementProcessor class constructor
+     *
+     * @param xslFilename XSL file transforming a nominal missive to an acknowledgement missive
+     * @param verifier Verifier of the nominal missives
+     * @param logController Log of the application
+     * @param fallback Outcome of the missives whose verification web service is unavailable
+     * @param fallbackReturnCode Return code (class-subclass-detail) of the NACK fallback
+     * @param writerMode Way the acknowledgement missives are written
+     */
+    public AcknowledgementProcessor(String xslFilename, Verifier verifier, LogController logController, VerificationFallback fallback, String fallbackReturnCode, WriterMode writerMode) {
+
+        if (fallback == VerificationFallback.NACK && (fallbackReturnCode == null || fallbackReturnCode.split("-").length != 3)) {
+            throw new IllegalArgumentException("Invalid fallback return code \"" + fallbackReturnCode + "\", expected class-subclass-detail.");
+        }
+
+        this.xslFilename = xslFilename;
+        this.verifier = verifier;
+        this.logController = logController;
+        this.fallback = fallback;
+        this.fallbackReturnCode = fallbackReturnCode;
+        this.writerMode = writerMode;
+    }
+
+    /**
+     * Create a processor from the application configuration
+     *
+     * @param config Application configuration
+     * @return Processor using the configured stylesheet and verifier
+     * @throws IOException When the verification rules could not be loaded
+     */
+    public static AcknowledgementProcessor fromConfig(Properties config) throws IOException {
+
+        String xslFilename = Utilities.getCurrentWorkingDirectory() + File.separator + "xsl" + File.separator + config.getProperty("xslFileName");
+
+        return create(xslFilename, MissiveNominal.createVerifier(config), LogController.getLogController(), config);
+    }
+
+    /**
+     * Get the processor of the application configuration
+     *
+     * @return Processor shared by the application
+     * @throws IOException When the verifier could not be created
+     */
+    public static synchronized AcknowledgementProcessor getDefaultProcessor() throws IOException {
+
+        if (defaultProcessor == null) {
+            defaultProcessor = create(Smack.XSL_FILE_NAME, MissiveNominal.getDefaultVerifier(), Smack.logController, Smack.smackConfig);
+        }
+
+        return defaultProcessor;
+    }
+
+    /**
+     * Create a processor with the verification fallback and the writer of the configuration
+     *
+     * An invalid fallback is reported in the log and replaced by FAIL, an invalid writer is
+     * replaced by XSLT.
+     *
+     * @param xslFilename XSL file transforming a nominal missive to an acknowledgement missive
+     * @param verifier Verifier of the nominal missives
+     * @param logController Log of the application
+     * @param config Application configuration
+     * @return Processor
+     */
+    private static AcknowledgementProcessor create(String xslFilename, Verifier verifier, LogController logController, Properties config) {
+
+        WriterMode writerMode = WriterMode.XSLT;
+
+        try {
+            writerMode = WriterMode.valueOf(config.getProperty("acknowledgementWriter", "XSLT").trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException ex) {
+            logController.log(Level.WARNING, Smack.class.getSimpleName(), "Invalid acknowledgement writer \"" + config.getProperty("acknowledgementWriter") + "\". Using XSLT.");
+        }
+
+        try {
+            VerificationFallback fallback = VerificationFallback.valueOf(config.getProperty("verificationFallback", "FAIL").trim().toUpperCase(Locale.ENGLISH));
+
+            return new AcknowledgementProcessor(xslFilename, verifier, logController, fallback, config.getProperty("verificationFallbackReturnCode"), writerMode);
+
+        } catch (IllegalArgumentException ex) {
+            logController.log(Level.WARNING, Smack.class.getSimpleName(), "Invalid verification fallback \"" + config.getProperty("verificationFallback")
+                    + "\": " + ex.getLocalizedMessage() + " Using FAIL.");
+        }
+
+        return new AcknowledgementProcessor(xslFilename, verifier, logController, VerificationFallback.FAIL, null, writerMode);
+    }
+
+    /**
+     * Acknowledge a missive file to an acknowledgement file
+     *
+     * @param missiveFile Nominal missive to acknowledge
+     * @param acknowledgementFile Acknowledgement missive to write
+     * @return The outcome of the processing of the missive
+     */
+    public ProcessingStatus process(File missiveFile, File acknowledgementFile) {
+        return this.process(missiveFile, null, acknowledgementFile);
+    }
+
+    /**
+     * Acknowledge a missive file whose header may already have been read to an acknowledgement file
+     *
+     * @param missiveFile Nominal missive to acknowledge
+     * @param missiveHeader Header of the missive, null to read it from the file
+     * @param acknowledgementFile Acknowledgement missive to write
+     * @return The outcome of the processing of the missive
+     */
+    public ProcessingStatus process(File missiveFile, MissiveHeader missiveHeader, File acknowledgementFile) {
+
+        long startTime = System.nanoTime();
+        ByteBuffer content;
+        MissiveHeader header = missiveHeader;
+
+        try {
+
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Reading the input XML file.");
+
+            // The file is read once, its content is shared by the header and the transformation
+            content = FileIO.read(missiveFile);
+            if (header == null) {
+                header = MissiveHeaderReader.read(FileIO.newInputStream(content));
+            }
+            HEADER_STAGE.record(startTime);
+
+        } catch (IOException | XMLStreamException ex) {
+            HEADER_STAGE.recordError(startTime);
+            this.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveFile.getPath() + "\" could not be read: " + ex.getLocalizedMessage());
+            return finish(ProcessingStatus.FAILED, startTime);
+        }
+
+        StreamSource missive = new StreamSource(FileIO.newInputStream(content), missiveFile.toURI().toString());
+
+        return this.acknowledge(missiveFile.getPath(), header, missive, new StreamResult(acknowledgementFile), "the XML file \"" + acknowledgementFile.getPath() + "\"", startTime);
+    }
+
+    /**
+     * Acknowledge a missive held in memory to a stream
+     *
+     * @param missiveName Name of the missive used in the log
+     * @param missive Nominal missive to acknowledge
+     * @param acknowledgement Stream to which the acknowledgement missive is written, left open
+     * @return The outcome of the processing of the missive
+     */
+    public ProcessingStatus process(String missiveName, byte[] missive, OutputStream acknowledgement) {
+        return this.process(missiveName, missive, new StreamResult(acknowledgement));
+    }
+
+    /**
+     * Acknowledge a missive read from a stream to a stream
+     *
+     * The missive is read entirely in memory since it is read once for its header and once
+     * for its transformation.
+     *
+     * @param missiveName Name of the missive used in the log
+     * @param missive Stream of the nominal missive to acknowledge, left open
+     * @param acknowledgement Stream to which the acknowledgement missive is written, left open
+     * @return The outcome of the processing of the missive
+     */
+    public ProcessingStatus process(String missiveName, InputStream missive, OutputStream acknowledgement) {
+
+        long startTime = System.nanoTime();
+
+        try {
+            return this.process(missiveName, readFully(missive), new StreamResult(acknowledgement));
+        } catch (IOException ex) {
+            HEADER_STAGE.recordError(startTime);
+            this.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be read: " + ex.getLocalizedMessage());
+            return finish(ProcessingStatus.FAILED, startTime);
+        }
+    }
+
+    /**
+     * Acknowledge a missive from any XML source to any XML result
+     *
+     * DOM sources and stream sources backed by a stream or a system ID are supported.
+     *
+     * @param missiveName Name of the missive used in the log
+     * @param missive Nominal missive to acknowledge
+     * @param acknowledgement Result to which the acknowledgement missive is written
+     * @return The outcome of the processing of the missive
+     */
+    public ProcessingStatus process(String missiveName, Source missive, Result acknowledgement) {
+
+        long startTime = System.nanoTime();
+
+        try {
+
+            if (missive instanceof DOMSource) {
+
+                Node node = ((DOMSource) missive).getNode();
+                Document document = node instanceof Document ? (Document) node : node.getOwnerDocument();
+
+                MissiveHeader header = MissiveHeader.fromDocument(document);
+                HEADER_STAGE.record(startTime);
+
+                return this.acknowledge(missiveName, header, missive, acknowledgement, "the result", startTime);
+            }
+
+            if (missive instanceof StreamSource) {
+
+                StreamSource streamSource = (StreamSource) missive;
+
+                if (streamSource.getInputStream() != null) {
+                    return this.process(missiveName, readFully(streamSource.getInputStream()), acknowledgement);
+                }
+
+                if (streamSource.getReader() == null && streamSource.getSystemId() != null) {
+
+                    MissiveHeader header;
+
+                    // The header is read separately so that the transformation can read the whole source
+                    try (InputStream in = new URL(streamSource.getSystemId()).openStream()) {
+                        header = MissiveHeaderReader.read(in);
+                    }
+
+                    HEADER_STAGE.record(startTime);
+
+                    return this.acknowledge(missiveName, header, missive, acknowledgement, "the result", startTime);
+                }
+            }
+
+        } catch (IOException | XMLStreamException ex) {
+            HEADER_STAGE.recordError(startTime);
+            this.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be read: " + ex.getLocalizedMessage());
+            return finish(ProcessingStatus.FAILED, startTime);
+        }
+
+        throw new IllegalArgumentException("Unsupported missive source " + missive.getClass().getName() + ".");
+    }
+
+    /**
+     * Acknowledge a missive held in memory to any XML result
+     *
+     * @param missiveName Name of the missive used in the log
+     * @param missive Nominal missive to acknowledge
+     * @param acknowledgement Result to which the acknowledgement missive is written
+     * @return The outcome of the processing of the missive
+     */
+    public ProcessingStatus process(String missiveName, byte[] missive, Result acknowledgement) {
+
+        long startTime = System.nanoTime();
+        MissiveHeader header;
+
+        try {
+
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Reading the input XML missive.");
+
+            // Header of the missive
+            header = MissiveHeaderReader.read(new ByteArrayInputStream(missive));
+            HEADER_STAGE.record(startTime);
+
+        } catch (XMLStreamException ex) {
+            HEADER_STAGE.recordError(startTime);
+            this.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be read: " + ex.getLocalizedMessage());
+            return finish(ProcessingStatus.FAILED, startTime);
+        }
+
+        return this.acknowledge(missiveName, header, new StreamSource(new ByteArrayInputStream(missive)), acknowledgement, "the output stream", startTime);
+    }
+
+    /**
+     * Verify a missive and write its acknowledgement
+     *
+     * @param missiveName Name of the missive used in the log
+     * @param header Header of the missive
+     * @param missive Nominal missive to transform
+     * @param acknowledgement Result to which the acknowledgement missive is written
+     * @param target Description of the result used in the log
+     * @param startTime Time at which the processing of the missive started
+     * @return The outcome of the processing of the missive
+     */
+    private ProcessingStatus acknowledge(String missiveName, MissiveHeader header, Source missive, Result acknowledgement, String target, long startTime) {
+
+        // Stage in progress, charged with the error if the processing fails
+        StageMetrics stage = VERIFICATION_STAGE;
+        long stageStartTime = startTime;
+
+        try {
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying if the file \"" + missiveName + "\" is of type nominal.");
+
+            // Check if its a nominal missive
+            if (!header.isNominal()) {
+
+                // Log warning
+                this.logController.log(Level.WARNING, Smack.class.getSimpleName(), "Input XML file  \"" + missiveName + "\" is not of type nominal.");
+
+                return finish(ProcessingStatus.NOT_NOMINAL, startTime);
+            }
+
+            // Create the missive nominal object
+            MissiveNominal missiveNominal = new MissiveNominal(header, this.verifier);
+
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying if the file \"" + missiveName + "\" is valid for acknowledgement.");
+
+            Boolean isValid;
+            String returnCode;
+            RoutingWarning routingWarning;
+
+            try {
+                // Verify the nominal missive
+                stageStartTime = System.nanoTime();
+                isValid = missiveNominal.verify();
+                VERIFICATION_STAGE.record(stageStartTime);
+
+                // Get the return code
+                returnCode = missiveNominal.getReturnCode();
+
+                // Get the routing warning
+                routingWarning = missiveNominal.getRoutingWarning();
+
+            } catch (VerificationUnavailableException ex) {
+
+                VERIFICATION_STAGE.recordError(stageStartTime);
+
+                // Log warning
+                this.logController.log(Level.WARNING, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be verified, applying the "
+                        + this.fallback + " fallback: " + ex.getLocalizedMessage());
+
+                if (this.fallback == VerificationFallback.DEFER) {
+                    return finish(ProcessingStatus.DEFERRED, startTime);
+                } else if (this.fallback != VerificationFallback.NACK) {
+                    return finish(ProcessingStatus.FAILED, startTime);
+                }
+
+                // Negative acknowledgement with the return code of the configuration
+                isValid = false;
+                returnCode = this.fallbackReturnCode;
+                routingWarning = null;
+            }
+
+            OUTCOMES.record(returnCode, routingWarning != null ? routingWarning.getCode() : null);
+
+            // Write the acknowledgement without the stylesheet when both ends are streams
+            if (this.writerMode == WriterMode.STAX && isStream(missive) && isStream(acknowledgement)) {
+
+                // Read the fields of the missive copied to the acknowledgement
+                stage = TRANSFORM_STAGE;
+                stageStartTime = System.nanoTime();
+                String[] fields = readFields(missiveName, (StreamSource) missive);
+
+                // The stylesheet is used for the missives that StAX cannot read
+                if (fields != null) {
+
+                    stageStartTime = TRANSFORM_STAGE.record(stageStartTime);
+
+                    // Log info
+                    this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Writing acknowledgement of \"" + missiveName + "\" to " + target + ".");
+
+                    stage = WRITE_STAGE;
+                    writeAcknowledgement((StreamResult) acknowledgement, fields, isValid, returnCode, routingWarning);
+                    WRITE_STAGE.record(stageStartTime);
+
+                    return finish(isValid ? ProcessingStatus.ACK : ProcessingStatus.NACK, startTime);
+                }
+            }
+
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Transforming the file \"" + missiveName + "\" to an acknowledgement missive using the transformation \"" + new File(this.xslFilename).getName() + "\".");
+
+            // Tranform the missive to an acknowledgement missive
+            stage = TRANSFORM_STAGE;
+            stageStartTime = System.nanoTime();
+            Document outputDocument = Utilities.transformXMLDocument(missive, this.xslFilename);
+            stageStartTime = TRANSFORM_STAGE.record(stageStartTime);
+
+            // Set the status, return code and routing warning of the acknowledgement
+            stage = COMPLETION_STAGE;
+            completeAcknowledgement(outputDocument, isValid, returnCode, routingWarning);
+            COMPLETION_STAGE.record(stageStartTime);
+
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Writing acknowledgement of \"" + missiveName + "\" to " + target + ".");
+
+            // Write the acknowledgement document
+            stage = WRITE_STAGE;
+            stageStartTime = System.nanoTime();
+            Utilities.writeWellFormedXmlDocument(outputDocument, acknowledgement);
+            WRITE_STAGE.record(stageStartTime);
+
+            return finish(isValid ? ProcessingStatus.ACK : ProcessingStatus.NACK, startTime);
+
+        } catch (TransformerException | IOException ex) {
+            stage.recordError(stageStartTime);
+            this.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+        } catch (RuntimeException ex) {
+
+            // An unexpected error fails this missive only, not the batch or the server processing it
+            stage.recordError(stageStartTime);
+            this.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be acknowledged: " + ex);
+        }
+
+        return finish(ProcessingStatus.FAILED, startTime);
+    }
+
+    /**
+     * Check whether a source can be read by the AcknowledgementWriter
+     *
+     * @param missive Source of the missive
+     * @return Whether the source is a stream which can be read again, or a system ID
+     */
+    private static boolean isStream(Source missive) {
+
+        if (!(missive instanceof StreamSource) || ((StreamSource) missive).getReader() != null) {
+            return false;
+        }
+
+        InputStream in = ((StreamSource) missive).getInputStream();
+
+        return in != null ? in.markSupported() : missive.getSystemId() != null;
+    }
+
+    /**
+     * Check whether a result can be written by the AcknowledgementWriter
+     *
+     * @param acknowledgement Result of the acknowledgement
+     * @return Whether the result is a stream or a file
+     */
+    private static boolean isStream(Result acknowledgement) {
+
+        if (!(acknowledgement instanceof StreamResult) || ((StreamResult) acknowledgement).getWriter() != null) {
+            return false;
+        }
+
+        String systemId = acknowledgement.getSystemId();
+
+        return ((StreamResult) acknowledgement).getOutputStream() != null || (systemId != null && systemId.startsWith("file:"));
+    }
+
+    /**
+     * Read the fields of a missive copied to its acknowledgement
+     *
+     * A stream is reset when StAX cannot read it so that the stylesheet can read it in turn.
+     *
+     * @param missiveName Name of the missive used in the log
+     * @param missive Source of the missive
+     * @return Fields of the missive or null if it could not be read with StAX
+     * @throws IOException
+     */
+    private String[] readFields(String missiveName, StreamSource missive) throws IOException {
+
+        InputStream in = missive.getInputStream();
+
+        try {
+            if (in != null) {
+                in.mark(Integer.MAX_VALUE);
+                return AcknowledgementWriter.readFields(in);
+            }
+
+            try (InputStream systemIdIn = new URL(missive.getSystemId()).openStream()) {
+                return AcknowledgementWriter.readFields(systemIdIn);
+            }
+
+        } catch (XMLStreamException ex) {
+
+            if (in != null) {
+                in.reset();
+            }
+
+            // Log info
+            this.logController.log(Level.INFO, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be read with StAX, using the stylesheet: " + ex.getLocalizedMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Write an acknowledgement with the AcknowledgementWriter
+     *
+     * @param acknowledgement Result of the acknowledgement, a stream left open or a file
+     * @param fields Fields of the missive
+     * @param isValid Whether the missive is valid
+     * @param returnCode Return code of the verification, possibly null
+     * @param routingWarning Routing warning of the verification, possibly null
+     * @throws IOException
+     */
+    private static void writeAcknowledgement(StreamResult acknowledgement, String[] fields, boolean isValid, String returnCode, RoutingWarning routingWarning) throws IOException {
+
+        if (acknowledgement.getOutputStream() != null) {
+            AcknowledgementWriter.write(acknowledgement.getOutputStream(), fields, isValid, returnCode, routingWarning);
+            return;
+        }
+
+        // The acknowledgement is checked before the file is created
+        byte[] content = AcknowledgementWriter.toByteArray(fields, isValid, returnCode, routingWarning);
+
+        try (OutputStream out = FileIO.newOutputStream(new File(URI.create(acknowledgement.getSystemId())))) {
+            out.write(content);
+        }
+    }
+
+    /**
+     * Record the outcome and the overall latency of the processing of a missive
+     *
+     * @param status Outcome of the processing of the missive
+     * @param startTime Time at which the processing of the missive started
+     * @return The outcome of the processing of the missive
+     */
+    private static ProcessingStatus finish(ProcessingStatus status, long startTime) {
+
+        if (status == ProcessingStatus.FAILED) {
+            ACKNOWLEDGEMENT_STAGE.recordError(startTime);
+        } else {
+            ACKNOWLEDGEMENT_STAGE.record(startTime);
+        }
+
+        OUTCOMES.record(status);
+
+        return status;
+    }
+
+    /**
+     * Fill in the outcome of the verification in an acknowledgement document
+     *
+     * @param outputDocument Acknowledgement document produced by the stylesheet
+     * @param isValid Whether the missive is valid
+     * @param returnCode Return code of the verification (class-subclass-detail), possibly null
+     * @param routingWarning Routing warning of the verification, possibly null
+     */
+    public static void completeAcknowledgement(Document outputDocument, boolean isValid, String returnCode, RoutingWarning routingWarning) {
+
+        // Set the status node as 'ACK' or 'NACK'
+        setText(outputDocument, "sem:AcqSta", isValid ? "ACK" : "NACK");
+
+        // Check if the return code is not null
+        if (null != returnCode) {
+
+            // Set the retun codes in the respective tags
+            String[] returnCodeParts = returnCode.split("-");
+            setText(outputDocument, "sem:AcqCla", returnCodeParts[0]);
+            setText(outputDocument, "sem:AcqSub", returnCodeParts[1]);
+            setText(outputDocument, "sem:AcqDet", returnCodeParts[2]);
+        } else {}
+
+        // Check if the routing warning is not null
+        if (null != routingWarning) {
+
+            // Set the routing warning tags
+            setText(outputDocument, "sem:Code", routingWarning.getCode());
+            setText(outputDocument, "sem:Descr", routingWarning.getDecription());
+        } else {}
+    }
+
+    /**
+     * Set the text of the first element of the parameterized name
+     *
+     * @param document Acknowledgement document
+     * @param tagName Qualified name of the element
+     * @param text Text of the element
+     */
+    private static void setText(Document document, String tagName, String text) {
+
+        NodeList nodeList = document.getElementsByTagName(tagName);
+        nodeList.item(0).setTextContent(text);
+    }
+
+    /**
+     * Read a stream until its end
+     *
+     * @param in Stream to read, left open
+     * @return Content of the stream
+     * @throws IOException
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int count;
+
+        while ((count = in.read(buffer)) != -1) {
+            content.write(buffer, 0, count);
+        }
+
+        return content.toByteArray();
+    }
+}
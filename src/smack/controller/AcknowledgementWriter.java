@@ -0,0 +1,384 @@
+package smack.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import smack.utilities.RoutingWarning;
+import smack.utilities.Utilities;
+
+/**
+ * The AcknowledgementWriter class writes the acknowledgement of a missive without XSLT nor DOM
+ *
+ * It is a compiled form of the shipped stylesheet: the fields copied by the stylesheet are
+ * pulled from the missive with StAX, and the acknowledgement is written from a pre-serialised
+ * skeleton in which only these fields and the outcome of the verification are filled in.
+ * The output is byte for byte the one of the stylesheet followed by
+ * AcknowledgementProcessor.completeAcknowledgement and the identity serialisation, including
+ * its quirks: the copied fields are written unescaped since the stylesheet disables their
+ * output escaping, and the send datetime is formatted like the EXSLT date-time() function of
+ * the JDK. Like on the stylesheet path, an acknowledgement whose copied fields hold markup
+ * characters is parsed before being written, and rejected when it is not well-formed.
+ *
+ * @version 1.0
+ */
+public final class AcknowledgementWriter {
+
+    private static final String NAMESPACE = "http://www.sepamail.eu/xsd/bleedingEdge";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Indexes of the fields copied from the missive
+     */
+    public static final int MISSIVE_ID = 0;
+    public static final int MISSIVE_ORDER = 1;
+    public static final int PRIORITY = 2;
+    public static final int SENDER_IBAN = 3;
+    public static final int RECEIVER_IBAN = 4;
+    private static final int FIELD_COUNT = 5;
+
+    // Position of an element on the paths of the copied fields
+    private static final int OTHER = -1;
+    private static final int DOCUMENT = -2;
+    private static final int MISSIVE = -3;
+    private static final int MISSIVE_001 = -4;
+    private static final int HEADER = -5;
+    private static final int SENDER = -6;
+    private static final int RECEIVER = -7;
+    private static final int MAX_PATH_DEPTH = 5;
+
+    private static final String PROLOG = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+            + "<sem:Missive xmlns:sem=\"" + NAMESPACE + "\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"1206\""
+            + " xsi:schemaLocation=\"http://www.sepamail.eu/xsd/bleedingEdge ../../xsd/sepamail_missive.xsd\">"
+            + "<sem:sepamail_missive_001>";
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        }
+    };
+
+    /**
+     * AcknowledgementWriter class constructor hidden since the class only has static methods
+     */
+    private AcknowledgementWriter() {
+    }
+
+    /**
+     * Read the fields of a missive copied to its acknowledgement
+     *
+     * A field is the string value of the first element found at its path, like xsl:value-of,
+     * or an empty string when there is no such element. The whole missive is read so that a
+     * missive which is not well-formed is rejected as it is by the stylesheet.
+     *
+     * @param in Missive stream, left open
+     * @return Fields of the missive, by index
+     * @throws XMLStreamException
+     */
+    public static String[] readFields(InputStream in) throws XMLStreamException {
+
+        XMLStreamReader streamReader = Utilities.getXMLInputFactory().createXMLStreamReader(in);
+
+        try {
+            return readFields(streamReader);
+        } finally {
+            streamReader.close();
+        }
+    }
+
+    /**
+     * Pull the copied fields from a stream
+     *
+     * @param streamReader StAX stream positioned at the start of the missive
+     * @return Fields of the missive, by index
+     * @throws XMLStreamException
+     */
+    private static String[] readFields(XMLStreamReader streamReader) throws XMLStreamException {
+
+        String[] fields = new String[FIELD_COUNT];
+
+        // Position of the elements of the current path, up to the depth of the fields
+        int[] positions = new int[MAX_PATH_DEPTH + 1];
+        positions[0] = DOCUMENT;
+        int depth = 0;
+
+        // Field whose text is being read and the depth of its element
+        StringBuilder text = new StringBuilder(64);
+        int field = OTHER;
+        int fieldDepth = 0;
+
+        while (streamReader.hasNext()) {
+
+            switch (streamReader.next()) {
+
+                case XMLStreamConstants.START_ELEMENT:
+
+                    depth++;
+
+                    if (depth <= MAX_PATH_DEPTH) {
+
+                        int position = position(positions[depth - 1], streamReader.getNamespaceURI(), streamReader.getLocalName());
+                        positions[depth] = position;
+
+                        if (field == OTHER && position >= 0 && fields[position] == null) {
+                            field = position;
+                            fieldDepth = depth;
+                            text.setLength(0);
+                        }
+                    }
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+
+                    // Text of the field, including the text of its descendants
+                    if (field != OTHER) {
+                        text.append(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+                    }
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+
+                    if (field != OTHER && depth == fieldDepth) {
+                        fields[field] = text.toString();
+                        field = OTHER;
+                    }
+
+                    depth--;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (fields[i] == null) {
+                fields[i] = "";
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * Get the position of an element on the paths of the copied fields
+     *
+     * @param parent Position of the parent element
+     * @param namespace Namespace of the element
+     * @param localName Local name of the element
+     * @return Position of the element, the index of a field or OTHER
+     */
+    private static int position(int parent, String namespace, String localName) {
+
+        if (parent == OTHER || parent >= 0 || !NAMESPACE.equals(namespace)) {
+            return OTHER;
+        }
+
+        switch (parent) {
+            case DOCUMENT:
+                return "Missive".equals(localName) ? MISSIVE : OTHER;
+            case MISSIVE:
+                return "sepamail_missive_001".equals(localName) ? MISSIVE_001 : OTHER;
+            case MISSIVE_001:
+                switch (localName) {
+                    case "MsvId":
+                        return MISSIVE_ID;
+                    case "MsvOrd":
+                        return MISSIVE_ORDER;
+                    case "MsvPri":
+                        return PRIORITY;
+                    case "MsvHdr":
+                        return HEADER;
+                    default:
+                        return OTHER;
+                }
+            case HEADER:
+                return "Snd".equals(localName) ? SENDER : "Rcv".equals(localName) ? RECEIVER : OTHER;
+            case SENDER:
+                return "IBAN".equals(localName) ? SENDER_IBAN : OTHER;
+            case RECEIVER:
+                return "IBAN".equals(localName) ? RECEIVER_IBAN : OTHER;
+            default:
+                return OTHER;
+        }
+    }
+
+    /**
+     * Write the acknowledgement of a missive
+     *
+     * The stream is neither flushed nor closed.
+     *
+     * @param out Stream to which the acknowledgement is written
+     * @param fields Fields of the missive, see readFields
+     * @param isValid Whether the missive is valid
+     * @param returnCode Return code of the verification (class-subclass-detail), possibly null
+     * @param routingWarning Routing warning of the verification, possibly null
+     * @throws IOException
+     */
+    public static void write(OutputStream out, String[] fields, boolean isValid, String returnCode, RoutingWarning routingWarning) throws IOException {
+        out.write(toByteArray(fields, isValid, returnCode, routingWarning));
+    }
+
+    /**
+     * Get the acknowledgement of a missive
+     *
+     * @param fields Fields of the missive, see readFields
+     * @param isValid Whether the missive is valid
+     * @param returnCode Return code of the verification (class-subclass-detail), possibly null
+     * @param routingWarning Routing warning of the verification, possibly null
+     * @return Acknowledgement encoded in UTF-8
+     * @throws IOException When the acknowledgement is not well-formed
+     */
+    public static byte[] toByteArray(String[] fields, boolean isValid, String returnCode, RoutingWarning routingWarning) throws IOException {
+
+        String[] returnCodeParts = returnCode != null ? returnCode.split("-") : null;
+        StringBuilder xml = new StringBuilder(1024);
+
+        xml.append(PROLOG);
+        appendCopy(xml, "sem:MsvId", fields[MISSIVE_ID]);
+        xml.append("<sem:MsvTyp>Acquittement</sem:MsvTyp>");
+        appendCopy(xml, "sem:MsvOrd", fields[MISSIVE_ORDER]);
+        appendCopy(xml, "sem:MsvPri", fields[PRIORITY]);
+        xml.append("<sem:MsvHdr>");
+
+        // The sender and the receiver of the acknowledgement are the ones of the missive swapped
+        appendCopy(xml, "sem:Snd", fields[RECEIVER_IBAN]);
+        appendText(xml, "sem:SndDtTm", exsltDateTime());
+        appendCopy(xml, "sem:Rcv", fields[SENDER_IBAN]);
+
+        xml.append("</sem:MsvHdr><sem:MsvAcq>");
+        appendText(xml, "sem:AcqSta", isValid ? "ACK" : "NACK");
+        appendText(xml, "sem:AcqCla", returnCodeParts != null ? returnCodeParts[0] : null);
+        appendText(xml, "sem:AcqSub", returnCodeParts != null ? returnCodeParts[1] : null);
+        appendText(xml, "sem:AcqDet", returnCodeParts != null ? returnCodeParts[2] : null);
+        xml.append("<sem:RtgWarn>");
+        appendText(xml, "sem:Code", routingWarning != null ? routingWarning.getCode() : null);
+        appendText(xml, "sem:Descr", routingWarning != null ? routingWarning.getDecription() : null);
+        xml.append("</sem:RtgWarn></sem:MsvAcq></sem:sepamail_missive_001></sem:Missive>");
+
+        byte[] acknowledgement = xml.toString().getBytes(UTF_8);
+
+        // The unescaped copies can break the acknowledgement
+        if (hasMarkup(fields[MISSIVE_ID]) || hasMarkup(fields[MISSIVE_ORDER]) || hasMarkup(fields[PRIORITY])
+                || hasMarkup(fields[RECEIVER_IBAN]) || hasMarkup(fields[SENDER_IBAN])) {
+            try {
+                Utilities.checkWellFormed(acknowledgement);
+            } catch (XMLStreamException ex) {
+                throw new IOException("The acknowledgement is not well-formed XML: " + ex.getLocalizedMessage(), ex);
+            }
+        }
+
+        return acknowledgement;
+    }
+
+    /**
+     * Check whether a copied field holds a character which is markup once written unescaped
+     *
+     * @param value Value of the field, possibly null
+     * @return Whether the value holds a '<', a '&amp;' or "]]&gt;"
+     */
+    private static boolean hasMarkup(String value) {
+        return value != null && (value.indexOf('<') >= 0 || value.indexOf('&') >= 0 || value.contains("]]>"));
+    }
+
+    /**
+     * Append an element copied from the missive, written without escaping like the stylesheet does
+     *
+     * @param xml Acknowledgement being written
+     * @param name Qualified name of the element
+     * @param value Value of the element
+     */
+    private static void appendCopy(StringBuilder xml, String name, String value) {
+        xml.append('<').append(name).append('>').append(value).append("</").append(name).append('>');
+    }
+
+    /**
+     * Append an element filled in with an escaped text, or an empty element
+     *
+     * @param xml Acknowledgement being written
+     * @param name Qualified name of the element
+     * @param value Text of the element, possibly null
+     */
+    private static void appendText(StringBuilder xml, String name, String value) {
+
+        if (value == null || value.isEmpty()) {
+            xml.append('<').append(name).append("/>");
+            return;
+        }
+
+        xml.append('<').append(name).append('>');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                default:
+                    if (c < 0x20 && c != '\t' && c != '\n') {
+                        xml.append("&#").append((int) c).append(';');
+                    } else {
+                        xml.append(c);
+                    }
+                    break;
+            }
+        }
+
+        xml.append("</").append(name).append('>');
+    }
+
+    /**
+     * Get the current datetime as formatted by the EXSLT date-time() function of the JDK
+     *
+     * The minutes of the offsets which are not whole hours are given in milliseconds by
+     * date-time(), the same is done here so that both outputs remain identical.
+     *
+     * @return Current datetime
+     */
+    private static String exsltDateTime() {
+
+        Date now = new Date();
+        StringBuilder dateTime = new StringBuilder(32).append(DATE_FORMAT.get().format(now));
+        int offset = TimeZone.getDefault().getOffset(now.getTime());
+
+        if (offset == 0) {
+            dateTime.append('Z');
+        } else {
+            int hours = offset / (60 * 60 * 1000);
+            int minutes = offset % (60 * 60 * 1000);
+            dateTime.append(hours < 0 ? '-' : '+').append(formatDigits(hours)).append(':').append(formatDigits(minutes));
+        }
+
+        return dateTime.toString();
+    }
+
+    /**
+     * Format a number on two digits at least, without its sign
+     *
+     * @param number Number to format
+     * @return Formatted number
+     */
+    private static String formatDigits(int number) {
+
+        String digits = String.valueOf(Math.abs(number));
+
+        return digits.length() == 1 ? '0' + digits : digits;
+    }
+}
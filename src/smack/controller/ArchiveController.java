@@ -0,0 +1,310 @@
+package smack.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import smack.Smack;
+import smack.utilities.ArchiveReader;
+import smack.utilities.ArchiveWriter;
+import smack.utilities.ConfigReader;
+
+/**
+ * The ArchiveController acknowledges every missive of an input archive to an output archive
+ * within a single application run, without extracting the missives to disk.
+ *
+ * The entries of the input archive (ZIP, TAR or gzip compressed TAR) are streamed one after
+ * the other and the acknowledgement of each XML entry is written to the output archive under
+ * the same entry name, in the order of the input archive. The format of the output archive is
+ * given by its extension. At most twice "batchThreads" missives are held in memory at once,
+ * each of at most "archiveMaxEntrySize" bytes, whatever the size of the archives. The output
+ * archive is written to a temporary file which replaces it once complete.
+ *
+ * @version 1.0
+ */
+public class ArchiveController {
+
+    private static final int DEFAULT_MAX_ENTRY_SIZE = 10 * 1024 * 1024;
+
+    private File inputArchive;
+    private File outputArchive;
+    private Map<ProcessingStatus, Integer> statusCount;
+    private AcknowledgementProcessor processor;
+
+    /**
+     * ArchiveController class constructor
+     *
+     * @param inputArchiveName Archive containing the nominal missives to acknowledge
+     * @param outputArchiveName Archive to which the acknowledgement missives are written
+     */
+    public ArchiveController(String inputArchiveName, String outputArchiveName) {
+        this(inputArchiveName, outputArchiveName, null);
+    }
+
+    /**
+     * ArchiveController class constructor
+     *
+     * @param inputArchiveName Archive containing the nominal missives to acknowledge
+     * @param outputArchiveName Archive to which the acknowledgement missives are written
+     * @param processor Processor acknowledging the missives, the default one when null
+     */
+    public ArchiveController(String inputArchiveName, String outputArchiveName, AcknowledgementProcessor processor) {
+
+        this.processor = processor;
+        this.inputArchive = new File(inputArchiveName);
+        this.outputArchive = new File(outputArchiveName);
+        this.statusCount = new EnumMap<>(ProcessingStatus.class);
+
+        for (ProcessingStatus status : ProcessingStatus.values()) {
+            this.statusCount.put(status, 0);
+        }
+    }
+
+    /**
+     * Get the number of missives that ended with the parameterized status
+     *
+     * @param status Processing status
+     * @return Number of missives processed with the parameterized status
+     */
+    public int getStatusCount(ProcessingStatus status) {
+        return this.statusCount.get(status);
+    }
+
+    /**
+     * Acknowledge all the XML entries of the input archive
+     *
+     * @return Whether the archive could be processed
+     */
+    public Boolean load() {
+
+        // Check if the input archive exists
+        if (!this.inputArchive.isFile()) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Input archive \"" + this.inputArchive.getPath() + "\" was not found.");
+            return false;
+        }
+
+        ArchiveWriter.Format format = ArchiveWriter.getFormat(this.outputArchive.getName());
+
+        if (format == null) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output archive \"" + this.outputArchive.getPath() + "\" must end with .zip, .tar, .tar.gz or .tgz.");
+            return false;
+        }
+
+        // Make sure that the acknowledgements will not overwrite the input missives
+        try {
+            if (this.inputArchive.getCanonicalFile().equals(this.outputArchive.getCanonicalFile())) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Input and output archives must be different.");
+                return false;
+            }
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            return false;
+        }
+
+        // Processor shared by all the batch threads
+        final AcknowledgementProcessor acknowledgementProcessor;
+        try {
+            acknowledgementProcessor = this.processor != null ? this.processor : AcknowledgementProcessor.getDefaultProcessor();
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            return false;
+        }
+
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Acknowledging the missives of \"" + this.inputArchive.getPath() + "\" to \"" + this.outputArchive.getPath() + "\".");
+
+        File temporaryArchive = new File(this.outputArchive.getAbsoluteFile().getParentFile(), "." + this.outputArchive.getName() + ".part");
+        int threadCount = getThreadCount();
+        int maxEntrySize = getMaxEntrySize();
+        int missiveCount = 0;
+        long startTime = System.nanoTime();
+
+        // Missives are acknowledged by "batchThreads" threads, the acknowledgements are written in the order of the archive
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Deque<Future<Acknowledgement>> results = new ArrayDeque<>(2 * threadCount);
+        boolean completed = false;
+
+        try (ArchiveReader reader = ArchiveReader.open(this.inputArchive); ArchiveWriter writer = ArchiveWriter.open(temporaryArchive, format)) {
+
+            String entryName;
+
+            while ((entryName = reader.nextEntry()) != null) {
+
+                if (!entryName.toLowerCase(Locale.ENGLISH).endsWith(".xml")) {
+                    continue;
+                }
+
+                missiveCount++;
+
+                final String missiveName = entryName;
+                final byte[] missive = reader.readEntry(maxEntrySize);
+
+                if (missive == null) {
+                    Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" is larger than " + maxEntrySize + " bytes.");
+                    this.count(missiveName, ProcessingStatus.FAILED);
+                    continue;
+                }
+
+                results.add(executor.submit(new Callable<Acknowledgement>() {
+                    @Override
+                    public Acknowledgement call() {
+
+                        // Acknowledge the missive
+                        ByteArrayOutputStream acknowledgement = new ByteArrayOutputStream(4096);
+                        ProcessingStatus status = acknowledgementProcessor.process(missiveName, missive, acknowledgement);
+
+                        return new Acknowledgement(missiveName, status, acknowledgement);
+                    }
+                }));
+
+                // Bound the missives held in memory
+                if (results.size() >= 2 * threadCount) {
+                    this.write(writer, results.poll());
+                }
+            }
+
+            while (!results.isEmpty()) {
+                this.write(writer, results.poll());
+            }
+
+            completed = true;
+
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Archive could not be processed: " + ex.getLocalizedMessage());
+        } catch (RuntimeException ex) {
+
+            // The temporary archive must still be removed below
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Archive could not be processed: " + ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Archive processing was interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try {
+            if (completed) {
+                Files.move(temporaryArchive.toPath(), this.outputArchive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(temporaryArchive.toPath());
+                return false;
+            }
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output archive \"" + this.outputArchive.getPath() + "\" could not be written: " + ex.getLocalizedMessage());
+            return false;
+        }
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000L;
+        double throughput = elapsedMillis > 0 ? missiveCount * 1000.0 / elapsedMillis : missiveCount;
+
+        // Aggregated report
+        String report = String.format(Locale.ENGLISH,
+                "Archive completed: %d missive(s) in %d ms (%.1f missives/s) - ACK: %d, NACK: %d, not nominal: %d, failed: %d, deferred: %d.",
+                missiveCount, elapsedMillis, throughput,
+                this.statusCount.get(ProcessingStatus.ACK), this.statusCount.get(ProcessingStatus.NACK),
+                this.statusCount.get(ProcessingStatus.NOT_NOMINAL), this.statusCount.get(ProcessingStatus.FAILED),
+                this.statusCount.get(ProcessingStatus.DEFERRED));
+
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), report);
+        System.out.println(report);
+
+        return true;
+    }
+
+    /**
+     * Wait for the acknowledgement of a missive and write it to the output archive
+     *
+     * Only the acknowledged missives, ACK or NACK, have an entry in the output archive.
+     *
+     * @param writer Writer of the output archive
+     * @param result Pending acknowledgement
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void write(ArchiveWriter writer, Future<Acknowledgement> result) throws IOException, InterruptedException {
+
+        Acknowledgement acknowledgement;
+
+        try {
+            acknowledgement = result.get();
+        } catch (ExecutionException ex) {
+            throw new IOException(String.valueOf(ex.getCause()), ex.getCause());
+        }
+
+        if (acknowledgement.status == ProcessingStatus.ACK || acknowledgement.status == ProcessingStatus.NACK) {
+            writer.write(acknowledgement.missiveName, acknowledgement.content.toByteArray(), acknowledgement.content.size());
+        }
+
+        this.count(acknowledgement.missiveName, acknowledgement.status);
+    }
+
+    /**
+     * Count and log the outcome of a missive
+     *
+     * @param missiveName Name of the entry of the missive
+     * @param status Outcome of the missive
+     */
+    private void count(String missiveName, ProcessingStatus status) {
+
+        this.statusCount.put(status, this.statusCount.get(status) + 1);
+
+        // Log the outcome of the entry
+        Smack.logController.log(status == ProcessingStatus.FAILED ? Level.WARNING : Level.INFO, Smack.class.getSimpleName(),
+                "Missive \"" + missiveName + "\" processed with status " + status + ".");
+    }
+
+    /**
+     * Get the number of missives acknowledged concurrently given by the "batchThreads" configuration
+     *
+     * @return Number of batch threads
+     */
+    private static int getThreadCount() {
+
+        return Math.max(1, ConfigReader.getIntProperty(Smack.smackConfig, "batchThreads", 1));
+    }
+
+    /**
+     * Get the size of the largest missive read from an archive given by the "archiveMaxEntrySize" configuration
+     *
+     * @return Size in bytes
+     */
+    private static int getMaxEntrySize() {
+
+        return ConfigReader.getIntProperty(Smack.smackConfig, "archiveMaxEntrySize", DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * Acknowledgement of a missive waiting to be written to the output archive
+     */
+    private static final class Acknowledgement {
+
+        private final String missiveName;
+        private final ProcessingStatus status;
+        private final ByteArrayOutputStream content;
+
+        /**
+         * Acknowledgement class constructor
+         *
+         * @param missiveName Name of the entry of the missive
+         * @param status Outcome of the missive
+         * @param content Acknowledgement missive
+         */
+        Acknowledgement(String missiveName, ProcessingStatus status, ByteArrayOutputStream content) {
+            this.missiveName = missiveName;
+            this.status = status;
+            this.content = content;
+        }
+    }
+}
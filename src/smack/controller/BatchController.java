@@ -0,0 +1,220 @@
+package smack.controller;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import smack.Smack;
+import smack.utilities.ConfigReader;
+import smack.verification.MissiveHeader;
+import smack.verification.VerificationCache;
+import smack.verification.VerificationClient;
+
+/**
+ * The BatchController acknowledges every missive of an input directory within a single
+ * application run and reports the outcome of each file and the overall throughput.
+ *
+ * @version 1.0
+ */
+public class BatchController {
+
+    private File inputDirectory;
+    private File outputDirectory;
+    private Map<ProcessingStatus, Integer> statusCount;
+    private AcknowledgementProcessor processor;
+
+    /**
+     * BatchController class constructor
+     *
+     * @param inputDirectoryName Directory containing the nominal missives to acknowledge
+     * @param outputDirectoryName Directory in which the acknowledgement missives are written
+     */
+    public BatchController(String inputDirectoryName, String outputDirectoryName) {
+        this(inputDirectoryName, outputDirectoryName, null);
+    }
+
+    /**
+     * BatchController class constructor
+     *
+     * @param inputDirectoryName Directory containing the nominal missives to acknowledge
+     * @param outputDirectoryName Directory in which the acknowledgement missives are written
+     * @param processor Processor acknowledging the missives, the default one when null
+     */
+    public BatchController(String inputDirectoryName, String outputDirectoryName, AcknowledgementProcessor processor) {
+
+        this.processor = processor;
+        this.inputDirectory = new File(inputDirectoryName);
+        this.outputDirectory = new File(outputDirectoryName);
+        this.statusCount = new EnumMap<>(ProcessingStatus.class);
+
+        for (ProcessingStatus status : ProcessingStatus.values()) {
+            this.statusCount.put(status, 0);
+        }
+    }
+
+    /**
+     * Get the number of missives that ended with the parameterized status
+     *
+     * @param status Processing status
+     * @return Number of missives processed with the parameterized status
+     */
+    public int getStatusCount(ProcessingStatus status) {
+        return this.statusCount.get(status);
+    }
+
+    /**
+     * Acknowledge all the XML files found in the input directory
+     *
+     * @return Whether the batch could be run
+     */
+    public Boolean load() {
+
+        // Check if the input directory exists
+        if (!this.inputDirectory.isDirectory()) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Input directory \"" + this.inputDirectory.getPath() + "\" was not found.");
+            return false;
+        }
+
+        // Create the output directory if needed
+        if (!this.outputDirectory.isDirectory() && !this.outputDirectory.mkdirs()) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Output directory \"" + this.outputDirectory.getPath() + "\" could not be created.");
+            return false;
+        }
+
+        // Make sure that the acknowledgements will not overwrite the input missives
+        try {
+            if (this.inputDirectory.getCanonicalFile().equals(this.outputDirectory.getCanonicalFile())) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Input and output directories must be different.");
+                return false;
+            }
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            return false;
+        }
+
+        // Processor shared by all the batch threads
+        final AcknowledgementProcessor acknowledgementProcessor;
+        try {
+            acknowledgementProcessor = this.processor != null ? this.processor : AcknowledgementProcessor.getDefaultProcessor();
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            return false;
+        }
+
+        // List the XML files of the input directory
+        File[] missiveFiles = this.inputDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.toLowerCase(Locale.ENGLISH).endsWith(".xml") && new File(dir, name).isFile();
+            }
+        });
+
+        // Process the files in a predictable order
+        Arrays.sort(missiveFiles);
+
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Acknowledging " + missiveFiles.length + " missive(s) from \"" + this.inputDirectory.getPath() + "\".");
+
+        long startTime = System.nanoTime();
+
+        // Missives are acknowledged by "batchThreads" threads so that their verifications can be grouped,
+        // highest priority first when "priorityScheduling" is enabled
+        PriorityWorkQueue workQueue = PriorityWorkQueue.fromConfig(Smack.smackConfig, "batch");
+        ExecutorService executor = workQueue != null ? PriorityWorkQueue.newFixedThreadPool(getThreadCount(), workQueue) : Executors.newFixedThreadPool(getThreadCount());
+        List<Future<ProcessingStatus>> results = new ArrayList<>(missiveFiles.length);
+
+        for (File missiveFile : missiveFiles) {
+
+            final File inputFile = missiveFile;
+            final File acknowledgementFile = new File(this.outputDirectory, missiveFile.getName());
+
+            // The priority queue has the header of the missive read by a worker before queuing the missive
+            MissiveTask task = new MissiveTask(inputFile) {
+                @Override
+                protected ProcessingStatus process(MissiveHeader header) {
+
+                    // Acknowledge the missive
+                    return acknowledgementProcessor.process(inputFile, header, acknowledgementFile);
+                }
+            };
+
+            executor.execute(task);
+            results.add(task.getResult());
+        }
+
+        executor.shutdown();
+
+        for (int i = 0; i < missiveFiles.length; i++) {
+
+            File missiveFile = missiveFiles[i];
+            ProcessingStatus status;
+
+            try {
+                status = results.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Batch was interrupted.");
+                return false;
+            } catch (ExecutionException ex) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), String.valueOf(ex.getCause()));
+                status = ProcessingStatus.FAILED;
+            }
+
+            this.statusCount.put(status, this.statusCount.get(status) + 1);
+
+            // Log the outcome of the file
+            Smack.logController.log(status == ProcessingStatus.FAILED ? Level.WARNING : Level.INFO, Smack.class.getSimpleName(),
+                    "Missive \"" + missiveFile.getName() + "\" processed with status " + status + ".");
+        }
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000L;
+        double throughput = elapsedMillis > 0 ? missiveFiles.length * 1000.0 / elapsedMillis : missiveFiles.length;
+
+        // Aggregated report
+        String report = String.format(Locale.ENGLISH,
+                "Batch completed: %d missive(s) in %d ms (%.1f missives/s) - ACK: %d, NACK: %d, not nominal: %d, failed: %d, deferred: %d.",
+                missiveFiles.length, elapsedMillis, throughput,
+                this.statusCount.get(ProcessingStatus.ACK), this.statusCount.get(ProcessingStatus.NACK),
+                this.statusCount.get(ProcessingStatus.NOT_NOMINAL), this.statusCount.get(ProcessingStatus.FAILED),
+                this.statusCount.get(ProcessingStatus.DEFERRED));
+
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), report);
+        System.out.println(report);
+
+        // Verification cache statistics
+        VerificationClient verificationClient = VerificationClient.getVerificationClient();
+        VerificationCache cache = verificationClient.getCache();
+        if (cache.isEnabled()) {
+            Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verification cache: " + cache.getHitCount() + " hit(s), "
+                    + cache.getMissCount() + " miss(es), " + cache.size() + " cached response(s).");
+        }
+
+        if (verificationClient.getCoalescedCount() > 0) {
+            Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verification client: " + verificationClient.getCoalescedCount()
+                    + " query(ies) answered by an identical query in flight.");
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of missives acknowledged concurrently given by the "batchThreads" configuration
+     *
+     * @return Number of batch threads
+     */
+    private static int getThreadCount() {
+
+        return Math.max(1, ConfigReader.getIntProperty(Smack.smackConfig, "batchThreads", 1));
+    }
+}
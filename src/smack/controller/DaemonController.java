@@ -0,0 +1,450 @@
+package smack.controller;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import smack.Smack;
+import smack.utilities.ConfigReader;
+import smack.verification.MissiveHeader;
+
+/**
+ * The DaemonController keeps the application running and acknowledges the missives dropped
+ * into an inbox directory as soon as they appear.
+ *
+ * The inbox is watched with a WatchService and every new XML file is handed to a pool of
+ * "daemonThreads" workers sharing an AcknowledgementProcessor. The acknowledgement is first written
+ * to a temporary file of the outbox and then renamed, so that the outbox only ever holds
+ * complete acknowledgements. The input file is then moved to the archive directory, or to
+ * the error directory when it could not be processed. The relay should drop the missives
+ * into the inbox with a rename as well, since files are picked up as soon as they are created.
+ * A missive deferred because its verification web service is unavailable is left in the inbox
+ * and submitted again after "verificationDeferDelay" milliseconds.
+ *
+ * @version 1.0
+ */
+public class DaemonController {
+
+    private static final String TEMPORARY_PREFIX = ".";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path inboxDirectory;
+    private final Path outboxDirectory;
+    private final Path archiveDirectory;
+    private final Path errorDirectory;
+    private final Set<Path> pendingFiles = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+    private final AtomicLong[] statusCount = new AtomicLong[ProcessingStatus.values().length];
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private AcknowledgementProcessor processor;
+    private ExecutorService executor;
+    private PriorityWorkQueue workQueue;
+    private ScheduledExecutorService deferScheduler;
+    private long deferDelay;
+    private volatile WatchService watchService;
+
+    /**
+     * DaemonController class constructor
+     *
+     * @param inboxDirectoryName Directory watched for nominal missives
+     * @param outboxDirectoryName Directory in which the acknowledgement missives are written
+     * @param archiveDirectoryName Directory to which the processed missives are moved
+     * @param errorDirectoryName Directory to which the missives that could not be processed are moved
+     */
+    public DaemonController(String inboxDirectoryName, String outboxDirectoryName, String archiveDirectoryName, String errorDirectoryName) {
+        this(inboxDirectoryName, outboxDirectoryName, archiveDirectoryName, errorDirectoryName, null);
+    }
+
+    /**
+     * DaemonController class constructor
+     *
+     * @param inboxDirectoryName Directory watched for nominal missives
+     * @param outboxDirectoryName Directory in which the acknowledgement missives are written
+     * @param archiveDirectoryName Directory to which the processed missives are moved
+     * @param errorDirectoryName Directory to which the missives that could not be processed are moved
+     * @param processor Processor acknowledging the missives, the default one when null
+     */
+    public DaemonController(String inboxDirectoryName, String outboxDirectoryName, String archiveDirectoryName, String errorDirectoryName, AcknowledgementProcessor processor) {
+
+        this.processor = processor;
+        this.inboxDirectory = Paths.get(inboxDirectoryName);
+        this.outboxDirectory = Paths.get(outboxDirectoryName);
+        this.archiveDirectory = Paths.get(archiveDirectoryName);
+        this.errorDirectory = Paths.get(errorDirectoryName);
+
+        for (int i = 0; i < this.statusCount.length; i++) {
+            this.statusCount[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Get the number of missives that ended with the parameterized status
+     *
+     * @param status Processing status
+     * @return Number of missives processed with the parameterized status
+     */
+    public long getStatusCount(ProcessingStatus status) {
+        return this.statusCount[status.ordinal()].get();
+    }
+
+    /**
+     * Watch the inbox and acknowledge its missives until the application is stopped
+     *
+     * @return Whether the daemon could be started
+     */
+    public Boolean load() {
+
+        try {
+            // Check if the inbox exists
+            if (!Files.isDirectory(this.inboxDirectory)) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Inbox directory \"" + this.inboxDirectory + "\" was not found.");
+                return false;
+            }
+
+            // Create the other directories if needed
+            Files.createDirectories(this.outboxDirectory);
+            Files.createDirectories(this.archiveDirectory);
+            Files.createDirectories(this.errorDirectory);
+
+            // Make sure that the acknowledgements and the moved missives are not picked up again
+            Path inbox = this.inboxDirectory.toRealPath();
+            if (inbox.equals(this.outboxDirectory.toRealPath()) || inbox.equals(this.archiveDirectory.toRealPath()) || inbox.equals(this.errorDirectory.toRealPath())) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Inbox directory must differ from the outbox, archive and error directories.");
+                return false;
+            }
+
+            // Processor shared by all the workers
+            if (this.processor == null) {
+                this.processor = AcknowledgementProcessor.getDefaultProcessor();
+            }
+
+            this.watchService = this.inboxDirectory.getFileSystem().newWatchService();
+            this.inboxDirectory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            return false;
+        }
+
+        // Deferred missives are submitted again by a background thread
+        this.deferDelay = getDeferDelay();
+        this.deferScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "smack-daemon-defer");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        // Missives are handed to the workers by priority when "priorityScheduling" is enabled
+        this.workQueue = PriorityWorkQueue.fromConfig(Smack.smackConfig, "daemon");
+        this.executor = this.workQueue != null ? PriorityWorkQueue.newFixedThreadPool(getThreadCount(), this.workQueue) : Executors.newFixedThreadPool(getThreadCount());
+
+        // Stop watching the inbox and finish the missives in progress when the application is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stop();
+            }
+        }, "smack-daemon-shutdown"));
+
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Watching the inbox directory \"" + this.inboxDirectory + "\".");
+
+        // Missives dropped before the daemon was started
+        this.scanInbox();
+
+        try {
+            while (true) {
+
+                WatchKey watchKey = this.watchService.take();
+
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+
+                        // Some events were lost, look at the whole inbox again
+                        this.scanInbox();
+                    } else {
+                        this.submit(this.inboxDirectory.resolve((Path) event.context()));
+                    }
+                }
+
+                if (!watchKey.reset()) {
+                    Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Inbox directory \"" + this.inboxDirectory + "\" is no longer accessible.");
+                    break;
+                }
+            }
+        } catch (ClosedWatchServiceException ex) {
+            // The daemon is being stopped
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Let the workers finish the missives in progress, the deferred missives stay in the inbox
+        this.deferScheduler.shutdownNow();
+        this.executor.shutdown();
+
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Aggregated report
+        String report = String.format(Locale.ENGLISH,
+                "Daemon stopped - ACK: %d, NACK: %d, not nominal: %d, failed: %d, deferred: %d.",
+                this.getStatusCount(ProcessingStatus.ACK), this.getStatusCount(ProcessingStatus.NACK),
+                this.getStatusCount(ProcessingStatus.NOT_NOMINAL), this.getStatusCount(ProcessingStatus.FAILED),
+                this.getStatusCount(ProcessingStatus.DEFERRED));
+
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), report);
+        System.out.println(report);
+
+        this.stopped.countDown();
+
+        return true;
+    }
+
+    /**
+     * Stop watching the inbox and wait for the missives in progress to be processed
+     */
+    public void stop() {
+
+        WatchService service = this.watchService;
+
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ex) {
+                Smack.logController.log(Level.WARNING, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            }
+
+            try {
+                this.stopped.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Submit every XML file currently in the inbox
+     */
+    private void scanInbox() {
+
+        try (DirectoryStream<Path> inboxFiles = Files.newDirectoryStream(this.inboxDirectory, "*.{xml,XML}")) {
+
+            for (Path inboxFile : inboxFiles) {
+                this.submit(inboxFile);
+            }
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Hand a file of the inbox to the workers unless it is already being processed
+     *
+     * @param missiveFile File of the inbox
+     */
+    private void submit(final Path missiveFile) {
+
+        String fileName = missiveFile.getFileName().toString();
+
+        // Skip the files that are not missives and the ones already submitted
+        if (!fileName.toLowerCase(Locale.ENGLISH).endsWith(".xml") || fileName.startsWith(TEMPORARY_PREFIX)
+                || !Files.isRegularFile(missiveFile) || !this.pendingFiles.add(missiveFile)) {
+            return;
+        }
+
+        // The priority queue has the header of the missive read by a worker before queuing the missive
+        MissiveTask task = new MissiveTask(missiveFile.toFile()) {
+            @Override
+            protected ProcessingStatus process(MissiveHeader header) {
+
+                ProcessingStatus status = null;
+
+                try {
+                    status = DaemonController.this.process(missiveFile, header);
+                } finally {
+                    pendingFiles.remove(missiveFile);
+                }
+
+                if (status == ProcessingStatus.DEFERRED) {
+                    defer(missiveFile);
+                }
+
+                return status;
+            }
+        };
+
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+
+            // The daemon is being stopped, the missive stays in the inbox
+            this.pendingFiles.remove(missiveFile);
+        }
+    }
+
+    /**
+     * Submit a deferred missive again after the "verificationDeferDelay"
+     *
+     * @param missiveFile File of the inbox
+     */
+    private void defer(final Path missiveFile) {
+
+        try {
+            this.deferScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submit(missiveFile);
+                }
+            }, this.deferDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // The daemon is being stopped, the missive stays in the inbox
+        }
+    }
+
+    /**
+     * Acknowledge a missive of the inbox and move it out of the inbox
+     *
+     * @param missiveFile File of the inbox
+     * @param header Header of the missive, null when it has not been read
+     * @return The outcome of the processing of the missive, null if the file is no longer in the inbox
+     */
+    private ProcessingStatus process(Path missiveFile, MissiveHeader header) {
+
+        // The file may have been processed by a previous event
+        if (!Files.isRegularFile(missiveFile)) {
+            return null;
+        }
+
+        Path fileName = missiveFile.getFileName();
+        Path temporaryFile = this.outboxDirectory.resolve(TEMPORARY_PREFIX + fileName + TEMPORARY_SUFFIX);
+        ProcessingStatus status;
+
+        try {
+            // Acknowledge the missive to a temporary file of the outbox
+            status = this.processor.process(missiveFile.toFile(), header, temporaryFile.toFile());
+
+            if (status == ProcessingStatus.ACK || status == ProcessingStatus.NACK) {
+
+                // Publish the complete acknowledgement
+                moveAtomically(temporaryFile, this.outboxDirectory.resolve(fileName));
+            } else {}
+
+            // Move the missive out of the inbox unless it is to be processed again
+            if (status != ProcessingStatus.DEFERRED) {
+                moveAtomically(missiveFile, uniqueTarget(status == ProcessingStatus.FAILED ? this.errorDirectory : this.archiveDirectory, fileName));
+            } else {}
+
+        } catch (IOException | RuntimeException ex) {
+
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + fileName + "\" could not be processed: " + ex);
+            status = ProcessingStatus.FAILED;
+
+            try {
+                if (Files.exists(missiveFile)) {
+                    moveAtomically(missiveFile, uniqueTarget(this.errorDirectory, fileName));
+                }
+            } catch (IOException moveEx) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), moveEx.getLocalizedMessage());
+            }
+        } finally {
+
+            try {
+                Files.deleteIfExists(temporaryFile);
+            } catch (IOException ex) {
+                Smack.logController.log(Level.WARNING, Smack.class.getSimpleName(), ex.getLocalizedMessage());
+            }
+        }
+
+        this.statusCount[status.ordinal()].incrementAndGet();
+
+        // Log the outcome of the file
+        Smack.logController.log(status == ProcessingStatus.FAILED ? Level.WARNING : Level.INFO, Smack.class.getSimpleName(),
+                "Missive \"" + fileName + "\" processed with status " + status + ".");
+
+        return status;
+    }
+
+    /**
+     * Get a path of the parameterized directory which does not overwrite an existing file
+     *
+     * @param directory Target directory
+     * @param fileName Name of the file to move
+     * @return Path of the file in the target directory
+     */
+    private static Path uniqueTarget(Path directory, Path fileName) {
+
+        Path target = directory.resolve(fileName);
+
+        // Keep the previous file of the same name
+        if (Files.exists(target)) {
+            target = directory.resolve(fileName + "." + System.currentTimeMillis());
+        }
+
+        return target;
+    }
+
+    /**
+     * Move a file with a rename, falling back to a plain move across file systems
+     *
+     * @param source File to move
+     * @param target New path of the file
+     * @throws IOException
+     */
+    private static void moveAtomically(Path source, Path target) throws IOException {
+
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Get the number of missives acknowledged concurrently given by the "daemonThreads" configuration
+     *
+     * @return Number of daemon threads
+     */
+    private static int getThreadCount() {
+
+        return Math.max(1, ConfigReader.getIntProperty(Smack.smackConfig, "daemonThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Get the time after which a deferred missive is submitted again given by the "verificationDeferDelay" configuration
+     *
+     * @return Delay in milliseconds
+     */
+    private static long getDeferDelay() {
+
+        return Math.max(0, ConfigReader.getLongProperty(Smack.smackConfig, "verificationDeferDelay", 60000L));
+    }
+}
@@ -0,0 +1,259 @@
+package smack.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import smack.Smack;
+import smack.utilities.ConfigReader;
+
+/**
+ * The HttpController acknowledges the missives posted to an embedded HTTP server
+ *
+ * A nominal missive posted to "/acknowledge" is acknowledged in memory and the acknowledgement
+ * missive is returned in the response body, with the status of the acknowledgement in the
+ * "X-Smack-Status" header. A missive which is not nominal is answered with 422 and a missive
+ * which could not be processed with 500. A missive deferred because its verification web service
+ * is unavailable is answered with 503 and a "Retry-After" of "verificationDeferDelay". "/health" answers 200 while the server is running so
+ * that it can be used by a load balancer.
+ *
+ * The requests are handled by "httpThreads" threads and are limited to "httpMaxRequestSize"
+ * bytes.
+ *
+ * @version 1.0
+ */
+public class HttpController {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int STOP_DELAY_SECONDS = 2;
+
+    private final int port;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private AcknowledgementProcessor processor;
+    private HttpServer server;
+    private ExecutorService executor;
+    private int maxRequestSize;
+
+    /**
+     * HttpController class constructor
+     *
+     * @param port Port on which the server listens
+     */
+    public HttpController(int port) {
+        this(port, null);
+    }
+
+    /**
+     * HttpController class constructor
+     *
+     * @param port Port on which the server listens
+     * @param processor Processor acknowledging the missives, the default one when null
+     */
+    public HttpController(int port, AcknowledgementProcessor processor) {
+
+        this.port = port;
+        this.processor = processor;
+    }
+
+    /**
+     * Start the server and handle requests until the application is stopped
+     *
+     * @return Whether the server could be started
+     */
+    public Boolean load() {
+
+        this.maxRequestSize = ConfigReader.getIntProperty(Smack.smackConfig, "httpMaxRequestSize", 1048576);
+
+        try {
+            // Processor shared by all the request threads
+            if (this.processor == null) {
+                this.processor = AcknowledgementProcessor.getDefaultProcessor();
+            }
+
+            this.server = HttpServer.create(new InetSocketAddress(this.port), ConfigReader.getIntProperty(Smack.smackConfig, "httpBacklog", 0));
+        } catch (IOException ex) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "HTTP server could not be started on port " + this.port + ": " + ex.getLocalizedMessage());
+            return false;
+        }
+
+        this.executor = Executors.newFixedThreadPool(Math.max(1, ConfigReader.getIntProperty(Smack.smackConfig, "httpThreads", Runtime.getRuntime().availableProcessors())));
+
+        this.server.setExecutor(this.executor);
+
+        this.server.createContext("/acknowledge", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acknowledge(exchange);
+            }
+        });
+
+        this.server.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, "text/plain", "OK".getBytes(UTF_8));
+            }
+        });
+
+        // Stop the server when the application is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stop();
+            }
+        }, "smack-http-shutdown"));
+
+        this.server.start();
+
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Listening for missives on port " + this.server.getAddress().getPort() + ".");
+
+        try {
+            this.stopped.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop accepting requests and wait briefly for the requests in progress
+     */
+    public void stop() {
+
+        if (this.server == null || this.stopped.getCount() == 0) {
+            return;
+        }
+
+        this.server.stop(STOP_DELAY_SECONDS);
+        this.executor.shutdown();
+
+        try {
+            this.executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Log info
+        Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "HTTP server stopped after " + this.requestCount.get() + " request(s).");
+
+        this.stopped.countDown();
+    }
+
+    /**
+     * Acknowledge the missive posted in the parameterized exchange
+     *
+     * @param exchange HTTP exchange
+     * @throws IOException
+     */
+    private void acknowledge(HttpExchange exchange) throws IOException {
+
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "text/plain", "Missives must be posted.".getBytes(UTF_8));
+                return;
+            }
+
+            byte[] missive = readBody(exchange.getRequestBody(), this.maxRequestSize);
+
+            if (missive == null) {
+                respond(exchange, 413, "text/plain", ("Missives are limited to " + this.maxRequestSize + " bytes.").getBytes(UTF_8));
+                return;
+            }
+
+            String missiveName = "HTTP request #" + this.requestCount.incrementAndGet() + " from " + exchange.getRemoteAddress();
+
+            // The acknowledgement is kept in memory so that the status code can still be chosen
+            ByteArrayOutputStream acknowledgement = new ByteArrayOutputStream(missive.length);
+
+            ProcessingStatus status;
+
+            // An unexpected failure is answered like any other failure, before the exchange is closed
+            try {
+                status = this.processor.process(missiveName, missive, acknowledgement);
+            } catch (RuntimeException ex) {
+                Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Missive \"" + missiveName + "\" could not be acknowledged: " + ex);
+                status = ProcessingStatus.FAILED;
+            }
+
+            exchange.getResponseHeaders().set("X-Smack-Status", status.toString());
+
+            switch (status) {
+                case ACK:
+                case NACK:
+                    respond(exchange, 200, "application/xml; charset=UTF-8", acknowledgement.toByteArray());
+                    break;
+                case NOT_NOMINAL:
+                    respond(exchange, 422, "text/plain", "The missive is not of type nominal.".getBytes(UTF_8));
+                    break;
+                case DEFERRED:
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(Math.max(1, ConfigReader.getIntProperty(Smack.smackConfig, "verificationDeferDelay", 60000) / 1000)));
+                    respond(exchange, 503, "text/plain", "The missive cannot be verified for now.".getBytes(UTF_8));
+                    break;
+                default:
+                    respond(exchange, 500, "text/plain", "The missive could not be acknowledged.".getBytes(UTF_8));
+                    break;
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Read the body of a request
+     *
+     * @param in Request body
+     * @param maxSize Maximum size of the body
+     * @return Body of the request or null if it is larger than the maximum size
+     * @throws IOException
+     */
+    private static byte[] readBody(InputStream in, int maxSize) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int count;
+
+        while ((count = in.read(buffer)) != -1) {
+
+            if (body.size() + count > maxSize) {
+                return null;
+            }
+
+            body.write(buffer, 0, count);
+        }
+
+        return body.toByteArray();
+    }
+
+    /**
+     * Send a complete response
+     *
+     * @param exchange HTTP exchange
+     * @param statusCode HTTP status code
+     * @param contentType Content type of the body
+     * @param body Body of the response
+     * @throws IOException
+     */
+    private static void respond(HttpExchange exchange, int statusCode, String contentType, byte[] body) throws IOException {
+
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(statusCode, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
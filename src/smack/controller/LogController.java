@@ -1,16 +1,29 @@
 package smack.controller;
 
 import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import smack.Smack;
+import smack.utilities.ConfigReader;
 import smack.utilities.LogFormatter;
+import smack.utilities.RingBuffer;
 import smack.utilities.Utilities;
 
 /**
  * LogController allows the application to log all error messages to a log in Syslog format 
  * 
+ * In asynchronous mode ("logAsync"), the callers only enqueue their records in a bounded
+ * ring buffer and a background thread writes them to the log file in batches. When the
+ * buffer is full, the "logOverflowPolicy" decides what happens to a record:
+ * BLOCK waits for free space, DROP_INFO discards the records below WARNING and SAMPLE
+ * keeps one record below WARNING out of "logSampleRate" once the buffer is three quarters
+ * full. Records of level WARNING and above are never discarded.
+ * 
  * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
  * @version 1.0
  * @see http://sepamail-smurf.googlecode.com
@@ -18,40 +31,91 @@ import smack.utilities.Utilities;
 public class LogController {
     
     private static final Logger LOGGER = Logger.getLogger(Smack.class.getName());
+    private static final int DRAIN_BATCH_SIZE = 256;
+    private static final long DRAIN_PARK_NANOS = 1000000L;
     private static LogController logController;
     
+    private volatile BatchFileHandler logFileHandler;
+    private volatile boolean fileHandlerOpened;
+    private volatile RingBuffer<LogRecord> buffer;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private int sampleRate = 10;
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private Thread drainThread;
+    private volatile boolean closed;
+    private final Object closedDrainLock = new Object();
+    
     /**
-     * LogController default constructor
+     * Behaviour of the asynchronous mode when the buffer of records is full
      */
-    private LogController() {
+    public enum OverflowPolicy {
+        BLOCK, DROP_INFO, SAMPLE
+    }
     
-        try {
-            // File Formatter
-            LogFormatter fileFormatter = new LogFormatter();
+    /**
+     * LogController default constructor, the application uses the single instance given by
+     * getLogController()
+     * 
+     * The log file is only opened with the first record, see getFileHandler().
+     */
+    LogController() {
+    }
+    
+    /**
+     * Get the handler of the log file, opening the file on first use
+     * 
+     * @return Handler of the log file or null if the file could not be opened
+     */
+    private BatchFileHandler getFileHandler() {
+        
+        if (this.fileHandlerOpened) {
+            return this.logFileHandler;
+        }
+        
+        synchronized (this) {
             
-            // Logger file handler
-            FileHandler logFileHandler = new FileHandler(Utilities.getCurrentWorkingDirectory() + 
-                    System.getProperty("file.separator") + Smack.LOG_FILE_NAME, true);
-
-            // File handler properties
-            logFileHandler.setFormatter(fileFormatter);
+            if (this.fileHandlerOpened) {
+                return this.logFileHandler;
+            }
+            
+            try {
+                // File Formatter
+                LogFormatter fileFormatter = new LogFormatter();
+                
+                // Logger file handler
+                BatchFileHandler fileHandler = new BatchFileHandler(Utilities.getCurrentWorkingDirectory() + 
+                        System.getProperty("file.separator") + Smack.LOG_FILE_NAME, true);
 
-            // Create logger
-            Logger logger = Logger.getLogger(Smack.class.getName());
+                // File handler properties
+                fileHandler.setFormatter(fileFormatter);
 
-            // Set the properties of the logger
-            logger.setLevel(Level.ALL);
-            logger.addHandler(logFileHandler);
-            
-        } catch (IOException ex) {
-        
-            System.out.println(ex.getMessage());
+                // Set the properties of the logger
+                LOGGER.setLevel(Level.ALL);
+                
+                // In asynchronous mode the records are written by the drain thread, see configure()
+                if (this.buffer == null) {
+                    LOGGER.addHandler(fileHandler);
+                } else {
+                    fileHandler.setAutoFlush(false);
+                }
+                
+                this.logFileHandler = fileHandler;
+                
+            } catch (IOException ex) {
             
-        } catch (SecurityException ex) {
+                System.out.println(ex.getMessage());
+                
+            } catch (SecurityException ex) {
 
-            // Show error message on screen since we do not have loggin mechanism in place yet
-            System.out.println(ex.getMessage());
+                // Show error message on screen since we do not have loggin mechanism in place yet
+                System.out.println(ex.getMessage());
+            }
+            
+            this.fileHandlerOpened = true;
         }
+        
+        return this.logFileHandler;
     }
     
     /**
@@ -76,10 +140,271 @@ public class LogController {
      * @param source Log message source class
      * @param message Message that needs to be written to the application log file
      */
-    public synchronized void log(Level level, String source, String message) {
+    public void log(Level level, String source, String message) {
+        
+        RingBuffer<LogRecord> recordBuffer = this.buffer;
+        
+        if (recordBuffer == null) {
+            
+            // Write message to the log file
+            this.getFileHandler();
+            LOGGER.logp(level, source, "", message);
+            return;
+        }
+        
+        // The record is created on the calling thread so that it keeps the time of the event
+        LogRecord record = newRecord(level, source, message);
+        
+        // The drain thread has stopped, write the record directly
+        if (this.closed) {
+            this.write(record);
+            return;
+        }
+        
+        boolean important = level.intValue() >= Level.WARNING.intValue();
+        
+        if (!important && this.overflowPolicy == OverflowPolicy.SAMPLE
+                && recordBuffer.size() >= recordBuffer.capacity() - (recordBuffer.capacity() >> 2)
+                && this.sampleCounter.getAndIncrement() % this.sampleRate != 0) {
+            
+            // The buffer is filling up, only keep a sample of the records below WARNING
+            this.droppedCount.incrementAndGet();
+            return;
+        }
         
-        // Write message to the log file
-        LOGGER.logp(level, source, "", message);
+        while (!recordBuffer.offer(record)) {
+            
+            if (!important && this.overflowPolicy != OverflowPolicy.BLOCK) {
+                this.droppedCount.incrementAndGet();
+                return;
+            }
+            
+            // The drain thread has stopped, free the space in its place
+            if (this.closed) {
+                this.drainClosed();
+                continue;
+            }
+            
+            // Wait for the drain thread to free some space
+            LockSupport.parkNanos(DRAIN_PARK_NANOS);
+        }
+        
+        // The log was closed while the record was added, the drain thread may have stopped before reading it
+        if (this.closed) {
+            this.drainClosed();
+        }
+    }
+    
+    /**
+     * Configure the logging mode from the application configuration
+     * 
+     * @param config Application configuration
+     */
+    public synchronized void configure(Properties config) {
+        
+        if (this.buffer != null || this.closed || !Boolean.parseBoolean(config.getProperty("logAsync", "false"))) {
+            return;
+        }
+        
+        try {
+            this.overflowPolicy = OverflowPolicy.valueOf(config.getProperty("logOverflowPolicy", "BLOCK").trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            this.log(Level.WARNING, LogController.class.getSimpleName(), "Unknown log overflow policy \"" + config.getProperty("logOverflowPolicy") + "\", using BLOCK.");
+        }
+        
+        this.sampleRate = Math.max(1, ConfigReader.getIntProperty(config, "logSampleRate", 10));
+        
+        // Records are written by the file handler only once per batch. The handler is detached
+        // from the logger so that it is not closed by the LogManager before the buffer is drained
+        // when the application is stopped.
+        if (this.logFileHandler != null) {
+            this.logFileHandler.setAutoFlush(false);
+            LOGGER.removeHandler(this.logFileHandler);
+        }
+        
+        this.buffer = new RingBuffer<>(Math.max(16, ConfigReader.getIntProperty(config, "logBufferSize", 8192)));
+        
+        this.drainThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "smack-log");
+        
+        // The log thread must not prevent the application from exiting
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+        
+        // Write the pending records when the application exits without closing the log
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        }, "smack-log-shutdown"));
+    }
+    
+    /**
+     * Write the records of the buffer to the log file until the log is closed
+     */
+    private void drain() {
+        
+        RingBuffer<LogRecord> recordBuffer = this.buffer;
+        
+        while (true) {
+            
+            // Read before polling: a record added before the log was closed is then always polled
+            boolean stopping = this.closed;
+            int written = 0;
+            LogRecord record;
+            
+            while (written < DRAIN_BATCH_SIZE && (record = recordBuffer.poll()) != null) {
+                this.write(record);
+                written++;
+            }
+            
+            if (this.writeDroppedCount()) {
+                written++;
+            }
+            
+            if (written > 0) {
+                
+                // Write the whole batch to the log file at once
+                if (this.logFileHandler != null) {
+                    this.logFileHandler.flushBatch();
+                }
+                
+            } else if (stopping) {
+                return;
+            } else {
+                LockSupport.parkNanos(DRAIN_PARK_NANOS);
+            }
+        }
+    }
+    
+    /**
+     * Write the number of records dropped since the last call, if any
+     * 
+     * @return Whether a record was written
+     */
+    private boolean writeDroppedCount() {
+        
+        long dropped = this.droppedCount.getAndSet(0);
+        
+        if (dropped > 0) {
+            this.write(newRecord(Level.WARNING, LogController.class.getSimpleName(), dropped + " log record(s) dropped since the log buffer was full."));
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Create a log record of the application logger
+     * 
+     * @param level Log level
+     * @param source Log message source class
+     * @param message Log message
+     * @return Log record
+     */
+    private static LogRecord newRecord(Level level, String source, String message) {
+        
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(LOGGER.getName());
+        record.setSourceClassName(source);
+        record.setSourceMethodName("");
+        
+        return record;
+    }
+    
+    /**
+     * Write a record to the log file and to the other handlers of the logger
+     * 
+     * @param record Log record
+     */
+    private void write(LogRecord record) {
+        
+        BatchFileHandler fileHandler = this.getFileHandler();
+        
+        if (fileHandler != null) {
+            fileHandler.publish(record);
+        }
+        
+        LOGGER.log(record);
+    }
+    
+    /**
+     * Wait until the records logged so far have been written to the log file
+     */
+    public void flush() {
+        
+        RingBuffer<LogRecord> recordBuffer = this.buffer;
+        
+        if (recordBuffer != null) {
+            
+            long added = recordBuffer.getAddedCount();
+            
+            while (recordBuffer.getRemovedCount() < added && this.drainThread.isAlive()) {
+                LockSupport.parkNanos(DRAIN_PARK_NANOS);
+            }
+        }
+        
+        if (this.logFileHandler != null) {
+            this.logFileHandler.flushBatch();
+        }
+    }
+    
+    /**
+     * Write the pending records and stop the asynchronous mode
+     * 
+     * The records logged afterwards are written directly to the log file.
+     */
+    public void close() {
+        
+        synchronized (this) {
+            
+            if (this.buffer == null || this.closed) {
+                return;
+            }
+            
+            this.closed = true;
+        }
+        
+        // The records added while the drain thread was stopping are written here
+        this.drainClosed();
+        
+        if (this.logFileHandler != null) {
+            this.logFileHandler.setAutoFlush(true);
+            this.logFileHandler.flushBatch();
+        }
+    }
+    
+    /**
+     * Write the records left in the buffer once the log is closed
+     * 
+     * The drain thread is the only consumer of the buffer until it stops, the callers then
+     * take its place one at a time.
+     */
+    private void drainClosed() {
+        
+        while (this.drainThread.isAlive()) {
+            LockSupport.parkNanos(DRAIN_PARK_NANOS);
+        }
+        
+        synchronized (this.closedDrainLock) {
+            
+            LogRecord record;
+            boolean written = this.writeDroppedCount();
+            
+            while ((record = this.buffer.poll()) != null) {
+                this.write(record);
+                written = true;
+            }
+            
+            if (written && this.logFileHandler != null) {
+                this.logFileHandler.flushBatch();
+            }
+        }
     }
     
     /**
@@ -92,4 +417,34 @@ public class LogController {
     public Object clone() throws CloneNotSupportedException {
         throw new CloneNotSupportedException();
     }
+    
+    /**
+     * File handler which can leave the flushing of its records to the caller
+     */
+    private static final class BatchFileHandler extends FileHandler {
+        
+        private volatile boolean autoFlush = true;
+        
+        private BatchFileHandler(String pattern, boolean append) throws IOException {
+            super(pattern, append);
+        }
+        
+        private void setAutoFlush(boolean autoFlush) {
+            this.autoFlush = autoFlush;
+        }
+        
+        private void flushBatch() {
+            super.flush();
+        }
+        
+        /**
+         * Flush the records only when the handler flushes after each record
+         */
+        @Override
+        public void flush() {
+            if (this.autoFlush) {
+                super.flush();
+            }
+        }
+    }
 }
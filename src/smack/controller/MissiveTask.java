@@ -0,0 +1,84 @@
+package smack.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.xml.stream.XMLStreamException;
+import smack.verification.MissiveHeader;
+import smack.verification.MissiveHeaderReader;
+import smack.verification.MissivePriority;
+
+/**
+ * The MissiveTask class is the processing of a missive file handed to the workers
+ *
+ * Handed to a PriorityWorkQueue, the task first has a worker read the header of the missive,
+ * ahead of the missives already waiting, and is then queued with the priority (MsvPri) of the
+ * missive. The header is handed to the processing so that it is only parsed once. Handed to
+ * any other executor, the task is processed at once without a header.
+ *
+ * @version 1.0
+ */
+public abstract class MissiveTask implements Runnable {
+
+    private final File missiveFile;
+    private final FutureTask<ProcessingStatus> result;
+    private MissiveHeader header;
+
+    /**
+     * MissiveTask class constructor
+     *
+     * @param missiveFile Missive file to process
+     */
+    protected MissiveTask(File missiveFile) {
+
+        this.missiveFile = missiveFile;
+        this.result = new FutureTask<>(new Callable<ProcessingStatus>() {
+            @Override
+            public ProcessingStatus call() {
+                return process(header);
+            }
+        });
+    }
+
+    /**
+     * Get the outcome of the processing
+     *
+     * @return Outcome of the processing, available once the task has run
+     */
+    public Future<ProcessingStatus> getResult() {
+        return this.result;
+    }
+
+    @Override
+    public void run() {
+        this.result.run();
+    }
+
+    /**
+     * Read the header of the missive, leaving it null when the missive cannot be read
+     *
+     * @return Priority of the missive, NORMAL when the missive cannot be read
+     */
+    MissivePriority readHeader() {
+
+        try {
+            this.header = MissiveHeaderReader.read(this.missiveFile.getPath());
+        } catch (IOException | XMLStreamException ex) {
+
+            // The processing reads the missive again and reports the failure
+            return MissivePriority.NORMAL;
+        }
+
+        return MissivePriority.of(this.header.getPriority());
+    }
+
+    /**
+     * Process the missive
+     *
+     * @param header Header of the missive, null when it has not been read
+     * @return The outcome of the processing of the missive
+     */
+    protected abstract ProcessingStatus process(MissiveHeader header);
+}
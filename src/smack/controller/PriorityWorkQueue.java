@@ -0,0 +1,469 @@
+package smack.controller;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import smack.metrics.Metrics;
+import smack.metrics.StageMetrics;
+import smack.utilities.ConfigReader;
+import smack.utilities.NanoClock;
+import smack.verification.MissivePriority;
+
+/**
+ * The PriorityWorkQueue orders the missives waiting for a worker by their priority (MsvPri)
+ *
+ * The queue holds one FIFO queue per priority and hands out the head of the highest priority
+ * queue. A MissiveTask is first handed out, ahead of every priority, to have its header read by
+ * a worker, and is then queued with the priority of its missive. To protect the lower priorities from starvation, a waiting missive below HIGH is
+ * promoted by one priority every "priorityAgingInterval" milliseconds, up to HIGH. Since no
+ * missive is ever promoted to HIGHEST, a HIGHEST missive only waits for the first free worker
+ * however large the backlog of other missives is.
+ *
+ * The time spent in the queue by the missives of each priority is recorded in the
+ * "wait.PRIORITY" stages of the application metrics.
+ *
+ * @version 1.0
+ */
+public class PriorityWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable>, PriorityWorkQueueMXBean {
+
+    private static final MissivePriority[] PRIORITIES = MissivePriority.values();
+    private static final int HIGHEST_PROMOTION = MissivePriority.HIGH.ordinal();
+
+    private final ArrayDeque<HeaderTask> headerTasks = new ArrayDeque<>();
+    private final List<ArrayDeque<Task>> queues = new ArrayList<>(PRIORITIES.length);
+    private final StageMetrics[] waitMetrics = new StageMetrics[PRIORITIES.length];
+    private final long agingIntervalNanos;
+    private final NanoClock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private int count;
+
+    /**
+     * PriorityWorkQueue class constructor
+     *
+     * @param agingIntervalMillis Waiting time after which a missive is promoted by one priority, 0 to disable the promotion
+     */
+    public PriorityWorkQueue(long agingIntervalMillis) {
+        this(agingIntervalMillis, NanoClock.SYSTEM);
+    }
+
+    /**
+     * PriorityWorkQueue class constructor
+     *
+     * The waiting times of the metrics are always measured with System.nanoTime(), so a clock
+     * other than NanoClock.SYSTEM only suits the tests of the promotion.
+     *
+     * @param agingIntervalMillis Waiting time after which a missive is promoted by one priority, 0 to disable the promotion
+     * @param clock Clock of the waiting times
+     */
+    PriorityWorkQueue(long agingIntervalMillis, NanoClock clock) {
+
+        this.agingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(agingIntervalMillis);
+        this.clock = clock;
+
+        for (MissivePriority priority : PRIORITIES) {
+            this.queues.add(new ArrayDeque<Task>());
+            this.waitMetrics[priority.ordinal()] = Metrics.getStage("wait." + priority);
+        }
+    }
+
+    /**
+     * Create the queue of the configuration
+     *
+     * The queue is registered as the MBean "smack:type=Queue,name=queueName".
+     *
+     * @param config Application configuration
+     * @param name Name of the queue
+     * @return Queue or null when "priorityScheduling" is not enabled
+     */
+    public static PriorityWorkQueue fromConfig(Properties config, String name) {
+
+        if (!Boolean.parseBoolean(config.getProperty("priorityScheduling", "false").trim())) {
+            return null;
+        }
+
+        PriorityWorkQueue queue = new PriorityWorkQueue(ConfigReader.getLongProperty(config, "priorityAgingInterval", 5000));
+        Metrics.register(queue, "Queue", name);
+
+        return queue;
+    }
+
+    /**
+     * Wrap a task with the priority of its missive
+     *
+     * The tasks which are neither wrapped nor a MissiveTask are handled as NORMAL.
+     *
+     * @param priority Priority of the missive
+     * @param runnable Processing of the missive
+     * @return Task to hand to an executor using a PriorityWorkQueue
+     */
+    public static Runnable task(MissivePriority priority, Runnable runnable) {
+        return new Task(priority, runnable);
+    }
+
+    /**
+     * Create a fixed thread pool taking its tasks from a priority queue
+     *
+     * @param threadCount Number of threads of the pool
+     * @param queue Queue of the pool
+     * @return Executor service
+     */
+    public static ExecutorService newFixedThreadPool(int threadCount, PriorityWorkQueue queue) {
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, queue);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        this.lock.lock();
+
+        try {
+            if (runnable instanceof MissiveTask) {
+                this.headerTasks.addLast(new HeaderTask((MissiveTask) runnable));
+            } else {
+                Task task = runnable instanceof Task ? (Task) runnable : new Task(MissivePriority.NORMAL, runnable);
+                task.enqueueTime = this.clock.nanoTime();
+                this.queues.get(task.priority.ordinal()).addLast(task);
+            }
+
+            this.count++;
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void put(Runnable runnable) {
+        this.offer(runnable);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+        return this.offer(runnable);
+    }
+
+    @Override
+    public Runnable poll() {
+
+        this.lock.lock();
+
+        try {
+            return this.count > 0 ? this.dequeue() : null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.count == 0) {
+                this.notEmpty.await();
+            }
+
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        long nanos = unit.toNanos(timeout);
+
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.count == 0) {
+
+                if (nanos <= 0) {
+                    return null;
+                }
+
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+
+        this.lock.lock();
+
+        try {
+            if (!this.headerTasks.isEmpty()) {
+                return this.headerTasks.peekFirst();
+            }
+
+            int index = this.select(this.clock.nanoTime());
+
+            return index >= 0 ? this.queues.get(index).peekFirst() : null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+
+        this.lock.lock();
+
+        try {
+            if (this.headerTasks.remove(o)) {
+                this.count--;
+                return true;
+            }
+
+            for (ArrayDeque<Task> queue : this.queues) {
+                if (queue.remove(o)) {
+                    this.count--;
+                    return true;
+                }
+            }
+
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+
+        this.lock.lock();
+
+        try {
+            return this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return this.drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+
+        this.lock.lock();
+
+        try {
+            int drained = 0;
+
+            while (drained < maxElements && this.count > 0) {
+                c.add(this.dequeue());
+                drained++;
+            }
+
+            return drained;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Get an iterator over a snapshot of the waiting tasks, highest priority first
+     *
+     * @return Iterator which does not support removal
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+
+        this.lock.lock();
+
+        try {
+            List<Runnable> tasks = new ArrayList<Runnable>(this.headerTasks);
+
+            for (ArrayDeque<Task> queue : this.queues) {
+                tasks.addAll(queue);
+            }
+
+            return Collections.unmodifiableList(tasks).iterator();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return this.size();
+    }
+
+    @Override
+    public Map<String, Integer> getDepths() {
+
+        this.lock.lock();
+
+        try {
+            Map<String, Integer> depths = new LinkedHashMap<>();
+
+            for (MissivePriority priority : PRIORITIES) {
+                depths.put(priority.toString(), this.queues.get(priority.ordinal()).size());
+            }
+
+            return depths;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public long getAgingIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.agingIntervalNanos);
+    }
+
+    /**
+     * Remove the next task, the lock being held and the queue not being empty
+     *
+     * @return Next task
+     */
+    private Runnable dequeue() {
+
+        HeaderTask headerTask = this.headerTasks.pollFirst();
+
+        if (headerTask != null) {
+            this.count--;
+            return headerTask;
+        }
+
+        int index = this.select(this.clock.nanoTime());
+        Task task = this.queues.get(index).pollFirst();
+
+        this.count--;
+        this.waitMetrics[index].record(task.enqueueTime);
+
+        return task;
+    }
+
+    /**
+     * Select the queue of the next task, the lock being held
+     *
+     * The heads of the queues are compared on their promoted priority and, for equal
+     * priorities, on the time they have been waiting.
+     *
+     * @param now Current time
+     * @return Index of the queue or -1 if the queue is empty
+     */
+    private int select(long now) {
+
+        int selected = -1;
+        int selectedLevel = Integer.MAX_VALUE;
+        long selectedTime = 0;
+
+        for (int i = 0; i < PRIORITIES.length; i++) {
+
+            Task head = this.queues.get(i).peekFirst();
+
+            if (head == null) {
+                continue;
+            }
+
+            int level = this.promotedLevel(i, now - head.enqueueTime);
+
+            if (level < selectedLevel || (level == selectedLevel && head.enqueueTime - selectedTime < 0)) {
+                selected = i;
+                selectedLevel = level;
+                selectedTime = head.enqueueTime;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Get the priority level of a task once promoted for its waiting time
+     *
+     * @param level Priority level of the task, 0 being the highest
+     * @param waitNanos Time the task has been waiting
+     * @return Promoted priority level
+     */
+    private int promotedLevel(int level, long waitNanos) {
+
+        if (level <= HIGHEST_PROMOTION || this.agingIntervalNanos <= 0) {
+            return level;
+        }
+
+        long promotions = waitNanos / this.agingIntervalNanos;
+
+        return (int) Math.max(HIGHEST_PROMOTION, level - promotions);
+    }
+
+    /**
+     * Reading of the header of a missive, queuing the missive with its priority
+     */
+    private final class HeaderTask implements Runnable {
+
+        private final MissiveTask missiveTask;
+
+        private HeaderTask(MissiveTask missiveTask) {
+            this.missiveTask = missiveTask;
+        }
+
+        @Override
+        public void run() {
+
+            // Queued directly since the executor may already be shut down, its workers drain the queue
+            offer(new Task(this.missiveTask.readHeader(), this.missiveTask));
+        }
+    }
+
+    /**
+     * Processing of a missive with the priority of the missive
+     */
+    private static final class Task implements Runnable {
+
+        private final MissivePriority priority;
+        private final Runnable runnable;
+        private long enqueueTime;
+
+        private Task(MissivePriority priority, Runnable runnable) {
+
+            this.priority = priority;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            this.runnable.run();
+        }
+    }
+}
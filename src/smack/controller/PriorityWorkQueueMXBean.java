@@ -0,0 +1,17 @@
+package smack.controller;
+
+import java.util.Map;
+
+/**
+ * Management interface of a priority work queue
+ *
+ * @version 1.0
+ */
+public interface PriorityWorkQueueMXBean {
+
+    int getSize();
+
+    Map<String, Integer> getDepths();
+
+    long getAgingIntervalMillis();
+}
@@ -0,0 +1,34 @@
+package smack.controller;
+
+/**
+ * The ProcessingStatus enumeration defines the outcome of the processing of a single missive
+ * 
+ * @version 1.0
+ */
+public enum ProcessingStatus {
+    
+    /**
+     * The missive was valid and a positive acknowledgement was written
+     */
+    ACK,
+    
+    /**
+     * The missive was not valid and a negative acknowledgement was written
+     */
+    NACK,
+    
+    /**
+     * The missive is not of type nominal and was not acknowledged
+     */
+    NOT_NOMINAL,
+    
+    /**
+     * The missive could not be read, verified, transformed or written
+     */
+    FAILED,
+    
+    /**
+     * The missive could not be verified for now and should be processed again later
+     */
+    DEFERRED
+}
@@ -0,0 +1,159 @@
+package smack.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class records latencies in microseconds in log-linear buckets
+ *
+ * Like HdrHistogram, every power of two is split into 128 linear sub-buckets so that any
+ * recorded value is known within 1% whatever its magnitude, with a fixed memory footprint
+ * of about 26 KB for latencies up to 71 minutes. Recording is lock-free and only touches
+ * one counter of the bucket array, so it can be done on every missive.
+ *
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+    private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+    private static final long HIGHEST_TRACKABLE_VALUE = (1L << 32) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(countsIndex(HIGHEST_TRACKABLE_VALUE) + 1);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Record a latency
+     *
+     * @param micros Latency in microseconds, clamped to the trackable range
+     */
+    public void record(long micros) {
+
+        long value = Math.max(0, Math.min(micros, HIGHEST_TRACKABLE_VALUE));
+
+        this.counts.incrementAndGet(countsIndex(value));
+        this.totalCount.incrementAndGet();
+        this.totalValue.addAndGet(value);
+
+        long max = this.maxValue.get();
+        while (value > max && !this.maxValue.compareAndSet(max, value)) {
+            max = this.maxValue.get();
+        }
+    }
+
+    /**
+     * Get the number of recorded latencies
+     *
+     * @return Number of recorded latencies
+     */
+    public long getCount() {
+        return this.totalCount.get();
+    }
+
+    /**
+     * Get the mean of the recorded latencies
+     *
+     * @return Mean latency in microseconds
+     */
+    public double getMean() {
+
+        long count = this.totalCount.get();
+
+        return count > 0 ? (double) this.totalValue.get() / count : 0;
+    }
+
+    /**
+     * Get the highest recorded latency
+     *
+     * @return Highest latency in microseconds
+     */
+    public long getMax() {
+        return this.maxValue.get();
+    }
+
+    /**
+     * Get the latency below which the parameterized percentage of the latencies fall
+     *
+     * The value is read while latencies may still be recorded, so it is approximate when the
+     * histogram is being updated.
+     *
+     * @param percentile Percentage between 0 and 100
+     * @return Latency in microseconds, the highest value of its sub-bucket
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        long count = 0;
+        for (int i = 0; i < this.counts.length(); i++) {
+            count += this.counts.get(i);
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long threshold = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long cumulated = 0;
+
+        for (int i = 0; i < this.counts.length(); i++) {
+
+            cumulated += this.counts.get(i);
+
+            if (cumulated >= threshold) {
+                return Math.min(highestEquivalentValue(i), this.maxValue.get());
+            }
+        }
+
+        return this.maxValue.get();
+    }
+
+    /**
+     * Clear the recorded latencies
+     */
+    public void reset() {
+
+        for (int i = 0; i < this.counts.length(); i++) {
+            this.counts.set(i, 0);
+        }
+
+        this.totalCount.set(0);
+        this.totalValue.set(0);
+        this.maxValue.set(0);
+    }
+
+    /**
+     * Get the index of the counter of a value
+     *
+     * @param value Value within the trackable range
+     * @return Index in the counts array
+     */
+    private static int countsIndex(long value) {
+
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    /**
+     * Get the highest value counted by a counter
+     *
+     * @param index Index in the counts array
+     * @return Highest value of the sub-bucket
+     */
+    private static long highestEquivalentValue(int index) {
+
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        long subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+
+        return ((subBucketIndex + 1) << bucketIndex) - 1;
+    }
+}
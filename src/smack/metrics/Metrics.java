@@ -0,0 +1,225 @@
+package smack.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import smack.Smack;
+import smack.utilities.ConfigReader;
+
+/**
+ * The Metrics class holds the metrics of the application and registers them as MBeans
+ *
+ * The stages are registered under "smack:type=Stage,name=stageName" and the outcomes under
+ * "smack:type=Outcomes" in the platform MBean server, next to the other MBeans of the
+ * application. The MBeans are only registered once exportMBeans() has been called, by the
+ * modes of the application which run long enough to be monitored: starting the platform MBean
+ * server would take longer than acknowledging a single missive. When "metricsLogInterval" is
+ * set, a summary of the metrics is also written to the log every "metricsLogInterval" seconds.
+ *
+ * @version 1.0
+ */
+public final class Metrics {
+
+    private static final String DOMAIN = "smack";
+    private static final ConcurrentMap<String, StageMetrics> STAGES = new ConcurrentSkipListMap<>();
+    private static final OutcomeMetrics OUTCOMES = new OutcomeMetrics();
+    private static final Map<String, Object> PENDING_MBEANS = new LinkedHashMap<>();
+    private static ScheduledExecutorService scheduler;
+    private static boolean mbeansExported;
+
+    static {
+        register(OUTCOMES, DOMAIN + ":type=Outcomes");
+    }
+
+    /**
+     * Metrics class constructor
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Get the metrics of a stage, created on first use
+     *
+     * @param name Name of the stage
+     * @return Metrics of the stage
+     */
+    public static StageMetrics getStage(String name) {
+
+        StageMetrics stage = STAGES.get(name);
+
+        if (stage == null) {
+
+            StageMetrics newStage = new StageMetrics(name);
+            stage = STAGES.putIfAbsent(name, newStage);
+
+            if (stage == null) {
+                stage = newStage;
+                register(stage, "Stage", name);
+            }
+        }
+
+        return stage;
+    }
+
+    /**
+     * Get the outcomes of the acknowledgements
+     *
+     * @return Outcome metrics
+     */
+    public static OutcomeMetrics getOutcomes() {
+        return OUTCOMES;
+    }
+
+    /**
+     * Start the periodic summary of the configuration
+     *
+     * @param config Application configuration
+     */
+    public static synchronized void configure(Properties config) {
+
+        long interval = ConfigReader.getLongProperty(config, "metricsLogInterval", 0);
+
+        if (interval <= 0 || scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                // The summary must not prevent the application from exiting
+                Thread thread = new Thread(runnable, "smack-metrics");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                logSummary();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Register the MBeans of the application in the platform MBean server
+     *
+     * The MBeans created before are registered at once, the ones created later as soon as
+     * they are created.
+     */
+    public static synchronized void exportMBeans() {
+
+        if (mbeansExported) {
+            return;
+        }
+
+        mbeansExported = true;
+
+        for (Map.Entry<String, Object> mbean : PENDING_MBEANS.entrySet()) {
+            registerMBean(mbean.getValue(), mbean.getKey());
+        }
+
+        PENDING_MBEANS.clear();
+    }
+
+    /**
+     * Write a summary of the metrics to the log if the periodic summary is enabled
+     */
+    public static synchronized void close() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            logSummary();
+        }
+    }
+
+    /**
+     * Write a summary of the metrics to the log
+     */
+    public static void logSummary() {
+        Smack.logController.log(Level.INFO, Metrics.class.getSimpleName(), getSummary());
+    }
+
+    /**
+     * Get a one line summary of the outcomes and of the stages which have been executed
+     *
+     * @return Summary of the metrics
+     */
+    public static String getSummary() {
+
+        StringBuilder summary = new StringBuilder(512);
+        summary.append("Metrics - ").append(OUTCOMES);
+
+        for (Map.Entry<String, StageMetrics> stage : STAGES.entrySet()) {
+            if (stage.getValue().getCount() > 0) {
+                summary.append(" | ").append(stage.getValue());
+            }
+        }
+
+        return summary.toString();
+    }
+
+    /**
+     * Register an MBean of the application in the platform MBean server
+     *
+     * @param mbean MBean to register
+     * @param type Type of the MBean
+     * @param name Name of the MBean within its type
+     */
+    public static void register(Object mbean, String type, String name) {
+        register(mbean, DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Register an MBean in the platform MBean server, or keep it until the MBeans are exported
+     *
+     * @param mbean MBean to register
+     * @param name Object name of the MBean
+     */
+    private static synchronized void register(Object mbean, String name) {
+
+        if (mbeansExported) {
+            registerMBean(mbean, name);
+        } else if (!PENDING_MBEANS.containsKey(name)) {
+            PENDING_MBEANS.put(name, mbean);
+        }
+    }
+
+    /**
+     * Register an MBean in the platform MBean server
+     *
+     * The metrics are still recorded when the MBean cannot be registered.
+     *
+     * @param mbean MBean to register
+     * @param name Object name of the MBean
+     */
+    private static void registerMBean(Object mbean, String name) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | SecurityException ex) {
+            if (Smack.logController != null) {
+                Smack.logController.log(Level.WARNING, Metrics.class.getSimpleName(), "MBean \"" + name + "\" could not be registered: " + ex.getLocalizedMessage());
+            }
+        }
+    }
+}
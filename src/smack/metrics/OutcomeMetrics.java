@@ -0,0 +1,162 @@
+package smack.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import smack.controller.ProcessingStatus;
+
+/**
+ * The OutcomeMetrics class counts the acknowledgements by status, return code and routing warning
+ *
+ * @version 1.0
+ */
+public class OutcomeMetrics implements OutcomeMetricsMXBean {
+
+    private final Map<ProcessingStatus, AtomicLong> statusCounts = new EnumMap<>(ProcessingStatus.class);
+    private final ConcurrentMap<String, AtomicLong> returnCodeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> routingWarningCounts = new ConcurrentHashMap<>();
+
+    /**
+     * OutcomeMetrics class constructor
+     */
+    OutcomeMetrics() {
+
+        for (ProcessingStatus status : ProcessingStatus.values()) {
+            this.statusCounts.put(status, new AtomicLong());
+        }
+    }
+
+    /**
+     * Count the outcome of a missive
+     *
+     * @param status Processing status of the missive
+     */
+    public void record(ProcessingStatus status) {
+        this.statusCounts.get(status).incrementAndGet();
+    }
+
+    /**
+     * Count the return code and routing warning of a verified missive
+     *
+     * @param returnCode Return code of the verification, possibly null
+     * @param routingWarning Code of the routing warning of the verification, possibly null
+     */
+    public void record(String returnCode, String routingWarning) {
+
+        if (returnCode != null) {
+            increment(this.returnCodeCounts, returnCode);
+        }
+
+        if (routingWarning != null) {
+            increment(this.routingWarningCounts, routingWarning);
+        }
+    }
+
+    /**
+     * Get the number of missives processed with the parameterized status
+     *
+     * @param status Processing status
+     * @return Number of missives
+     */
+    public long getCount(ProcessingStatus status) {
+        return this.statusCounts.get(status).get();
+    }
+
+    @Override
+    public long getAckCount() {
+        return this.getCount(ProcessingStatus.ACK);
+    }
+
+    @Override
+    public long getNackCount() {
+        return this.getCount(ProcessingStatus.NACK);
+    }
+
+    @Override
+    public long getNotNominalCount() {
+        return this.getCount(ProcessingStatus.NOT_NOMINAL);
+    }
+
+    @Override
+    public long getFailedCount() {
+        return this.getCount(ProcessingStatus.FAILED);
+    }
+
+    @Override
+    public long getDeferredCount() {
+        return this.getCount(ProcessingStatus.DEFERRED);
+    }
+
+    @Override
+    public Map<String, Long> getReturnCodeCounts() {
+        return snapshot(this.returnCodeCounts);
+    }
+
+    @Override
+    public Map<String, Long> getRoutingWarningCounts() {
+        return snapshot(this.routingWarningCounts);
+    }
+
+    @Override
+    public void reset() {
+
+        for (AtomicLong count : this.statusCounts.values()) {
+            count.set(0);
+        }
+
+        this.returnCodeCounts.clear();
+        this.routingWarningCounts.clear();
+    }
+
+    /**
+     * Get a one line summary of the outcomes
+     *
+     * @return Summary of the outcomes
+     */
+    @Override
+    public String toString() {
+        return "ACK: " + this.getAckCount() + ", NACK: " + this.getNackCount() + ", not nominal: " + this.getNotNominalCount()
+                + ", failed: " + this.getFailedCount() + ", deferred: " + this.getDeferredCount() + ", return codes: " + this.getReturnCodeCounts() + ", routing warnings: " + this.getRoutingWarningCounts();
+    }
+
+    /**
+     * Increment the counter of a key
+     *
+     * @param counts Counters by key
+     * @param key Key to count
+     */
+    private static void increment(ConcurrentMap<String, AtomicLong> counts, String key) {
+
+        AtomicLong count = counts.get(key);
+
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = counts.putIfAbsent(key, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+
+        count.incrementAndGet();
+    }
+
+    /**
+     * Copy counters sorted by key
+     *
+     * @param counts Counters by key
+     * @return Values of the counters
+     */
+    private static Map<String, Long> snapshot(ConcurrentMap<String, AtomicLong> counts) {
+
+        Map<String, Long> values = new TreeMap<>();
+
+        for (Map.Entry<String, AtomicLong> count : counts.entrySet()) {
+            values.put(count.getKey(), count.getValue().get());
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,27 @@
+package smack.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the outcomes of the acknowledgements
+ *
+ * @version 1.0
+ */
+public interface OutcomeMetricsMXBean {
+
+    long getAckCount();
+
+    long getNackCount();
+
+    long getNotNominalCount();
+
+    long getFailedCount();
+
+    long getDeferredCount();
+
+    Map<String, Long> getReturnCodeCounts();
+
+    Map<String, Long> getRoutingWarningCounts();
+
+    void reset();
+}
@@ -0,0 +1,114 @@
+package smack.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StageMetrics class counts the executions of a processing stage and records their latency
+ *
+ * A stage is timed from a start time taken with System.nanoTime(). Since the recording methods
+ * return the end time, consecutive stages can be chained without reading the clock twice.
+ *
+ * @version 1.0
+ */
+public class StageMetrics implements StageMetricsMXBean {
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /**
+     * StageMetrics class constructor
+     *
+     * @param name Name of the stage
+     */
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record a successful execution of the stage
+     *
+     * @param startNanos Time at which the stage started
+     * @return Time at which the stage ended
+     */
+    public long record(long startNanos) {
+
+        long endNanos = System.nanoTime();
+
+        this.histogram.record((endNanos - startNanos) / 1000L);
+
+        return endNanos;
+    }
+
+    /**
+     * Record a failed execution of the stage
+     *
+     * @param startNanos Time at which the stage started
+     * @return Time at which the stage ended
+     */
+    public long recordError(long startNanos) {
+
+        this.errorCount.incrementAndGet();
+
+        return this.record(startNanos);
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long getCount() {
+        return this.histogram.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return this.errorCount.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return this.histogram.getMean();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return this.histogram.getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return this.histogram.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getP999Micros() {
+        return this.histogram.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return this.histogram.getMax();
+    }
+
+    @Override
+    public void reset() {
+
+        this.histogram.reset();
+        this.errorCount.set(0);
+    }
+
+    /**
+     * Get a one line summary of the stage
+     *
+     * @return Summary of the stage
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "%s n=%d err=%d p50=%dus p99=%dus p999=%dus max=%dus",
+                this.name, this.getCount(), this.getErrorCount(), this.getP50Micros(), this.getP99Micros(), this.getP999Micros(), this.getMaxMicros());
+    }
+}
@@ -0,0 +1,29 @@
+package smack.metrics;
+
+/**
+ * Management interface of the metrics of a processing stage
+ *
+ * The latencies are given in microseconds.
+ *
+ * @version 1.0
+ */
+public interface StageMetricsMXBean {
+
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    void reset();
+}
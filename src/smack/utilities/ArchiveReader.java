@@ -0,0 +1,577 @@
+package smack.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The ArchiveReader class reads the entries of a ZIP or TAR archive one after the other
+ *
+ * The archive is streamed: only the entry being read is held in memory, so the size of the
+ * archive does not matter. The format is recognised from the content of the file: ZIP, TAR
+ * (ustar, with the GNU long names and the PAX paths) and gzip compressed TAR are supported.
+ * Only the regular files are returned, directories and links are skipped.
+ *
+ * @version 1.0
+ */
+public abstract class ArchiveReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * ArchiveReader class constructor
+     */
+    ArchiveReader() {
+    }
+
+    /**
+     * Open an archive
+     *
+     * @param file ZIP, TAR or gzip compressed TAR archive
+     * @return Reader positioned before the first entry
+     * @throws IOException
+     */
+    public static ArchiveReader open(File file) throws IOException {
+
+        InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+
+        try {
+            byte[] signature = peek(in, 512);
+
+            if (signature.length >= 4 && signature[0] == 'P' && signature[1] == 'K' && (signature[2] == 3 || signature[2] == 5)) {
+                return new ZipReader(in);
+            }
+
+            if (signature.length >= 2 && (signature[0] & 0xff) == 0x1f && (signature[1] & 0xff) == 0x8b) {
+                return new TarReader(new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE));
+            }
+
+            if (signature.length == 512 && TarReader.isHeader(signature)) {
+                return new TarReader(in);
+            }
+
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+
+        in.close();
+
+        throw new IOException("File \"" + file.getPath() + "\" is not a ZIP or TAR archive.");
+    }
+
+    /**
+     * Move to the next regular file of the archive
+     *
+     * The rest of the current entry is skipped.
+     *
+     * @return Name of the entry, null at the end of the archive
+     * @throws IOException
+     */
+    public abstract String nextEntry() throws IOException;
+
+    /**
+     * Get the stream of the current entry
+     *
+     * @return Stream ending at the end of the current entry, not to be closed
+     */
+    protected abstract InputStream getEntryStream();
+
+    /**
+     * Read the current entry
+     *
+     * @param maxSize Largest entry read, in bytes
+     * @return Content of the entry, null if it is larger than maxSize
+     * @throws IOException
+     */
+    public byte[] readEntry(int maxSize) throws IOException {
+
+        InputStream in = this.getEntryStream();
+        ByteArrayOutputStream content = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int count;
+
+        while ((count = in.read(buffer)) != -1) {
+
+            if (content.size() + count > maxSize) {
+                return null;
+            }
+
+            content.write(buffer, 0, count);
+        }
+
+        return content.toByteArray();
+    }
+
+    /**
+     * Read the first bytes of a stream without consuming them
+     *
+     * @param in Stream supporting mark
+     * @param count Number of bytes to read
+     * @return First bytes of the stream, fewer if the stream is shorter
+     * @throws IOException
+     */
+    private static byte[] peek(InputStream in, int count) throws IOException {
+
+        byte[] bytes = new byte[count];
+        int length = 0;
+        int read;
+
+        in.mark(count);
+
+        while (length < count && (read = in.read(bytes, length, count - length)) != -1) {
+            length += read;
+        }
+
+        in.reset();
+
+        if (length == count) {
+            return bytes;
+        }
+
+        byte[] shortBytes = new byte[length];
+        System.arraycopy(bytes, 0, shortBytes, 0, length);
+
+        return shortBytes;
+    }
+
+    /**
+     * Reader of a ZIP archive
+     */
+    private static final class ZipReader extends ArchiveReader {
+
+        private final ZipInputStream in;
+
+        /**
+         * ZipReader class constructor
+         *
+         * @param in Stream of the archive
+         */
+        ZipReader(InputStream in) {
+            this.in = new ZipInputStream(in, UTF_8);
+        }
+
+        @Override
+        public String nextEntry() throws IOException {
+
+            ZipEntry entry;
+
+            try {
+                while ((entry = this.in.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) {
+                        return entry.getName();
+                    }
+                }
+            } catch (IllegalArgumentException ex) {
+
+                // Entry name which is not valid UTF-8
+                throw new ZipException("Invalid ZIP entry name: " + ex.getLocalizedMessage());
+            }
+
+            return null;
+        }
+
+        @Override
+        protected InputStream getEntryStream() {
+            return this.in;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    /**
+     * Reader of a TAR archive
+     *
+     * A header is a block of 512 bytes, followed by the content of the entry padded to a
+     * multiple of 512 bytes. The archive ends with a block of zeros.
+     */
+    private static final class TarReader extends ArchiveReader {
+
+        private static final int BLOCK_SIZE = 512;
+        private static final int MAX_METADATA_SIZE = 1024 * 1024;
+
+        private final InputStream in;
+        private final byte[] header = new byte[BLOCK_SIZE];
+        private final EntryStream entryStream = new EntryStream();
+        private long padding;
+
+        /**
+         * TarReader class constructor
+         *
+         * @param in Stream of the archive
+         */
+        TarReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Check whether a block is a TAR header
+         *
+         * @param block First block of a file
+         * @return Whether the checksum of the block is valid
+         */
+        static boolean isHeader(byte[] block) {
+
+            try {
+                return parseNumber(block, 148, 8) == getChecksum(block);
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+
+        @Override
+        public String nextEntry() throws IOException {
+
+            // Skip the rest of the current entry
+            skipFully(this.entryStream.remaining + this.padding);
+            this.entryStream.remaining = 0;
+            this.padding = 0;
+
+            String longName = null;
+
+            while (true) {
+
+                if (!this.readBlock()) {
+                    return null;
+                }
+
+                if (parseNumber(this.header, 148, 8) != getChecksum(this.header)) {
+                    throw new IOException("Invalid TAR header checksum.");
+                }
+
+                long size = parseNumber(this.header, 124, 12);
+
+                // A negative base-256 size
+                if (size < 0) {
+                    throw new IOException("Invalid TAR entry size.");
+                }
+
+                long padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+                byte type = this.header[156];
+
+                if (type == 'L' || type == 'x') {
+
+                    // GNU long name or PAX extended header of the next entry
+                    byte[] metadata = this.readMetadata(size);
+                    skipFully(padding);
+
+                    String name = type == 'L' ? parseString(metadata, 0, metadata.length) : parsePaxPath(metadata);
+
+                    if (name != null) {
+                        longName = name;
+                    }
+
+                } else if (type == '0' || type == 0 || type == '7') {
+
+                    this.entryStream.remaining = size;
+                    this.padding = padding;
+
+                    return longName != null ? longName : this.getName();
+
+                } else {
+
+                    // Directories, links and the other entries have no missive
+                    skipFully(size + padding);
+                    longName = null;
+                }
+            }
+        }
+
+        @Override
+        protected InputStream getEntryStream() {
+            return this.entryStream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+
+        /**
+         * Read the next header block
+         *
+         * @return Whether a header was read, false at the end of the archive
+         * @throws IOException
+         */
+        private boolean readBlock() throws IOException {
+
+            int length = 0;
+            int count;
+
+            while (length < BLOCK_SIZE && (count = this.in.read(this.header, length, BLOCK_SIZE - length)) != -1) {
+                length += count;
+            }
+
+            if (length == 0) {
+                return false;
+            }
+
+            if (length < BLOCK_SIZE) {
+                throw new EOFException("Truncated TAR archive.");
+            }
+
+            for (byte b : this.header) {
+                if (b != 0) {
+                    return true;
+                }
+            }
+
+            // Block of zeros ending the archive
+            return false;
+        }
+
+        /**
+         * Read the content of a metadata entry
+         *
+         * @param size Size of the entry
+         * @return Content of the entry
+         * @throws IOException
+         */
+        private byte[] readMetadata(long size) throws IOException {
+
+            if (size > MAX_METADATA_SIZE) {
+                throw new IOException("TAR metadata entry of " + size + " bytes is too large.");
+            }
+
+            byte[] metadata = new byte[(int) size];
+            int length = 0;
+            int count;
+
+            while (length < metadata.length && (count = this.in.read(metadata, length, metadata.length - length)) != -1) {
+                length += count;
+            }
+
+            if (length < metadata.length) {
+                throw new EOFException("Truncated TAR archive.");
+            }
+
+            return metadata;
+        }
+
+        /**
+         * Skip bytes of the archive
+         *
+         * @param count Number of bytes to skip
+         * @throws IOException
+         */
+        private void skipFully(long count) throws IOException {
+
+            while (count > 0) {
+
+                long skipped = this.in.skip(count);
+
+                if (skipped <= 0) {
+
+                    if (this.in.read() == -1) {
+                        throw new EOFException("Truncated TAR archive.");
+                    }
+
+                    skipped = 1;
+                }
+
+                count -= skipped;
+            }
+        }
+
+        /**
+         * Get the name of the entry of the current header
+         *
+         * @return Name, preceded by the ustar prefix when there is one
+         */
+        private String getName() {
+
+            String name = parseString(this.header, 0, 100);
+
+            if (this.header[257] == 'u' && this.header[258] == 's' && this.header[259] == 't' && this.header[260] == 'a' && this.header[261] == 'r') {
+
+                String prefix = parseString(this.header, 345, 155);
+
+                if (!prefix.isEmpty()) {
+                    return prefix + "/" + name;
+                }
+            }
+
+            return name;
+        }
+
+        /**
+         * Get the checksum of a header
+         *
+         * @param block Header block
+         * @return Sum of the bytes of the header, the checksum field counted as spaces
+         */
+        private static long getChecksum(byte[] block) {
+
+            long checksum = 0;
+
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                checksum += i >= 148 && i < 156 ? ' ' : block[i] & 0xff;
+            }
+
+            return checksum;
+        }
+
+        /**
+         * Parse a numeric field of a header
+         *
+         * @param block Header block
+         * @param offset Offset of the field
+         * @param length Length of the field
+         * @return Value of the octal or base-256 field
+         * @throws IOException
+         */
+        private static long parseNumber(byte[] block, int offset, int length) throws IOException {
+
+            long value = 0;
+
+            // Base-256 encoding of the large numbers
+            if ((block[offset] & 0x80) != 0) {
+
+                for (int i = offset + 1; i < offset + length; i++) {
+                    value = (value << 8) | (block[i] & 0xff);
+                }
+
+                return value;
+            }
+
+            int i = offset;
+            int end = offset + length;
+
+            while (i < end && (block[i] == ' ' || block[i] == 0)) {
+                i++;
+            }
+
+            if (i == end) {
+                throw new IOException("Empty TAR header field.");
+            }
+
+            while (i < end && block[i] >= '0' && block[i] <= '7') {
+                value = (value << 3) + block[i] - '0';
+                i++;
+            }
+
+            return value;
+        }
+
+        /**
+         * Parse a text field of a header
+         *
+         * @param block Header block
+         * @param offset Offset of the field
+         * @param length Length of the field
+         * @return Text of the field up to its first NUL
+         */
+        private static String parseString(byte[] block, int offset, int length) {
+
+            int end = offset;
+
+            while (end < offset + length && block[end] != 0) {
+                end++;
+            }
+
+            return new String(block, offset, end - offset, UTF_8);
+        }
+
+        /**
+         * Parse the path of a PAX extended header
+         *
+         * @param metadata Records of the header, "length key=value\n"
+         * @return Path of the next entry, null if the header has none
+         * @throws IOException
+         */
+        private static String parsePaxPath(byte[] metadata) throws IOException {
+
+            int position = 0;
+
+            while (position < metadata.length) {
+
+                int space = position;
+
+                while (space < metadata.length && metadata[space] != ' ') {
+                    space++;
+                }
+
+                int length;
+
+                try {
+                    length = Integer.parseInt(new String(metadata, position, space - position, UTF_8));
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Invalid PAX extended header.");
+                }
+
+                // A record holds at least its length, a space and its ending newline
+                if (length < space - position + 2 || position + length > metadata.length) {
+                    throw new IOException("Invalid PAX extended header.");
+                }
+
+                String record = new String(metadata, space + 1, position + length - space - 2, UTF_8);
+
+                if (record.startsWith("path=")) {
+                    return record.substring(5);
+                }
+
+                position += length;
+            }
+
+            return null;
+        }
+
+        /**
+         * Stream of the content of the current entry
+         */
+        private final class EntryStream extends InputStream {
+
+            private long remaining;
+
+            @Override
+            public int read() throws IOException {
+
+                if (this.remaining == 0) {
+                    return -1;
+                }
+
+                int b = TarReader.this.in.read();
+
+                if (b == -1) {
+                    throw new EOFException("Truncated TAR archive.");
+                }
+
+                this.remaining--;
+
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+
+                if (this.remaining == 0) {
+                    return -1;
+                }
+
+                int count = TarReader.this.in.read(bytes, offset, (int) Math.min(length, this.remaining));
+
+                if (count == -1) {
+                    throw new EOFException("Truncated TAR archive.");
+                }
+
+                this.remaining -= count;
+
+                return count;
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package smack.utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The ArchiveWriter class writes entries to a ZIP or TAR archive one after the other
+ *
+ * Each entry is written to the archive as soon as it is given, so only the entry being
+ * written is held in memory. The TAR archives are written in the ustar format, with a PAX
+ * extended header for the names which do not fit in it.
+ *
+ * @version 1.0
+ */
+public abstract class ArchiveWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Format of an archive
+     */
+    public enum Format {
+        ZIP, TAR, TAR_GZ
+    }
+
+    /**
+     * ArchiveWriter class constructor
+     */
+    ArchiveWriter() {
+    }
+
+    /**
+     * Get the format of an archive from its file name
+     *
+     * @param filename Name of the archive
+     * @return Format given by the extension (.zip, .tar, .tar.gz or .tgz), null if unknown
+     */
+    public static Format getFormat(String filename) {
+
+        String name = filename.toLowerCase(Locale.ENGLISH);
+
+        if (name.endsWith(".zip")) {
+            return Format.ZIP;
+        } else if (name.endsWith(".tar")) {
+            return Format.TAR;
+        } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return Format.TAR_GZ;
+        }
+
+        return null;
+    }
+
+    /**
+     * Create an archive, replacing the file if it exists
+     *
+     * @param file Archive to write
+     * @param format Format of the archive
+     * @return Writer of the archive, to close once all the entries are written
+     * @throws IOException
+     */
+    public static ArchiveWriter open(File file, Format format) throws IOException {
+
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE);
+
+        switch (format) {
+            case ZIP:
+                return new ZipWriter(out);
+            case TAR_GZ:
+                return new TarWriter(new GZIPOutputStream(out, BUFFER_SIZE));
+            default:
+                return new TarWriter(out);
+        }
+    }
+
+    /**
+     * Write an entry
+     *
+     * @param name Name of the entry
+     * @param content Content of the entry
+     * @param length Number of bytes of the content
+     * @throws IOException
+     */
+    public abstract void write(String name, byte[] content, int length) throws IOException;
+
+    /**
+     * Writer of a ZIP archive
+     */
+    private static final class ZipWriter extends ArchiveWriter {
+
+        private final ZipOutputStream out;
+
+        /**
+         * ZipWriter class constructor
+         *
+         * @param out Stream of the archive
+         */
+        ZipWriter(OutputStream out) {
+            this.out = new ZipOutputStream(out, UTF_8);
+        }
+
+        @Override
+        public void write(String name, byte[] content, int length) throws IOException {
+            this.out.putNextEntry(new ZipEntry(name));
+            this.out.write(content, 0, length);
+            this.out.closeEntry();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+
+    /**
+     * Writer of a TAR archive
+     *
+     * The archive is padded to a multiple of RECORD_SIZE bytes, as the tar tools do.
+     */
+    private static final class TarWriter extends ArchiveWriter {
+
+        private static final int BLOCK_SIZE = 512;
+        private static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+        private static final String PAX_HEADER_NAME = "././@PaxHeader";
+
+        private final OutputStream out;
+        private final byte[] header = new byte[BLOCK_SIZE];
+        private long written;
+
+        /**
+         * TarWriter class constructor
+         *
+         * @param out Stream of the archive
+         */
+        TarWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(String name, byte[] content, int length) throws IOException {
+
+            long modificationTime = System.currentTimeMillis() / 1000L;
+            byte[] nameBytes = name.getBytes(UTF_8);
+            int split = getPrefixLength(nameBytes);
+
+            if (split < 0) {
+
+                // The name is given to the entry by a PAX extended header
+                byte[] record = getPaxRecord("path", name);
+                this.writeHeader(PAX_HEADER_NAME.getBytes(UTF_8), -1, record.length, (byte) 'x', modificationTime);
+                this.writeContent(record, record.length);
+
+                byte[] shortName = new byte[Math.min(nameBytes.length, 100)];
+                System.arraycopy(nameBytes, nameBytes.length - shortName.length, shortName, 0, shortName.length);
+                nameBytes = shortName;
+                split = 0;
+            }
+
+            this.writeHeader(nameBytes, split > 0 ? split : -1, length, (byte) '0', modificationTime);
+            this.writeContent(content, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            try {
+                // Two blocks of zeros end the archive
+                long end = this.written + 2 * BLOCK_SIZE;
+                end += (RECORD_SIZE - end % RECORD_SIZE) % RECORD_SIZE;
+                this.writeZeros(end - this.written);
+            } finally {
+                this.out.close();
+            }
+        }
+
+        /**
+         * Get where a name is split between the ustar prefix and name fields
+         *
+         * @param name Name of the entry
+         * @return 0 when the name fits in the name field, the length of the prefix when it
+         * has to be split, -1 when it cannot be stored in the ustar fields
+         */
+        private static int getPrefixLength(byte[] name) {
+
+            if (name.length <= 100) {
+                return 0;
+            }
+
+            // The prefix and the name are separated by a slash which is not stored
+            for (int i = Math.max(0, name.length - 101); i < name.length && i <= 155; i++) {
+                if (name[i] == '/' && i > 0 && i < name.length - 1) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Get a PAX extended header record
+         *
+         * @param key Key of the record
+         * @param value Value of the record
+         * @return Record "length key=value\n", the length counting its own digits
+         */
+        private static byte[] getPaxRecord(String key, String value) {
+
+            int length = key.getBytes(UTF_8).length + value.getBytes(UTF_8).length + 3;
+            int digits = String.valueOf(length).length();
+
+            while (String.valueOf(length + digits).length() != digits) {
+                digits++;
+            }
+
+            return ((length + digits) + " " + key + "=" + value + "\n").getBytes(UTF_8);
+        }
+
+        /**
+         * Write a ustar header
+         *
+         * @param name Name of the entry, prefix included
+         * @param prefixLength Length of the prefix, -1 when the name has none
+         * @param size Size of the entry
+         * @param type Type of the entry
+         * @param modificationTime Modification time of the entry, in seconds
+         * @throws IOException
+         */
+        private void writeHeader(byte[] name, int prefixLength, long size, byte type, long modificationTime) throws IOException {
+
+            Arrays.fill(this.header, (byte) 0);
+
+            if (prefixLength > 0) {
+                System.arraycopy(name, prefixLength + 1, this.header, 0, name.length - prefixLength - 1);
+                System.arraycopy(name, 0, this.header, 345, prefixLength);
+            } else {
+                System.arraycopy(name, 0, this.header, 0, name.length);
+            }
+
+            putNumber(0644, 100, 8);
+            putNumber(0, 108, 8);
+            putNumber(0, 116, 8);
+            putNumber(size, 124, 12);
+            putNumber(modificationTime, 136, 12);
+            this.header[156] = type;
+            System.arraycopy("ustar\u000000".getBytes(UTF_8), 0, this.header, 257, 8);
+
+            // Checksum computed with its own field made of spaces
+            Arrays.fill(this.header, 148, 156, (byte) ' ');
+            long checksum = 0;
+
+            for (byte b : this.header) {
+                checksum += b & 0xff;
+            }
+
+            putNumber(checksum, 148, 7);
+            this.header[155] = ' ';
+
+            this.out.write(this.header);
+            this.written += BLOCK_SIZE;
+        }
+
+        /**
+         * Write a number to a field of the header
+         *
+         * @param value Value of the field
+         * @param offset Offset of the field
+         * @param length Length of the field, ended by a NUL
+         * @throws IOException
+         */
+        private void putNumber(long value, int offset, int length) throws IOException {
+
+            String octal = Long.toOctalString(value);
+
+            if (octal.length() > length - 1) {
+                throw new IOException("Value " + value + " does not fit in a TAR header.");
+            }
+
+            for (int i = 0; i < length - 1; i++) {
+                int digit = i - (length - 1 - octal.length());
+                this.header[offset + i] = digit < 0 ? (byte) '0' : (byte) octal.charAt(digit);
+            }
+
+            this.header[offset + length - 1] = 0;
+        }
+
+        /**
+         * Write the content of an entry padded to a whole block
+         *
+         * @param content Content of the entry
+         * @param length Number of bytes of the content
+         * @throws IOException
+         */
+        private void writeContent(byte[] content, int length) throws IOException {
+
+            this.out.write(content, 0, length);
+            this.written += length;
+            this.writeZeros((BLOCK_SIZE - length % BLOCK_SIZE) % BLOCK_SIZE);
+        }
+
+        /**
+         * Write zeros to the archive
+         *
+         * @param count Number of zeros
+         * @throws IOException
+         */
+        private void writeZeros(long count) throws IOException {
+
+            byte[] zeros = new byte[BLOCK_SIZE];
+
+            while (count > 0) {
+
+                int length = (int) Math.min(count, BLOCK_SIZE);
+                this.out.write(zeros, 0, length);
+                this.written += length;
+                count -= length;
+            }
+        }
+    }
+}
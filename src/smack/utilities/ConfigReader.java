@@ -6,10 +6,15 @@ import java.io.IOException;
 import java.util.Properties;
 import java.util.logging.Level;
 import smack.Smack;
+import smack.controller.LogController;
 
 /**
  * The ConfigReader class reads and parses the SMACK module configuration file.
  * 
+ * Its static getters read the numeric properties: an invalid value is logged as a warning
+ * and replaced by the default value, so that a typo in the configuration never fails the
+ * processing of a missive.
+ * 
  * @author Ammit Heeramun <ammit.heeramun@idsoft.mu>
  * @version 0.1
  */
@@ -63,4 +68,86 @@ public class ConfigReader {
          
         return configDefinitionProperties;
     }
+
+    /**
+     * Get an integer property of the configuration
+     * 
+     * @param config SMACK configuration, null to use the default value
+     * @param name Name of the property
+     * @param defaultValue Value used when the property is not defined or invalid
+     * @return Value of the property
+     */
+    public static int getIntProperty(Properties config, String name, int defaultValue) {
+        
+        String value = config != null ? config.getProperty(name) : null;
+        
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                logInvalidValue(name, value, String.valueOf(defaultValue));
+            }
+        }
+        
+        return defaultValue;
+    }
+    
+    /**
+     * Get a long property of the configuration
+     * 
+     * @param config SMACK configuration, null to use the default value
+     * @param name Name of the property
+     * @param defaultValue Value used when the property is not defined or invalid
+     * @return Value of the property
+     */
+    public static long getLongProperty(Properties config, String name, long defaultValue) {
+        
+        String value = config != null ? config.getProperty(name) : null;
+        
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException ex) {
+                logInvalidValue(name, value, String.valueOf(defaultValue));
+            }
+        }
+        
+        return defaultValue;
+    }
+    
+    /**
+     * Get a decimal property of the configuration
+     * 
+     * @param config SMACK configuration, null to use the default value
+     * @param name Name of the property
+     * @param defaultValue Value used when the property is not defined or invalid
+     * @return Value of the property
+     */
+    public static double getDoubleProperty(Properties config, String name, double defaultValue) {
+        
+        String value = config != null ? config.getProperty(name) : null;
+        
+        if (value != null) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException ex) {
+                logInvalidValue(name, value, String.valueOf(defaultValue));
+            }
+        }
+        
+        return defaultValue;
+    }
+    
+    /**
+     * Log a property of the configuration which is not a number
+     * 
+     * @param name Name of the property
+     * @param value Invalid value
+     * @param defaultValue Value used instead
+     */
+    private static void logInvalidValue(String name, String value, String defaultValue) {
+        
+        // Log warning, the configuration may be read before Smack.main sets Smack.logController
+        LogController.getLogController().log(Level.WARNING, Smack.class.getSimpleName(), "Invalid value \"" + value + "\" of the \"" + name + "\" configuration. Using " + defaultValue + ".");
+    }
 }
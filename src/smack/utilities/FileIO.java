@@ -0,0 +1,297 @@
+package smack.utilities;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import smack.Smack;
+
+/**
+ * The FileIO class reads the missive files and writes the acknowledgement files through channels
+ *
+ * A missive file is read once, with a single read of its whole size, and its content is then
+ * shared by the stages of the processing through streams over the same buffer. A file of at
+ * least "missiveMapThreshold" bytes is memory-mapped instead of being copied to the heap, 0
+ * disables the mapping. On Windows a mapped file cannot be moved or deleted until its buffer
+ * is garbage collected, the mapping should stay disabled there.
+ *
+ * An acknowledgement file is written through a direct buffer of each thread, reused from one
+ * file to the next, which reaches the channel in writes of OUTPUT_BUFFER_SIZE bytes.
+ *
+ * @version 1.0
+ */
+public final class FileIO {
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<ByteBuffer> OUTPUT_BUFFERS = new ThreadLocal<>();
+
+    /**
+     * FileIO class constructor hidden since the class only has static methods
+     */
+    private FileIO() {
+    }
+
+    /**
+     * Read the whole content of a file
+     *
+     * @param file File to read
+     * @return Content of the file, positioned at its start
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    public static ByteBuffer read(File file) throws FileNotFoundException, IOException {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            long mapThreshold = getMapThreshold();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File \"" + file.getPath() + "\" is too large to be read (" + size + " bytes).");
+            }
+
+            // The mapping stays valid once the channel is closed
+            if (mapThreshold > 0 && size >= mapThreshold) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+
+            while (content.hasRemaining() && channel.read(content) != -1) {
+            }
+
+            content.flip();
+
+            return content;
+
+        } catch (NoSuchFileException ex) {
+            throw new FileNotFoundException("The specified source file, " + file.getPath() + ", was not found.");
+        }
+    }
+
+    /**
+     * Get a stream over the content of a file
+     *
+     * Each stream has its own position, so several stages can read the same content. The
+     * stream supports mark and reset.
+     *
+     * @param content Content of the file, as returned by read()
+     * @return Stream reading the content from its current position
+     */
+    public static InputStream newInputStream(ByteBuffer content) {
+        return new ByteBufferInputStream(content.duplicate());
+    }
+
+    /**
+     * Open a file for writing, replacing its content
+     *
+     * @param file File to write
+     * @return Stream writing the file, to close once written
+     * @throws IOException
+     */
+    public static OutputStream newOutputStream(File file) throws IOException {
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        // Buffer of the thread, or a new one when the thread is already writing a file
+        ByteBuffer buffer = OUTPUT_BUFFERS.get();
+        OUTPUT_BUFFERS.set(null);
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        }
+
+        buffer.clear();
+
+        return new ChannelOutputStream(channel, buffer);
+    }
+
+    /**
+     * Get the size from which the missive files are memory-mapped
+     *
+     * @return Size in bytes, 0 if the files are never mapped
+     */
+    private static long getMapThreshold() {
+
+        return ConfigReader.getLongProperty(Smack.smackConfig, "missiveMapThreshold", 0);
+    }
+
+    /**
+     * Stream over the content of a buffer
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer content;
+
+        /**
+         * ByteBufferInputStream class constructor
+         *
+         * @param content Buffer read by the stream, owned by the stream
+         */
+        ByteBufferInputStream(ByteBuffer content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read() {
+            return this.content.hasRemaining() ? this.content.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!this.content.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, this.content.remaining());
+            this.content.get(bytes, offset, count);
+
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+
+            int skipped = (int) Math.max(0, Math.min(count, this.content.remaining()));
+            this.content.position(this.content.position() + skipped);
+
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return this.content.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            this.content.mark();
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            this.content.reset();
+        }
+    }
+
+    /**
+     * Stream writing a channel through a buffer given back to its thread when closed
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+
+        private final FileChannel channel;
+        private ByteBuffer buffer;
+
+        /**
+         * ChannelOutputStream class constructor
+         *
+         * @param channel Channel written by the stream, closed with the stream
+         * @param buffer Empty buffer of the stream
+         */
+        ChannelOutputStream(FileChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+
+            if (!this.getBuffer().hasRemaining()) {
+                this.drain();
+            }
+
+            this.buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+
+            this.getBuffer();
+
+            while (length > 0) {
+
+                if (!this.buffer.hasRemaining()) {
+                    this.drain();
+                }
+
+                int count = Math.min(length, this.buffer.remaining());
+                this.buffer.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            if (this.getBuffer().position() > 0) {
+                this.drain();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (this.buffer == null) {
+                return;
+            }
+
+            try {
+                this.flush();
+            } finally {
+                this.channel.close();
+
+                // The buffer is reused by the next file written by the thread
+                this.buffer.clear();
+                OUTPUT_BUFFERS.set(this.buffer);
+                this.buffer = null;
+            }
+        }
+
+        /**
+         * Get the buffer of the stream
+         *
+         * @return Buffer of the stream
+         * @throws IOException
+         */
+        private ByteBuffer getBuffer() throws IOException {
+
+            if (this.buffer == null) {
+                throw new IOException("Stream closed");
+            }
+
+            return this.buffer;
+        }
+
+        /**
+         * Write the content of the buffer to the channel
+         *
+         * @throws IOException
+         */
+        private void drain() throws IOException {
+
+            this.buffer.flip();
+
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+
+            this.buffer.clear();
+        }
+    }
+}
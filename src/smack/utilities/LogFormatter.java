@@ -1,11 +1,10 @@
 package smack.utilities;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.SimpleTimeZone;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -13,11 +12,28 @@ import java.util.logging.LogRecord;
 /**
  * Log formatter extends the Formatter class and formats the output of the logger in Syslog format
  * 
+ * The hostname and the process ID are resolved once, and each thread builds its log lines in
+ * its own reused buffer. On Linux the process ID is read from /proc, which spares the startup
+ * of the application the initialization of the management beans.
+ * 
  * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
  * @version 1.0
  * @see http://sepamail-smurf.googlecode.com 
  */
 public class LogFormatter extends Formatter {
+    
+    private static final String HOSTNAME = getHostname();
+    private static final String PID = getPid();
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int MAX_RETAINED_CAPACITY = 16384;
+    
+    private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1000);
+        }
+    };
 
     /**
      * Format the log record in Syslog format
@@ -28,38 +44,46 @@ public class LogFormatter extends Formatter {
     @Override
     public String format(LogRecord lr) {
 
-        // String builder to create the log line string
-        StringBuilder strBuilder = new StringBuilder(1000);
+        // String builder of the calling thread to create the log line string
+        StringBuilder strBuilder = BUFFERS.get();
+        strBuilder.setLength(0);
 
         // Message priority
-        strBuilder.append("<");
+        strBuilder.append('<');
         strBuilder.append(this.mapSeverity(lr.getLevel()));
         strBuilder.append("> ");
 
         // Date and time at which the event occured
-        strBuilder.append(this.calcDate(lr.getMillis()));
+        appendDate(strBuilder, lr.getMillis());
 
         // Hostname of host running the application
-        strBuilder.append(" ");
-        strBuilder.append(this.getHostname());
-        strBuilder.append(" ");
+        strBuilder.append(' ');
+        strBuilder.append(HOSTNAME);
+        strBuilder.append(' ');
         
         // Application name with PID
         strBuilder.append("smack:[");
-        strBuilder.append(this.getPid());
+        strBuilder.append(PID);
         strBuilder.append("] ");
         
         // Sub-system name - here we use the name of the class where the exception got raised
         strBuilder.append(lr.getSourceClassName());
         strBuilder.append(": ");
         
-        // Log entry message
-        strBuilder.append(formatMessage(lr).replaceAll(System.getProperty("line.separator"), " "));
+        // Log entry message on a single line
+        appendSingleLine(strBuilder, formatMessage(lr));
         
         // Terminate log entry
-        strBuilder.append(System.getProperty("line.separator"));
+        strBuilder.append(LINE_SEPARATOR);
+        
+        String line = strBuilder.toString();
         
-        return strBuilder.toString();
+        // Do not keep the buffer of an unusually long record
+        if (strBuilder.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFERS.remove();
+        }
+        
+        return line;
     }
 
     /**
@@ -96,26 +120,101 @@ public class LogFormatter extends Formatter {
     }
     
     /**
-     * Format the date and time displayed for a log entry
+     * Append the date and time displayed for a log entry
      * 
+     * The date is written in UTC as yyyy-MM-ddTHH:mm:ss.SZ, the milliseconds not being
+     * padded with zeros.
+     * 
+     * @param strBuilder Log line being built
      * @param millisecs Event time in milliseconds since 1970
-     * @return Formatted Date and time
      */
-    private String calcDate(long millisecs) {
+    private static void appendDate(StringBuilder strBuilder, long millisecs) {
 
-        // Date and time at which log is being recorded
-        Date date = new Date(millisecs);
+        long epochDay = millisecs / MILLIS_PER_DAY;
+        int millisOfDay = (int) (millisecs % MILLIS_PER_DAY);
+        
+        // Events before 1970 belong to the previous day
+        if (millisOfDay < 0) {
+            epochDay--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+        
+        // Convert the day since 1970 to a civil date, counting the years from March
+        long days = epochDay + 719468;
+        long era = (days >= 0 ? days : days - 146096) / 146097;
+        int dayOfEra = (int) (days - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        
+        // Date
+        appendPadded(strBuilder, year, 4);
+        strBuilder.append('-');
+        appendPadded(strBuilder, month, 2);
+        strBuilder.append('-');
+        appendPadded(strBuilder, day, 2);
+        
+        // Time
+        strBuilder.append('T');
+        appendPadded(strBuilder, millisOfDay / 3600000, 2);
+        strBuilder.append(':');
+        appendPadded(strBuilder, millisOfDay / 60000 % 60, 2);
+        strBuilder.append(':');
+        appendPadded(strBuilder, millisOfDay / 1000 % 60, 2);
+        strBuilder.append('.');
+        strBuilder.append(millisOfDay % 1000);
+        strBuilder.append('Z');
+    }
+    
+    /**
+     * Append a number left padded with zeros
+     * 
+     * @param strBuilder Log line being built
+     * @param value Positive number
+     * @param width Minimum number of digits
+     */
+    private static void appendPadded(StringBuilder strBuilder, long value, int width) {
         
-        // Date formatter
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.S");
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) {
+                strBuilder.append('0');
+            }
+        }
         
-        // Set time zone for date formatters
-        dateFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
-        timeFormat.setTimeZone(new SimpleTimeZone(SimpleTimeZone.UTC_TIME, "UTC"));
+        strBuilder.append(value);
+    }
+    
+    /**
+     * Append a message replacing its line separators with spaces
+     * 
+     * @param strBuilder Log line being built
+     * @param message Log message
+     */
+    private static void appendSingleLine(StringBuilder strBuilder, String message) {
+        
+        if (message == null) {
+            strBuilder.append((String) null);
+            return;
+        }
         
-        // Format the date shown in the log output
-        return dateFormat.format(date) + "T" + timeFormat.format(date) + "Z";
+        int length = message.length();
+        char separatorStart = LINE_SEPARATOR.charAt(0);
+        int start = 0;
+        
+        for (int i = 0; i < length; i++) {
+            
+            if (message.charAt(i) == separatorStart && message.startsWith(LINE_SEPARATOR, i)) {
+                
+                strBuilder.append(message, start, i).append(' ');
+                i += LINE_SEPARATOR.length() - 1;
+                start = i + 1;
+            }
+        }
+        
+        strBuilder.append(message, start, length);
     }
 
     /**
@@ -123,7 +222,7 @@ public class LogFormatter extends Formatter {
      * 
      * @return Hostname of the host running the application
      */
-    private String getHostname() {
+    private static String getHostname() {
         
         String hostname;
 
@@ -148,7 +247,18 @@ public class LogFormatter extends Formatter {
      * 
      * @return Application process ID
      */
-    private String getPid() {
+    private static String getPid() {
+
+        // The process directory is linked by /proc/self
+        try {
+            String procPid = new File("/proc/self").getCanonicalFile().getName();
+
+            if (procPid.matches("[0-9]+")) {
+                return procPid;
+            }
+        } catch (IOException ex) {
+            // Not running on Linux, ask the runtime
+        }
 
         // Process ID
         String sysPid = ManagementFactory.getRuntimeMXBean().getName();
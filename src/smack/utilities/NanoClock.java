@@ -0,0 +1,28 @@
+package smack.utilities;
+
+/**
+ * The NanoClock interface supplies the time measuring the delays of the application
+ *
+ * The application uses SYSTEM, the tests a clock they move forward themselves.
+ *
+ * @version 1.0
+ */
+public interface NanoClock {
+
+    /**
+     * Clock of System.nanoTime()
+     */
+    NanoClock SYSTEM = new NanoClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Get the current time
+     *
+     * @return Current time in nanoseconds, only meaningful compared to another time of the same clock
+     */
+    long nanoTime();
+}
@@ -0,0 +1,149 @@
+package smack.utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The RingBuffer class is a bounded lock-free queue with several producers and a single consumer
+ *
+ * Each slot carries a sequence number telling whether it can be written by a producer or read
+ * by the consumer, so producers only compete on the tail counter and never block each other.
+ * The capacity is rounded up to a power of two.
+ *
+ * @version 1.0
+ * @param <E> Type of the elements
+ */
+public class RingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * RingBuffer class constructor
+     *
+     * @param minCapacity Minimum number of elements the buffer can hold
+     */
+    public RingBuffer(int minCapacity) {
+
+        int size = 2;
+        while (size < minCapacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+
+        this.capacity = size;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+
+        // Every slot is initially free for the producer of the same position
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element to the buffer, may be called by several threads
+     *
+     * @param element Element to add
+     * @return Whether the element was added, false when the buffer is full
+     */
+    public boolean offer(E element) {
+
+        long position;
+        int index;
+
+        while (true) {
+
+            position = this.tail.get();
+            index = (int) (position & this.mask);
+            long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+
+                // The slot is free, claim it
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+
+                // The slot has not been read yet since the last lap, the buffer is full
+                return false;
+            }
+        }
+
+        this.elements.lazySet(index, element);
+
+        // Publish the element to the consumer, with a full fence so that a check of the
+        // producer made after the offer, such as whether the consumer has stopped, cannot
+        // be ordered before the publication
+        this.sequences.set(index, position + 1);
+
+        return true;
+    }
+
+    /**
+     * Remove the oldest element of the buffer, must only be called by the consumer thread
+     *
+     * @return Oldest element or null if the buffer is empty
+     */
+    public E poll() {
+
+        long position = this.head;
+        int index = (int) (position & this.mask);
+
+        // The element of the slot has not been published yet
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        E element = this.elements.get(index);
+        this.elements.lazySet(index, null);
+
+        // Free the slot for the producer of the next lap
+        this.sequences.lazySet(index, position + this.capacity);
+        this.head = position + 1;
+
+        return element;
+    }
+
+    /**
+     * Get the approximate number of elements in the buffer
+     *
+     * @return Number of elements
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(this.capacity, this.tail.get() - this.head));
+    }
+
+    /**
+     * Get the number of elements the buffer can hold
+     *
+     * @return Capacity of the buffer
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Get the number of elements added to the buffer so far
+     *
+     * @return Number of elements added
+     */
+    public long getAddedCount() {
+        return this.tail.get();
+    }
+
+    /**
+     * Get the number of elements removed from the buffer so far
+     *
+     * @return Number of elements removed
+     */
+    public long getRemovedCount() {
+        return this.head;
+    }
+}
@@ -0,0 +1,234 @@
+package smack.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import smack.Smack;
+import smack.controller.LogController;
+
+/**
+ * The StylesheetCache class compiles each XSL file only once and hands out per-thread
+ * transformers created from the compiled stylesheet. A stylesheet is compiled again
+ * when its file is modified on disk. The stylesheets are compiled with the transformer
+ * factory shared by the application, see Utilities.getTransformerFactory().
+ *
+ * A stylesheet precompiled to a translet by the build, see TransletCompiler, is loaded from
+ * the classpath instead of being compiled as long as its XSL file is the one it was compiled
+ * from. On a Java 9 or later runtime the translets also need the XSLTC packages of the
+ * java.xml module to be exported, which the manifest of the jar does when the application is
+ * run with "java -jar"; with "java -cp" they are exported by the "--add-exports" options given
+ * in build.xml. The stylesheet is compiled from its XSL file otherwise, with a warning.
+ *
+ * The messages are logged through LogController.getLogController() since the cache can be
+ * used before Smack.main has set Smack.logController.
+ *
+ * @version 1.0
+ */
+public class StylesheetCache {
+
+    private static final ConcurrentMap<String, CompiledStylesheet> STYLESHEETS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Map<String, ThreadTransformer>> TRANSFORMERS = new ThreadLocal<Map<String, ThreadTransformer>>() {
+        @Override
+        protected Map<String, ThreadTransformer> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private static final ThreadLocal<Transformer> IDENTITY_TRANSFORMERS = new ThreadLocal<>();
+
+    private static Properties transletIndex;
+    private static TransformerFactory transletFactory;
+
+    /**
+     * StylesheetCache class constructor hidden since the class only has static methods
+     */
+    private StylesheetCache() {
+    }
+
+    /**
+     * Get the compiled form of the parameterized XSL file
+     *
+     * @param xslFilename XSL file
+     * @return Thread-safe compiled stylesheet
+     * @throws TransformerConfigurationException
+     */
+    public static Templates getTemplates(String xslFilename) throws TransformerConfigurationException {
+
+        File xslFile = new File(xslFilename);
+        String key = xslFile.getAbsolutePath();
+        long lastModified = xslFile.lastModified();
+
+        // Check if the stylesheet has already been compiled and is still up to date
+        CompiledStylesheet compiled = STYLESHEETS.get(key);
+        if (compiled != null && compiled.lastModified == lastModified) {
+            return compiled.templates;
+        }
+
+        TransformerFactory transformerFactory = Utilities.getTransformerFactory();
+
+        // The transformer factory is not thread-safe
+        synchronized (transformerFactory) {
+
+            // Another thread may have compiled the stylesheet in the meantime
+            compiled = STYLESHEETS.get(key);
+            if (compiled == null || compiled.lastModified != lastModified) {
+
+                Templates templates = loadTranslet(xslFile);
+
+                if (templates == null) {
+                    templates = transformerFactory.newTemplates(new StreamSource(xslFile));
+                }
+
+                compiled = new CompiledStylesheet(lastModified, templates);
+                STYLESHEETS.put(key, compiled);
+            }
+        }
+
+        return compiled.templates;
+    }
+
+    /**
+     * Load the translet precompiled from the parameterized XSL file
+     *
+     * Called with the lock of the shared transformer factory held.
+     *
+     * @param xslFile XSL file
+     * @return Compiled stylesheet or null if there is no up to date translet that can be loaded
+     */
+    private static Templates loadTranslet(File xslFile) {
+
+        if (transletIndex == null) {
+            transletIndex = TransletCompiler.readIndex();
+        }
+
+        String checksum = transletIndex.getProperty(xslFile.getName());
+
+        if (checksum == null) {
+            return null;
+        }
+
+        try {
+            // The XSL file was modified since the build
+            if (!checksum.equals(TransletCompiler.getChecksum(xslFile))) {
+
+                // Log info
+                LogController.getLogController().log(Level.INFO, Smack.class.getSimpleName(), "Stylesheet \"" + xslFile.getName() + "\" differs from its translet, compiling it.");
+
+                return null;
+            }
+
+            // The translets are loaded by a factory of their own since their attributes would apply to any stylesheet
+            if (transletFactory == null) {
+                TransformerFactory factory = TransformerFactory.newInstance();
+                factory.setAttribute("use-classpath", Boolean.TRUE);
+                transletFactory = factory;
+            }
+
+            // Package and translet names are cleared after each stylesheet
+            transletFactory.setAttribute("package-name", TransletCompiler.getPackageName(xslFile));
+            transletFactory.setAttribute("translet-name", TransletCompiler.TRANSLET_NAME);
+
+            return transletFactory.newTemplates(new StreamSource(xslFile));
+
+        } catch (IOException | TransformerConfigurationException | IllegalArgumentException | LinkageError ex) {
+
+            // Log warning, the stylesheet is then compiled at each start
+            LogController.getLogController().log(Level.WARNING, Smack.class.getSimpleName(), "Translet of the stylesheet \"" + xslFile.getName() + "\" could not be loaded, compiling it: " + ex);
+        }
+
+        return null;
+    }
+
+    /**
+     * Get a transformer for the parameterized XSL file which is reserved for the calling thread
+     *
+     * @param xslFilename XSL file
+     * @return Transformer to be used by the calling thread only
+     * @throws TransformerConfigurationException
+     */
+    public static Transformer getTransformer(String xslFilename) throws TransformerConfigurationException {
+
+        Templates templates = getTemplates(xslFilename);
+
+        Map<String, ThreadTransformer> threadTransformers = TRANSFORMERS.get();
+        ThreadTransformer threadTransformer = threadTransformers.get(xslFilename);
+
+        // Create a new transformer when the stylesheet has been (re)compiled
+        if (threadTransformer == null || threadTransformer.templates != templates) {
+
+            threadTransformer = new ThreadTransformer(templates, templates.newTransformer());
+            threadTransformers.put(xslFilename, threadTransformer);
+        } else {
+
+            // Clear the parameters and output properties of the previous transformation
+            threadTransformer.transformer.reset();
+        }
+
+        return threadTransformer.transformer;
+    }
+
+    /**
+     * Get an identity transformer reserved for the calling thread
+     *
+     * @return Identity transformer to be used by the calling thread only
+     * @throws TransformerConfigurationException
+     */
+    public static Transformer getIdentityTransformer() throws TransformerConfigurationException {
+
+        Transformer transformer = IDENTITY_TRANSFORMERS.get();
+
+        if (transformer == null) {
+
+            TransformerFactory transformerFactory = Utilities.getTransformerFactory();
+
+            synchronized (transformerFactory) {
+                transformer = transformerFactory.newTransformer();
+            }
+
+            IDENTITY_TRANSFORMERS.set(transformer);
+        } else {
+            transformer.reset();
+        }
+
+        return transformer;
+    }
+
+    /**
+     * Compiled stylesheet along with the modification time of its XSL file
+     */
+    private static final class CompiledStylesheet {
+
+        private final long lastModified;
+        private final Templates templates;
+
+        private CompiledStylesheet(long lastModified, Templates templates) {
+            this.lastModified = lastModified;
+            this.templates = templates;
+        }
+    }
+
+    /**
+     * Transformer of a thread along with the compiled stylesheet it was created from
+     */
+    private static final class ThreadTransformer {
+
+        private final Templates templates;
+        private final Transformer transformer;
+
+        private ThreadTransformer(Templates templates, Transformer transformer) {
+            this.templates = templates;
+            this.transformer = transformer;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package smack.utilities;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * The TransletCompiler class compiles the stylesheets ahead of time to XSLTC translets
+ *
+ * It is run by the build after the compilation of the application: every XSL file of the
+ * stylesheet directory is compiled to a translet class in its own package under
+ * "smack.translets", and the checksum of each XSL file is written to the translet index so
+ * that StylesheetCache only loads a translet compiled from the XSL file found at runtime.
+ *
+ * A translet always gets the class name "die_verwandlung" since the XSLTC of the JDK loses
+ * the translet name when a package name is given, the stylesheets are told apart by their
+ * package instead.
+ *
+ * @version 1.0
+ */
+public final class TransletCompiler {
+
+    static final String TRANSLET_PACKAGE = "smack.translets";
+    static final String TRANSLET_NAME = "die_verwandlung";
+    static final String INDEX_RESOURCE = "/smack/translets/translets.properties";
+
+    /**
+     * TransletCompiler class constructor hidden since the class only has static methods
+     */
+    private TransletCompiler() {
+    }
+
+    /**
+     * Compile the stylesheets of a directory to translets
+     *
+     * @param args Stylesheet directory and classes directory receiving the translets
+     * @throws IOException
+     * @throws TransformerConfigurationException
+     */
+    public static void main(String[] args) throws IOException, TransformerConfigurationException {
+
+        if (args.length != 2) {
+            System.err.println("Usage: java smack.utilities.TransletCompiler xslDirectory classesDirectory");
+            System.exit(1);
+        }
+
+        File xslDirectory = new File(args[0]);
+        File classesDirectory = new File(args[1]);
+
+        File[] xslFiles = xslDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.toLowerCase(Locale.ENGLISH).endsWith(".xsl");
+            }
+        });
+
+        if (xslFiles == null) {
+            throw new IOException("Stylesheet directory \"" + xslDirectory.getPath() + "\" was not found.");
+        }
+
+        Arrays.sort(xslFiles);
+
+        Properties index = new Properties();
+
+        for (File xslFile : xslFiles) {
+
+            TransformerFactory transformerFactory = TransformerFactory.newInstance();
+            transformerFactory.setAttribute("generate-translet", Boolean.TRUE);
+            transformerFactory.setAttribute("destination-directory", classesDirectory.getPath());
+            transformerFactory.setAttribute("package-name", getPackageName(xslFile));
+            transformerFactory.newTemplates(new StreamSource(xslFile));
+
+            index.setProperty(xslFile.getName(), getChecksum(xslFile));
+
+            System.out.println("Compiled \"" + xslFile.getName() + "\" to " + getPackageName(xslFile) + "." + TRANSLET_NAME + ".");
+        }
+
+        File indexFile = new File(classesDirectory, INDEX_RESOURCE.substring(1));
+
+        if (!indexFile.getParentFile().isDirectory() && !indexFile.getParentFile().mkdirs()) {
+            throw new IOException("Directory \"" + indexFile.getParent() + "\" could not be created.");
+        }
+
+        try (OutputStream out = new FileOutputStream(indexFile)) {
+            index.store(out, "Checksums of the XSL files compiled to translets");
+        }
+    }
+
+    /**
+     * Get the package of the translet of an XSL file
+     *
+     * @param xslFile XSL file
+     * @return Package name made of the name of the XSL file
+     */
+    static String getPackageName(File xslFile) {
+
+        String name = xslFile.getName();
+        int extension = name.lastIndexOf('.');
+        StringBuilder packageName = new StringBuilder(TRANSLET_PACKAGE).append('.');
+
+        if (extension > 0) {
+            name = name.substring(0, extension);
+        }
+
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            packageName.append('_');
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            packageName.append(Character.isJavaIdentifierPart(name.charAt(i)) ? name.charAt(i) : '_');
+        }
+
+        return packageName.toString();
+    }
+
+    /**
+     * Get the checksum of an XSL file
+     *
+     * @param xslFile XSL file
+     * @return Length and CRC-32 of the file
+     * @throws IOException
+     */
+    static String getChecksum(File xslFile) throws IOException {
+
+        byte[] content = Files.readAllBytes(xslFile.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        return content.length + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Read the translet index packaged with the application
+     *
+     * @return Checksum of each XSL file compiled to a translet, empty when there is no index
+     */
+    static Properties readIndex() {
+
+        Properties index = new Properties();
+
+        try (InputStream in = TransletCompiler.class.getResourceAsStream(INDEX_RESOURCE)) {
+            if (in != null) {
+                index.load(in);
+            }
+        } catch (IOException ex) {
+            index.clear();
+        }
+
+        return index;
+    }
+}
@@ -2,38 +2,185 @@ package smack.utilities;
 
 import java.io.*;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.URLDecoder;
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.*;
+import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import sun.misc.IOUtils;
+import smack.Smack;
 
 
 /**
  * Utilities class groups static methods used throughout the application
  * 
+ * The shared JAXP factories are created on first use so that a run which does not need one
+ * of them does not pay for its lookup.
+ * 
  * @author Ammit Heeramun <ammit.heeramun@idsoft.mu>
  * @version 1.0
  */
 public class Utilities {
+    
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+    private static volatile String currentWorkingDirectory;
+    
+    /**
+     * Holder of the DOM parser factory, initialized on first use
+     */
+    private static final class DocumentBuilderFactoryHolder {
+        private static final DocumentBuilderFactory FACTORY = createDocumentBuilderFactory();
+    }
+    
+    /**
+     * Holder of the transformer factory, initialized on first use
+     */
+    private static final class TransformerFactoryHolder {
+        private static final TransformerFactory FACTORY = createTransformerFactory();
+    }
+    
+    /**
+     * Holder of the StAX factory, initialized on first use
+     */
+    private static final class XMLInputFactoryHolder {
+        private static final XMLInputFactory FACTORY = createXMLInputFactory();
+    }
+    
+    /**
+     * Create the DOM parser factory shared by the application
+     * 
+     * @return Namespace aware DOM parser factory with secure processing enabled
+     */
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (ParserConfigurationException ex) {
+            // The parser does not support secure processing, keep its default behaviour
+        }
+        
+        return factory;
+    }
+    
+    /**
+     * Create the transformer factory shared by the application
+     * 
+     * Secure processing is not enabled since it forbids the EXSLT extension functions
+     * used by the acknowledgement stylesheet (date:date-time).
+     * 
+     * @return Transformer factory
+     */
+    private static TransformerFactory createTransformerFactory() {
+        return TransformerFactory.newInstance();
+    }
+    
+    /**
+     * Create the StAX factory shared by the application
+     * 
+     * @return Namespace aware StAX factory that does not resolve external entities
+     */
+    private static XMLInputFactory createXMLInputFactory() {
+        
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        
+        return factory;
+    }
+    
+    /**
+     * Get a DOM parser reserved for the calling thread
+     * 
+     * @return DOM parser to be used by the calling thread only
+     * @throws ParserConfigurationException 
+     */
+    public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+        
+        DocumentBuilder documentBuilder = DOCUMENT_BUILDERS.get();
+        
+        if (documentBuilder == null) {
+            
+            // The factory is not guaranteed to be thread-safe
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactoryHolder.FACTORY;
+            
+            synchronized (documentBuilderFactory) {
+                documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            }
+            
+            DOCUMENT_BUILDERS.set(documentBuilder);
+        } else {
+            documentBuilder.reset();
+        }
+        
+        return documentBuilder;
+    }
+    
+    /**
+     * Get the transformer factory shared by the application
+     * 
+     * The factory is not guaranteed to be thread-safe, callers must synchronize on it.
+     * 
+     * @return Transformer factory
+     */
+    public static TransformerFactory getTransformerFactory() {
+        return TransformerFactoryHolder.FACTORY;
+    }
+    
+    /**
+     * Get the StAX factory shared by the application
+     * 
+     * The factory is configured once and may then be used by several threads to create readers.
+     * 
+     * @return StAX input factory
+     */
+    public static XMLInputFactory getXMLInputFactory() {
+        return XMLInputFactoryHolder.FACTORY;
+    }
 
     /**
      * Get the current working directory of the application
      *
+     * The directory is located once, from the location of the application classes.
+     *
      * @return The absolute path to the application working directory
      */
     public static String getCurrentWorkingDirectory() {
 
+        String workingDirectory = currentWorkingDirectory;
+
+        if (workingDirectory == null) {
+            workingDirectory = locateWorkingDirectory();
+            currentWorkingDirectory = workingDirectory;
+        }
+
+        return workingDirectory;
+    }
+
+    /**
+     * Locate the working directory of the application from the location of its classes
+     *
+     * @return The absolute path to the application working directory
+     */
+    private static String locateWorkingDirectory() {
+
         // Current class directory
         URL location = Utilities.class.getProtectionDomain().getCodeSource().getLocation();
         String path;
@@ -91,9 +238,8 @@ public class Utilities {
      */
     public static Document readXMLDocument(String xmlInputFilename) throws ParserConfigurationException, FileNotFoundException, SAXException, IOException {
 
-        // Parse the source XML file
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = dbf.newDocumentBuilder();
+        // Parse the source XML file keeping the namespaces so that the document can be transformed as is
+        DocumentBuilder db = getDocumentBuilder();
 
         // XML source file instance
         File sourceFile = new File(xmlInputFilename);
@@ -101,8 +247,8 @@ public class Utilities {
         // Check if the source file exists
         if (sourceFile.exists()) {
 
-            // Source file exists so we parse the XML file
-            return db.parse(sourceFile);
+            // Source file exists so we parse the XML file, read with a single read
+            return db.parse(FileIO.newInputStream(FileIO.read(sourceFile)), sourceFile.toURI().toString());
 
         } else {
 
@@ -119,41 +265,174 @@ public class Utilities {
      * @return Transformed XML document
      * @throws TransformerConfigurationException
      * @throws TransformerException
-     * @throws ParserConfigurationException
-     * @throws SAXException
-     * @throws IOException 
      */
-    public static Document transformXMLDocument(String xmlInputFilename, String xslFilename) throws TransformerConfigurationException, TransformerException, ParserConfigurationException, SAXException, IOException
+    public static Document transformXMLDocument(String xmlInputFilename, String xslFilename) throws TransformerConfigurationException, TransformerException
+    {
+        
+        File xmlInputFile = new File(xmlInputFilename);
+        InputStream xmlInput;
+        
+        try {
+            xmlInput = FileIO.newInputStream(FileIO.read(xmlInputFile));
+        } catch (IOException ex) {
+            throw new TransformerException(ex);
+        }
+        
+        // The input xml file is parsed by the transformer itself, no DOM is built for it
+        return transformXMLDocument(new StreamSource(xmlInput, xmlInputFile.toURI().toString()), xslFilename);
+    }
+    
+    /**
+     * Transform the parameterized XML document with the parameterized XSL file
+     * 
+     * The document is transformed from its DOM tree straight into a new DOM tree
+     * so that the missive is neither parsed again nor serialised in between.
+     * 
+     * @param xmlDocument Namespace aware XML document to transform
+     * @param xslFilename
+     * @return Transformed XML document
+     * @throws TransformerConfigurationException
+     * @throws TransformerException 
+     */
+    public static Document transformXMLDocument(Document xmlDocument, String xslFilename) throws TransformerConfigurationException, TransformerException
+    {
+        return transformXMLDocument(new DOMSource(xmlDocument), xslFilename);
+    }
+    
+    /**
+     * Transform the parameterized XML source with the parameterized XSL file
+     * 
+     * The result of the transformation is built straight into a new DOM tree.
+     * 
+     * @param xmlSource XML source to transform
+     * @param xslFilename
+     * @return Transformed XML document
+     * @throws TransformerConfigurationException
+     * @throws TransformerException 
+     */
+    public static Document transformXMLDocument(Source xmlSource, String xslFilename) throws TransformerConfigurationException, TransformerException
     {
         
-        // Instantiate the transformer factory object
-        TransformerFactory factory = TransformerFactory.newInstance();
+        // Get the transformer of the compiled stylesheet
+        Transformer transformer = StylesheetCache.getTransformer(xslFilename);
         
-        // Read the xsl file
-        Source xslt = new StreamSource(new File(xslFilename));
+        // Instantiate the output tree
+        DOMResult outputTree = new DOMResult();
         
-        // Instatiate the transformer
-        Transformer transformer = factory.newTransformer(xslt);
+        transformer.transform(xmlSource, outputTree);
         
-        // Read the input xml file
-        Source text = new StreamSource(new File(xmlInputFilename));
+        return (Document) outputTree.getNode();
+    }
+    
+    
+    /**
+     * Write the parameterized document to a result, provided that its serialisation is well-formed XML
+     * 
+     * The serialiser escapes the text it writes, except the text output with the escaping
+     * disabled, which the stylesheet does for the fields it copies from the missive: such a
+     * field holding a markup character can make the acknowledgement unreadable. Only the
+     * documents holding such a field are serialised to memory and checked, the serialisation
+     * being then written to the result as is; the others are written directly.
+     * 
+     * @param doc Document to write
+     * @param result Result to which the document is written
+     * @throws TransformerException When the serialisation of the document is not well-formed
+     */
+    public static void writeWellFormedXmlDocument(Document doc, Result result) throws TransformerException {
         
-        // Instantiate the output stream
-        //StreamResult outputStream = new StreamResult(new File(xmlOutputFilename));
-        StreamResult outputStream = new StreamResult(new StringWriter());
+        if (!(result instanceof StreamResult) || !hasUnescapedMarkup(doc, false)) {
+            writeXmlDocument(doc, result);
+            return;
+        }
         
-        //new StreamResult(new File("output.xml"))
-        transformer.transform(text, outputStream);
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream(4096);
+        StylesheetCache.getIdentityTransformer().transform(new DOMSource(doc), new StreamResult(serialized));
         
-        String outputString = outputStream.getWriter().toString();
+        try {
+            checkWellFormed(serialized.toByteArray());
+        } catch (XMLStreamException ex) {
+            throw new TransformerException("The acknowledgement is not well-formed XML: " + ex.getLocalizedMessage(), ex);
+        }
         
-         // Parse the source XML file
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = dbFactory.newDocumentBuilder();
+        StreamResult streamResult = (StreamResult) result;
         
-        return builder.parse(new InputSource(new StringReader(outputString)));
+        try {
+            if (streamResult.getOutputStream() != null) {
+                serialized.writeTo(streamResult.getOutputStream());
+            } else if (streamResult.getWriter() != null) {
+                streamResult.getWriter().write(serialized.toString("UTF-8"));
+            } else if (streamResult.getSystemId() != null && streamResult.getSystemId().startsWith("file:")) {
+                try (OutputStream out = FileIO.newOutputStream(new File(URI.create(streamResult.getSystemId())))) {
+                    serialized.writeTo(out);
+                }
+            } else {
+                writeXmlDocument(doc, result);
+            }
+        } catch (IOException ex) {
+            throw new TransformerException(ex);
+        }
     }
     
+    /**
+     * Check that a serialised document is well-formed XML
+     * 
+     * @param xml Serialised document
+     * @throws XMLStreamException When the document is not well-formed
+     */
+    public static void checkWellFormed(byte[] xml) throws XMLStreamException {
+        
+        XMLStreamReader streamReader = getXMLInputFactory().createXMLStreamReader(new ByteArrayInputStream(xml));
+        
+        try {
+            while (streamReader.hasNext()) {
+                streamReader.next();
+            }
+        } finally {
+            streamReader.close();
+        }
+    }
+    
+    /**
+     * Check whether a text whose output escaping is disabled holds a markup character
+     * 
+     * The text output without escaping lies between the disable-output-escaping and
+     * enable-output-escaping processing instructions.
+     * 
+     * @param node Node to search
+     * @param unescaped Whether the escaping is disabled at the start of the node
+     * @return Whether an unescaped text holding a '<', a '&amp;' or "]]&gt;" was found
+     */
+    private static boolean hasUnescapedMarkup(Node node, boolean unescaped) {
+        
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            
+            switch (child.getNodeType()) {
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                    if (Result.PI_DISABLE_OUTPUT_ESCAPING.equals(child.getNodeName())) {
+                        unescaped = true;
+                    } else if (Result.PI_ENABLE_OUTPUT_ESCAPING.equals(child.getNodeName())) {
+                        unescaped = false;
+                    }
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    String text = child.getNodeValue();
+                    if (unescaped && (text.indexOf('<') >= 0 || text.indexOf('&') >= 0 || text.contains("]]>"))) {
+                        return true;
+                    }
+                    break;
+                case Node.ELEMENT_NODE:
+                    if (hasUnescapedMarkup(child, unescaped)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        return false;
+    }
     
     /**
      * Write the parameterized document to a file
@@ -164,21 +443,65 @@ public class Utilities {
      */
     public static void writeXmlDocument(Document doc, String filename) throws TransformerConfigurationException, TransformerException {
         
-            // Prepare the DOM document for writing
-            Source source = new DOMSource(doc);
- 
             // Prepare the output file
             File file = new File(filename);
             Result result = new StreamResult(file);
  
             // Write the DOM document to the file
-            Transformer xformer = TransformerFactory.newInstance().newTransformer();
-            xformer.transform(source, result);
+            writeXmlDocument(doc, result);
+    }
+    
+    /**
+     * Write the parameterized document to a stream
+     * 
+     * The stream is neither flushed nor closed.
+     * 
+     * @param doc
+     * @param outputStream
+     * @throws TransformerConfigurationException
+     * @throws TransformerException 
+     */
+    public static void writeXmlDocument(Document doc, OutputStream outputStream) throws TransformerConfigurationException, TransformerException {
+        
+            // Write the DOM document to the stream
+            Transformer xformer = StylesheetCache.getIdentityTransformer();
+            xformer.transform(new DOMSource(doc), new StreamResult(outputStream));
+    }
+    
+    /**
+     * Write the parameterized document to a result
+     * 
+     * A stream result of a file is written through the buffered channel of FileIO.
+     * 
+     * @param doc
+     * @param result
+     * @throws TransformerConfigurationException
+     * @throws TransformerException 
+     */
+    public static void writeXmlDocument(Document doc, Result result) throws TransformerConfigurationException, TransformerException {
+        
+            // Write the DOM document to the result
+            Transformer xformer = StylesheetCache.getIdentityTransformer();
+            
+            if (!(result instanceof StreamResult) || ((StreamResult) result).getOutputStream() != null || ((StreamResult) result).getWriter() != null
+                    || result.getSystemId() == null || !result.getSystemId().startsWith("file:")) {
+                xformer.transform(new DOMSource(doc), result);
+                return;
+            }
+            
+            try (OutputStream out = FileIO.newOutputStream(new File(URI.create(result.getSystemId())))) {
+                xformer.transform(new DOMSource(doc), new StreamResult(out));
+            } catch (IOException ex) {
+                throw new TransformerException(ex);
+            }
     }
     
     /**
      * Read an HTTP URL
      * 
+     * The connection and the reading are bounded by the "verificationWSConnectTimeout" and
+     * "verificationWSReadTimeout" configurations, in milliseconds.
+     * 
      * @param url
      * @return The returned string of data
      * @throws MalformedURLException
@@ -189,8 +512,13 @@ public class Utilities {
         // Convert the string to a url
         URL u = new URL(url);
         
+        // Open the connection with bounded timeouts
+        URLConnection connection = u.openConnection();
+        connection.setConnectTimeout(getTimeout("verificationWSConnectTimeout", 5000));
+        connection.setReadTimeout(getTimeout("verificationWSReadTimeout", 10000));
+        
         // Open input stream
-        InputStream in = u.openStream();
+        InputStream in = connection.getInputStream();
         String response;
         try (BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
             StringBuilder sb = new StringBuilder();
@@ -204,4 +532,16 @@ public class Utilities {
         
         return response;
     }
+    
+    /**
+     * Get a timeout of the configuration
+     * 
+     * @param name Name of the property
+     * @param defaultValue Timeout used when the property is not defined
+     * @return Timeout in milliseconds
+     */
+    private static int getTimeout(String name, int defaultValue) {
+        
+        return ConfigReader.getIntProperty(Smack.smackConfig, name, defaultValue);
+    }
 }
@@ -0,0 +1,183 @@
+package smack.verification;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import smack.Smack;
+import smack.controller.LogController;
+import smack.utilities.NanoClock;
+
+/**
+ * The CircuitBreaker class stops the queries to a failing web service for a while
+ *
+ * The breaker opens after "verificationBreakerFailures" consecutive failures and then rejects
+ * every query for "verificationBreakerOpenTime" milliseconds. A single trial query is then let
+ * through: the breaker closes again if it succeeds and opens again if it fails.
+ *
+ * Failures are counted per request, not per attempt: the retries of a request and the requests
+ * already in flight when a failure is counted, such as the other checks of the same missive or
+ * the other queries of the same batch, do not add to the consecutive failures.
+ *
+ * @version 1.0
+ */
+public class CircuitBreaker implements CircuitBreakerMXBean {
+
+    /**
+     * State of a circuit breaker
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final NanoClock clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openTime;
+    private long lastFailureTime;
+    private boolean trialInProgress;
+    private long openCount;
+    private long rejectedCount;
+
+    /**
+     * CircuitBreaker class constructor
+     *
+     * @param name Name of the protected service used in the log
+     * @param failureThreshold Number of consecutive failures opening the breaker, 0 to never open it
+     * @param openMillis Time during which the queries are rejected once the breaker is open
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, NanoClock.SYSTEM);
+    }
+
+    /**
+     * CircuitBreaker class constructor
+     *
+     * @param name Name of the protected service used in the log
+     * @param failureThreshold Number of consecutive failures opening the breaker, 0 to never open it
+     * @param openMillis Time during which the queries are rejected once the breaker is open
+     * @param clock Clock of the open time and of the request start times
+     */
+    CircuitBreaker(String name, int failureThreshold, long openMillis, NanoClock clock) {
+
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.clock = clock;
+        this.lastFailureTime = clock.nanoTime();
+    }
+
+    /**
+     * Check whether a query may be sent to the service
+     *
+     * @return Whether the query may be sent, false when it must fail at once
+     */
+    public synchronized boolean allowRequest() {
+
+        switch (this.state) {
+
+            case CLOSED:
+                return true;
+
+            case OPEN:
+                if (this.clock.nanoTime() - this.openTime >= this.openNanos) {
+
+                    // Let a single query find out whether the service is back
+                    this.state = State.HALF_OPEN;
+                    this.trialInProgress = true;
+                    return true;
+                }
+                break;
+
+            default:
+                if (!this.trialInProgress) {
+                    this.trialInProgress = true;
+                    return true;
+                }
+                break;
+        }
+
+        this.rejectedCount++;
+        return false;
+    }
+
+    /**
+     * Record a query answered by the service
+     */
+    public synchronized void recordSuccess() {
+
+        if (this.state != State.CLOSED) {
+
+            // Log info
+            LogController.getLogController().log(Level.INFO, Smack.class.getSimpleName(), "Service \"" + this.name + "\" is available again, its circuit breaker is closed.");
+        }
+
+        this.state = State.CLOSED;
+        this.consecutiveFailures = 0;
+        this.trialInProgress = false;
+    }
+
+    /**
+     * Record a query which the service failed to answer
+     *
+     * @param requestStartTime Time at which the request started, before its first attempt
+     */
+    public synchronized void recordFailure(long requestStartTime) {
+
+        // The trial failed, or the failure belongs to a request already in flight at the last failure
+        if (this.state != State.HALF_OPEN) {
+
+            if (requestStartTime - this.lastFailureTime < 0) {
+                return;
+            }
+
+            this.consecutiveFailures++;
+            this.lastFailureTime = this.clock.nanoTime();
+        }
+
+        if (this.state == State.HALF_OPEN || (this.state == State.CLOSED && this.failureThreshold > 0 && this.consecutiveFailures >= this.failureThreshold)) {
+
+            this.state = State.OPEN;
+            this.openTime = this.clock.nanoTime();
+            this.trialInProgress = false;
+            this.openCount++;
+
+            // Log warning
+            LogController.getLogController().log(Level.WARNING, Smack.class.getSimpleName(), "Service \"" + this.name + "\" failed " + this.consecutiveFailures
+                    + " time(s) in a row, its circuit breaker is open for " + TimeUnit.NANOSECONDS.toMillis(this.openNanos) + " ms.");
+        }
+    }
+
+    /**
+     * Record a query which ended without an answer nor a failure of the service, such as an interrupted query
+     *
+     * The trial query of a half open breaker is let through again.
+     */
+    public synchronized void releaseTrial() {
+
+        if (this.state == State.HALF_OPEN) {
+            this.trialInProgress = false;
+        }
+    }
+
+    @Override
+    public synchronized String getState() {
+        return this.state.toString();
+    }
+
+    @Override
+    public synchronized int getConsecutiveFailures() {
+        return this.consecutiveFailures;
+    }
+
+    @Override
+    public synchronized long getOpenCount() {
+        return this.openCount;
+    }
+
+    @Override
+    public synchronized long getRejectedCount() {
+        return this.rejectedCount;
+    }
+}
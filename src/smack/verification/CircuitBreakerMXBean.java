@@ -0,0 +1,17 @@
+package smack.verification;
+
+/**
+ * Management interface of a circuit breaker
+ *
+ * @version 1.0
+ */
+public interface CircuitBreakerMXBean {
+
+    String getState();
+
+    int getConsecutiveFailures();
+
+    long getOpenCount();
+
+    long getRejectedCount();
+}
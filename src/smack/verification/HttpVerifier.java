@@ -0,0 +1,99 @@
+package smack.verification;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import smack.Smack;
+
+/**
+ * The HttpVerifier class performs the verifications of a nominal missive through the verification web service
+ * 
+ * @version 1.0
+ */
+public class HttpVerifier implements Verifier {
+    
+    private String wsDomain;
+    
+    /**
+     * HttpVerifier class constructor
+     * 
+     * @param wsDomain URL of the verification web service
+     */
+    public HttpVerifier(String wsDomain) {
+        this.wsDomain = wsDomain;
+    }
+    
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+    
+    @Override
+    public Boolean verifyReceiver(String receiverBIC, String receiverIBAN) throws IOException {
+        
+        if(this.isWebServiceDefined()) {
+            // Get the response after verification
+            return Boolean.parseBoolean(VerificationClient.getVerificationClient().queryCached(this.wsDomain, "verify_receiver", "receiverBIC", receiverBIC, "receiverIBAN", receiverIBAN));
+        } else {}
+        
+        return false;
+    }
+    
+    @Override
+    public Boolean verifySender(String senderBIC, String senderIBAN) throws IOException {
+        
+        if(this.isWebServiceDefined()) {
+            // Get the response after verification
+            return Boolean.parseBoolean(VerificationClient.getVerificationClient().queryCached(this.wsDomain, "verify_sender", "senderBIC", senderBIC, "senderIBAN", senderIBAN));
+        } else {}
+        
+        return false;
+    }
+    
+    @Override
+    public Boolean verifyCorrectDate(String sendDateTime) throws IOException {
+        
+        if(this.isWebServiceDefined()) {
+            // Get the response after verification
+            return Boolean.parseBoolean(VerificationClient.getVerificationClient().query(this.wsDomain, "verify_date_correct", "date", sendDateTime));
+        } else {}
+        
+        return false;
+    }
+    
+    @Override
+    public Boolean verifyPassedDate(String sendDateTime) throws IOException {
+        
+        if(this.isWebServiceDefined()) {
+            // Get the response after verification
+            return Boolean.parseBoolean(VerificationClient.getVerificationClient().query(this.wsDomain, "verify_date_passed", "date", sendDateTime));
+        } else {}
+        
+        return false;
+    }
+    
+    @Override
+    public String verifyPriority(String priority) throws IOException {
+        
+        if(this.isWebServiceDefined()) {
+            // Get the response after verification
+            return VerificationClient.getVerificationClient().query(this.wsDomain, "verify_priority", "priority", priority);
+        } else {}
+        
+        return "false";
+    }
+    
+    /**
+     * Check whether the URL of the web service has been configured
+     * 
+     * @return Whether the URL of the web service is defined
+     */
+    private Boolean isWebServiceDefined() {
+        
+        if(this.wsDomain == null) {
+            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Webservice url is not define in the config file.");
+            return false;
+        }
+        
+        return true;
+    }
+}
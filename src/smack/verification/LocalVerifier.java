@@ -0,0 +1,231 @@
+package smack.verification;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+
+/**
+ * The LocalVerifier class performs the verifications of a nominal missive in-process
+ *
+ * The lists of handled receivers, allowed senders, black listed QXBANs and handled priorities
+ * are loaded once from the same configuration files as the ones of the verification web service:
+ * configRcvBIC.ini, configRcvQXBAN.ini, configSndBIC.ini, configSndBlackListQxban.ini and
+ * configPriority.ini.
+ *
+ * @version 1.0
+ */
+public class LocalVerifier implements Verifier {
+
+    private static final long DATE_CORRECT_TOLERANCE = 3000;
+    private static final Pattern QXBAN_SUFFIX_PATTERN = Pattern.compile("[A-Z0-9]*");
+
+    private final Set<String> receiverBICs;
+    private final Set<String> receiverQXBANs;
+    private final Set<String> senderBICs;
+    private final Set<String> blackListedQXBANs;
+    private final Set<String> priorities;
+    private final String defaultPriority;
+    private final DatatypeFactory datatypeFactory;
+
+    /**
+     * LocalVerifier class constructor
+     *
+     * @param rulesDirectory Directory containing the verification configuration files
+     * @throws IOException
+     */
+    public LocalVerifier(String rulesDirectory) throws IOException {
+
+        this.receiverBICs = readList(new File(rulesDirectory, "configRcvBIC.ini"), "bicList");
+        this.receiverQXBANs = readList(new File(rulesDirectory, "configRcvQXBAN.ini"), "qxbanList");
+        this.senderBICs = readList(new File(rulesDirectory, "configSndBIC.ini"), "bicList");
+        this.blackListedQXBANs = readList(new File(rulesDirectory, "configSndBlackListQxban.ini"), "qxbanList");
+
+        Map<String, List<String>> priorityConfig = readIniFile(new File(rulesDirectory, "configPriority.ini"));
+        this.priorities = toSet(priorityConfig.get("priorityList"));
+        this.defaultPriority = priorityConfig.containsKey("priorityDefault") ? priorityConfig.get("priorityDefault").get(0) : "false";
+
+        try {
+            this.datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public Boolean verifyReceiver(String receiverBIC, String receiverIBAN) {
+        return this.receiverBICs.contains(receiverBIC) && this.receiverQXBANs.contains(receiverIBAN);
+    }
+
+    @Override
+    public Boolean verifySender(String senderBIC, String senderIBAN) {
+        return this.senderBICs.contains(senderBIC) && isValidQXBAN(senderIBAN, senderBIC) && !this.blackListedQXBANs.contains(senderIBAN);
+    }
+
+    @Override
+    public Boolean verifyCorrectDate(String sendDateTime) {
+
+        long sendTime = this.parseDateTime(sendDateTime);
+
+        // The send datetime may be slightly ahead of the local clock
+        return sendTime != Long.MIN_VALUE && sendTime < System.currentTimeMillis() + DATE_CORRECT_TOLERANCE;
+    }
+
+    @Override
+    public Boolean verifyPassedDate(String sendDateTime) {
+
+        long sendTime = this.parseDateTime(sendDateTime);
+
+        return sendTime != Long.MIN_VALUE && sendTime < System.currentTimeMillis();
+    }
+
+    @Override
+    public String verifyPriority(String priority) {
+        return this.priorities.contains(priority) ? "true" : this.defaultPriority;
+    }
+
+    /**
+     * Check whether the parameterized QXBAN is valid with regard to the SEPAmail documentation
+     *
+     * The QXBAN is 34 characters long and made of "QX", two digits, the BIC on eleven
+     * characters and uppercase letters or digits.
+     *
+     * @see http://documentation.sepamail.eu/wiki/Standards:Algorithme_de_g%C3%A9n%C3%A9ration_du_QXBAN
+     * @param qxban QXBAN to check
+     * @param bic BIC owning the QXBAN
+     * @return Whether the QXBAN is valid
+     */
+    private static boolean isValidQXBAN(String qxban, String bic) {
+
+        if(qxban.length() != 34) {
+            return false;
+        } else {}
+
+        // If the lenght of the BIC is eight characters concatenate "XXX" to it
+        String fullBIC = bic.length() == 8 ? bic + "XXX" : bic;
+
+        return qxban.startsWith("QX")
+                && Character.isDigit(qxban.charAt(2)) && Character.isDigit(qxban.charAt(3))
+                && qxban.startsWith(fullBIC, 4)
+                && QXBAN_SUFFIX_PATTERN.matcher(qxban.substring(4 + fullBIC.length())).matches();
+    }
+
+    /**
+     * Parse an ISO 8601 datetime, using the default time zone when none is given
+     *
+     * @param dateTime Datetime to parse
+     * @return Time in milliseconds since 1970 or Long.MIN_VALUE if the datetime is invalid
+     */
+    private long parseDateTime(String dateTime) {
+
+        try {
+            return this.datatypeFactory.newXMLGregorianCalendar(dateTime).toGregorianCalendar().getTimeInMillis();
+        } catch (IllegalArgumentException ex) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Read a list of values from a configuration file
+     *
+     * @param iniFile Configuration file
+     * @param name Name of the list
+     * @return Values of the list
+     * @throws IOException
+     */
+    private static Set<String> readList(File iniFile, String name) throws IOException {
+        return toSet(readIniFile(iniFile).get(name));
+    }
+
+    /**
+     * Convert a list of values to a set
+     *
+     * @param values List of values, possibly null
+     * @return Set of values
+     */
+    private static Set<String> toSet(List<String> values) {
+        return values != null ? new HashSet<>(values) : new HashSet<String>();
+    }
+
+    /**
+     * Read a configuration file in the "ini" format of the verification web service
+     *
+     * Both "key = value" and "key[] = value" entries are supported, the values of every key
+     * being collected in a list. Sections are ignored.
+     *
+     * @param iniFile Configuration file
+     * @return Values of each key
+     * @throws IOException
+     */
+    private static Map<String, List<String>> readIniFile(File iniFile) throws IOException {
+
+        Map<String, List<String>> entries = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(iniFile), "UTF-8"))) {
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+
+                line = line.trim();
+
+                // Skip empty lines, comments and sections
+                if(line.isEmpty() || line.startsWith(";") || line.startsWith("#") || line.startsWith("[")) {
+                    continue;
+                }
+
+                int equalIndex = line.indexOf('=');
+                if(equalIndex < 0) {
+                    continue;
+                }
+
+                String key = line.substring(0, equalIndex).trim();
+                String value = unquote(line.substring(equalIndex + 1).trim());
+
+                if(key.endsWith("[]")) {
+                    key = key.substring(0, key.length() - 2).trim();
+                }
+
+                List<String> values = entries.get(key);
+                if(values == null) {
+                    values = new ArrayList<>();
+                    entries.put(key, values);
+                }
+
+                values.add(value);
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Remove the quotes surrounding a value of a configuration file
+     *
+     * @param value Value of a configuration file
+     * @return Value without its quotes
+     */
+    private static String unquote(String value) {
+
+        if(value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+
+        return value;
+    }
+}
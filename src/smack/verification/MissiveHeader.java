@@ -0,0 +1,173 @@
+package smack.verification;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The MissiveHeader class holds the fields of a missive needed for its verification
+ *
+ * @version 1.0
+ */
+public final class MissiveHeader {
+
+    private final String missiveType;
+    private final String priority;
+    private final String senderBIC;
+    private final String senderIBAN;
+    private final String sendDateTime;
+    private final String receiverBIC;
+    private final String receiverIBAN;
+
+    /**
+     * MissiveHeader class constructor
+     *
+     * @param missiveType Type of the missive (MsvTyp)
+     * @param priority Priority of the missive (MsvPri)
+     * @param senderBIC BIC of the sender (Snd)
+     * @param senderIBAN QXBAN of the sender (Snd)
+     * @param sendDateTime Send datetime of the missive (SndDtTm)
+     * @param receiverBIC BIC of the receiver (Rcv)
+     * @param receiverIBAN QXBAN of the receiver (Rcv)
+     */
+    public MissiveHeader(String missiveType, String priority, String senderBIC, String senderIBAN, String sendDateTime, String receiverBIC, String receiverIBAN) {
+
+        this.missiveType = missiveType;
+        this.priority = priority;
+        this.senderBIC = senderBIC;
+        this.senderIBAN = senderIBAN;
+        this.sendDateTime = sendDateTime;
+        this.receiverBIC = receiverBIC;
+        this.receiverIBAN = receiverIBAN;
+    }
+
+    /**
+     * Read the header fields of a missive XML document
+     *
+     * @param missiveXMLDocument XML document representing the missive
+     * @return Header of the missive
+     */
+    public static MissiveHeader fromDocument(Document missiveXMLDocument) {
+
+        // Get the receiver and sender tags
+        Node receiverNode = missiveXMLDocument.getElementsByTagName("sem:Rcv").item(0);
+        Node senderNode = missiveXMLDocument.getElementsByTagName("sem:Snd").item(0);
+
+        return new MissiveHeader(
+                getText(missiveXMLDocument.getElementsByTagName("sem:MsvTyp")),
+                getText(missiveXMLDocument.getElementsByTagName("sem:MsvPri")),
+                getChildText(senderNode, 1),
+                getChildText(senderNode, 3),
+                getText(missiveXMLDocument.getElementsByTagName("sem:SndDtTm")),
+                getChildText(receiverNode, 1),
+                getChildText(receiverNode, 3));
+    }
+
+    /**
+     * Get the trimmed text of the first node of a list
+     *
+     * @param nodeList List of nodes
+     * @return Text of the first node or null if the list is empty
+     */
+    private static String getText(NodeList nodeList) {
+        return nodeList.getLength() > 0 ? nodeList.item(0).getTextContent().trim() : null;
+    }
+
+    /**
+     * Get the trimmed text of a child of a node
+     *
+     * @param node Parent node, possibly null
+     * @param index Index of the child node
+     * @return Text of the child node or null if there is no such child
+     */
+    private static String getChildText(Node node, int index) {
+
+        if(node == null || node.getChildNodes().getLength() <= index) {
+            return null;
+        }
+
+        return node.getChildNodes().item(index).getTextContent().trim();
+    }
+
+    /**
+     * Check whether the missive is of type nominal
+     *
+     * @return Whether the missive is of type nominal
+     */
+    public Boolean isNominal() {
+        return "Nominal".equals(this.missiveType);
+    }
+
+    /**
+     * Check whether all the fields needed by the verifications are present
+     *
+     * @return Whether the header is complete
+     */
+    public Boolean isComplete() {
+        return this.priority != null && this.senderBIC != null && this.senderIBAN != null && this.sendDateTime != null
+                && this.receiverBIC != null && this.receiverIBAN != null;
+    }
+
+    /**
+     * Get the type of the missive
+     *
+     * @return Type of the missive
+     */
+    public String getMissiveType() {
+        return missiveType;
+    }
+
+    /**
+     * Get the priority of the missive
+     *
+     * @return Priority of the missive
+     */
+    public String getPriority() {
+        return priority;
+    }
+
+    /**
+     * Get the BIC of the sender
+     *
+     * @return BIC of the sender
+     */
+    public String getSenderBIC() {
+        return senderBIC;
+    }
+
+    /**
+     * Get the QXBAN of the sender
+     *
+     * @return QXBAN of the sender
+     */
+    public String getSenderIBAN() {
+        return senderIBAN;
+    }
+
+    /**
+     * Get the send datetime of the missive
+     *
+     * @return Send datetime of the missive
+     */
+    public String getSendDateTime() {
+        return sendDateTime;
+    }
+
+    /**
+     * Get the BIC of the receiver
+     *
+     * @return BIC of the receiver
+     */
+    public String getReceiverBIC() {
+        return receiverBIC;
+    }
+
+    /**
+     * Get the QXBAN of the receiver
+     *
+     * @return QXBAN of the receiver
+     */
+    public String getReceiverIBAN() {
+        return receiverIBAN;
+    }
+}
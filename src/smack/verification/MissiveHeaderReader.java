@@ -0,0 +1,233 @@
+package smack.verification;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import smack.utilities.Utilities;
+
+/**
+ * The MissiveHeaderReader class extracts the header of a missive in a single forward pass
+ *
+ * The missive is read with StAX and the reading stops as soon as all the header fields
+ * have been found, so the body of the missive is never read. The fields are matched on
+ * their local name: MsvTyp, MsvPri, SndDtTm, and the first two child elements of Snd
+ * and Rcv which hold the BIC and the QXBAN.
+ *
+ * @version 1.0
+ */
+public class MissiveHeaderReader {
+
+    private static final int NONE = 0;
+    private static final int MISSIVE_TYPE = 1;
+    private static final int PRIORITY = 2;
+    private static final int SEND_DATE_TIME = 3;
+    private static final int SENDER = 4;
+    private static final int RECEIVER = 5;
+
+    private String missiveType;
+    private String priority;
+    private String sendDateTime;
+    private String[] sender;
+    private String[] receiver;
+
+    /**
+     * MissiveHeaderReader class constructor hidden since a reader is used for a single missive
+     */
+    private MissiveHeaderReader() {
+    }
+
+    /**
+     * Read the header of the parameterized missive file
+     *
+     * @param xmlInputFilename Missive file
+     * @return Header of the missive
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static MissiveHeader read(String xmlInputFilename) throws FileNotFoundException, IOException, XMLStreamException {
+
+        File sourceFile = new File(xmlInputFilename);
+
+        // Check if the source file exists
+        if (!sourceFile.exists()) {
+            throw new FileNotFoundException("The specified source file, " + xmlInputFilename + ", was not found.");
+        }
+
+        // The file is streamed so that only its start is read
+        try (InputStream in = new FileInputStream(sourceFile)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Read the header of a missive from the parameterized stream
+     *
+     * The stream is left open and positioned somewhere after the header.
+     *
+     * @param in Missive stream
+     * @return Header of the missive
+     * @throws XMLStreamException
+     */
+    public static MissiveHeader read(InputStream in) throws XMLStreamException {
+
+        XMLStreamReader streamReader = Utilities.getXMLInputFactory().createXMLStreamReader(in);
+
+        try {
+            MissiveHeaderReader headerReader = new MissiveHeaderReader();
+            headerReader.parse(streamReader);
+
+            return new MissiveHeader(headerReader.missiveType, headerReader.priority,
+                    headerReader.sender != null ? headerReader.sender[0] : null,
+                    headerReader.sender != null ? headerReader.sender[1] : null,
+                    headerReader.sendDateTime,
+                    headerReader.receiver != null ? headerReader.receiver[0] : null,
+                    headerReader.receiver != null ? headerReader.receiver[1] : null);
+        } finally {
+            streamReader.close();
+        }
+    }
+
+    /**
+     * Pull the header fields from the stream until they have all been found
+     *
+     * @param streamReader StAX stream positioned at the start of the missive
+     * @throws XMLStreamException
+     */
+    private void parse(XMLStreamReader streamReader) throws XMLStreamException {
+
+        StringBuilder text = new StringBuilder(64);
+        int depth = 0;
+
+        // Field whose text is being read and the depth of its element
+        int field = NONE;
+        int fieldDepth = 0;
+
+        // Party (sender or receiver) whose children are being read
+        int party = NONE;
+        int partyDepth = 0;
+        int partyChild = 0;
+
+        while (streamReader.hasNext() && !this.isComplete()) {
+
+            switch (streamReader.next()) {
+
+                case XMLStreamConstants.START_ELEMENT:
+
+                    depth++;
+
+                    if (field != NONE) {
+                        // Element nested in a field, its text is part of the field
+                        break;
+                    }
+
+                    if (party != NONE) {
+
+                        // The first two children of the party are its BIC and its QXBAN
+                        if (depth == partyDepth + 1 && partyChild < 2) {
+                            field = party;
+                            fieldDepth = depth;
+                            text.setLength(0);
+                        }
+                        break;
+                    }
+
+                    String localName = streamReader.getLocalName();
+
+                    if (this.missiveType == null && "MsvTyp".equals(localName)) {
+                        field = MISSIVE_TYPE;
+                    } else if (this.priority == null && "MsvPri".equals(localName)) {
+                        field = PRIORITY;
+                    } else if (this.sendDateTime == null && "SndDtTm".equals(localName)) {
+                        field = SEND_DATE_TIME;
+                    } else if (this.sender == null && "Snd".equals(localName)) {
+                        this.sender = new String[2];
+                        party = SENDER;
+                    } else if (this.receiver == null && "Rcv".equals(localName)) {
+                        this.receiver = new String[2];
+                        party = RECEIVER;
+                    }
+
+                    if (field != NONE) {
+                        fieldDepth = depth;
+                        text.setLength(0);
+                    } else if (party != NONE) {
+                        partyDepth = depth;
+                        partyChild = 0;
+                    }
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+
+                    if (field != NONE) {
+                        text.append(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+                    }
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+
+                    if (field != NONE && depth == fieldDepth) {
+
+                        String value = text.toString().trim();
+
+                        switch (field) {
+                            case MISSIVE_TYPE:
+                                this.missiveType = value;
+                                break;
+                            case PRIORITY:
+                                this.priority = value;
+                                break;
+                            case SEND_DATE_TIME:
+                                this.sendDateTime = value;
+                                break;
+                            case SENDER:
+                                this.sender[partyChild++] = value;
+                                break;
+                            case RECEIVER:
+                                this.receiver[partyChild++] = value;
+                                break;
+                            default:
+                                break;
+                        }
+
+                        field = NONE;
+
+                    } else if (party != NONE && depth == partyDepth) {
+                        party = NONE;
+                    }
+
+                    depth--;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Check whether the reading can stop
+     *
+     * The reading stops once every field has been found, or as soon as the missive is
+     * known not to be nominal.
+     *
+     * @return Whether the header is complete
+     */
+    private boolean isComplete() {
+
+        if (this.missiveType != null && !"Nominal".equals(this.missiveType)) {
+            return true;
+        }
+
+        return this.missiveType != null && this.priority != null && this.sendDateTime != null
+                && this.sender != null && this.sender[1] != null
+                && this.receiver != null && this.receiver[1] != null;
+    }
+}
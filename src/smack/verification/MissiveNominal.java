@@ -1,12 +1,17 @@
 package smack.verification;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.net.URLEncoder;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 import smack.Smack;
+import smack.metrics.Metrics;
+import smack.metrics.StageMetrics;
 import smack.utilities.RoutingWarning;
 import smack.utilities.Utilities;
 
@@ -19,7 +24,15 @@ import smack.utilities.Utilities;
  */
 public class MissiveNominal {
     
-    private Document missiveXMLDocument;
+    private static final StageMetrics RECEIVER_STAGE = Metrics.getStage("verification.receiver");
+    private static final StageMetrics SENDER_STAGE = Metrics.getStage("verification.sender");
+    private static final StageMetrics CORRECT_DATE_STAGE = Metrics.getStage("verification.correctDate");
+    private static final StageMetrics PASSED_DATE_STAGE = Metrics.getStage("verification.passedDate");
+    private static final StageMetrics PRIORITY_STAGE = Metrics.getStage("verification.priority");
+    private static Verifier defaultVerifier;
+    
+    private MissiveHeader missiveHeader;
+    private Verifier verifier;
     private String returnCode;
     private RoutingWarning routingWarning;
     private String priotityLevel;
@@ -45,13 +58,79 @@ public class MissiveNominal {
      * 
      * @param missiveXMLDocument 
      */
-    public MissiveNominal (Document missiveXMLDocument) {
+    public MissiveNominal (Document missiveXMLDocument) throws IOException {
+        this(MissiveHeader.fromDocument(missiveXMLDocument), getDefaultVerifier());
+    }
+    
+    /**
+     * MissiveNominal class constructor
+     * 
+     * @param missiveHeader Header of the missive
+     * @throws IOException When the verifier cannot be created
+     */
+    public MissiveNominal (MissiveHeader missiveHeader) throws IOException {
+        this(missiveHeader, getDefaultVerifier());
+    }
+    
+    /**
+     * MissiveNominal class constructor
+     * 
+     * @param missiveHeader Header of the missive
+     * @param verifier Verifier performing the elementary verifications
+     */
+    public MissiveNominal (MissiveHeader missiveHeader, Verifier verifier) {
             
-        // XML document representing the missive XML file
-        this.missiveXMLDocument = missiveXMLDocument;
+        // Fields of the missive needed by the verifications
+        this.missiveHeader = missiveHeader;
+        this.verifier = verifier;
     
     }
     
+    /**
+     * Get the verifier selected by the "verificationMode" configuration of the application
+     * 
+     * @return Verifier shared by all the missives
+     * @throws IOException When the verification rules cannot be loaded
+     */
+    public static synchronized Verifier getDefaultVerifier() throws IOException {
+        
+        if(defaultVerifier == null) {
+            defaultVerifier = createVerifier(Smack.smackConfig);
+        }
+        
+        return defaultVerifier;
+    }
+    
+    /**
+     * Create the verifier selected by the "verificationMode" of the parameterized configuration
+     * 
+     * The "local" mode performs the verifications in-process with the lists found in the
+     * "verificationRulesDir" directory, any other mode uses the verification web service.
+     * 
+     * @param config Application configuration
+     * @return Verifier
+     * @throws IOException When the verification rules cannot be loaded
+     */
+    public static Verifier createVerifier(Properties config) throws IOException {
+        
+        if("local".equalsIgnoreCase(config.getProperty("verificationMode", "http").trim())) {
+            
+            String rulesDirectory = config.getProperty("verificationRulesDir", "rules").trim();
+            
+            // Relative paths are resolved against the application directory
+            if(!new File(rulesDirectory).isAbsolute()) {
+                rulesDirectory = Utilities.getCurrentWorkingDirectory() + System.getProperty("file.separator") + rulesDirectory;
+            }
+            
+            // Log info
+            Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Loading the verification rules from \"" + rulesDirectory + "\".");
+            
+            return new LocalVerifier(rulesDirectory);
+        }
+        
+        return new HttpVerifier(config.getProperty("verificationWSUrl"));
+    }
+    
     /**
      * Perform the verification process for a missive
      * 
@@ -59,10 +138,57 @@ public class MissiveNominal {
      */
     public Boolean verify() throws MalformedURLException, IOException {
         
-        if(!this.verifyReceiver()) {
+        // Check that the missive has all the fields needed by the verifications
+        if(!this.missiveHeader.isComplete()) {
+            throw new IOException("The missive header is incomplete, the priority, sender, send datetime or receiver is missing.");
+        }
+        
+        // The verifications are independent so they are all dispatched at once
+        Future<Boolean> senderResult = this.dispatch(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                return verifySender();
+            }
+        });
+        
+        Future<Boolean> correctDateResult = this.dispatch(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                return verifyCorrectDate();
+            }
+        });
+        
+        Future<Boolean> passedDateResult = this.dispatch(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                return verifyPassedDate();
+            }
+        });
+        
+        Future<Boolean> priorityResult = this.dispatch(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+                return verifyPriority();
+            }
+        });
+        
+        // The receiver is verified by the calling thread meanwhile
+        Boolean isReceiverValid;
+        
+        try {
+            isReceiverValid = this.verifyReceiver();
+        } catch (IOException ex) {
+            cancel(senderResult, correctDateResult, passedDateResult, priorityResult);
+            throw ex;
+        }
+        
+        // The results are examined in the order of precedence of the return codes
+        if(!isReceiverValid) {
             // Log info
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying receiver [KO].");
             
+            cancel(senderResult, correctDateResult, passedDateResult, priorityResult);
+            
             this.returnCode = "4-2-4";
             return false;
         } else {
@@ -70,10 +196,12 @@ public class MissiveNominal {
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying receiver [OK].");
         }
         
-        if(!this.verifySender()) {
+        if(!VerificationEngine.await(senderResult)) {
             // Log info
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying sender [KO].");
             
+            cancel(correctDateResult, passedDateResult, priorityResult);
+            
             this.returnCode = "4-2-5";
             return false;
         } else {
@@ -81,10 +209,12 @@ public class MissiveNominal {
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying sender [OK].");
         }
         
-        if(!this.verifyCorrectDate()) {
+        if(!VerificationEngine.await(correctDateResult)) {
             // Log info
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying correct date [KO].");
             
+            cancel(passedDateResult, priorityResult);
+            
             this.returnCode = "4-3-3";
             return false;
         } else {
@@ -92,7 +222,8 @@ public class MissiveNominal {
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying correct date [OK].");
         }
         
-        if(this.verifyCorrectDate() && !this.verifyPassedDate()) {
+        // The date is known to be correct at this point
+        if(!VerificationEngine.await(passedDateResult)) {
             // Log info
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying passed date [KO].");
         
@@ -105,7 +236,7 @@ public class MissiveNominal {
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying passed date [OK].");
         }
               
-        if(!this.verifyPriority()) {
+        if(!VerificationEngine.await(priorityResult)) {
             // Log info
             Smack.logController.log(Level.INFO, Smack.class.getSimpleName(), "Verifying priority [KO].");
             
@@ -145,32 +276,54 @@ public class MissiveNominal {
     }
     
     /**
-     * Verify the receiver field of the missive
+     * Start a verification, in the background when the verifier is remote
      * 
-     * @return Whether the receiver field of the missive is valid
-     * @todo Get the receiver's node using XPATH
+     * Local verifications are cheaper than a hand-off to another thread so they are run at once.
+     * 
+     * @param verification Verification to run
+     * @return Pending result of the verification
      */
-    private Boolean verifyReceiver() throws MalformedURLException, IOException {
+    private Future<Boolean> dispatch(Callable<Boolean> verification) {
         
-        // Get the receiver tag
-        NodeList rcvNodeList = this.missiveXMLDocument.getElementsByTagName("sem:Rcv");
+        if(this.verifier.isRemote()) {
+            return VerificationEngine.submit(verification);
+        }
         
-        // Get the BIC and IBAN content
-        String receiverBIC = URLEncoder.encode(rcvNodeList.item(0).getChildNodes().item(1).getTextContent().trim(),"UTF-8");
-        String receiverIBAN = URLEncoder.encode(rcvNodeList.item(0).getChildNodes().item(3).getTextContent().trim(),"UTF-8");
+        FutureTask<Boolean> result = new FutureTask<>(verification);
+        result.run();
         
-        Boolean response = false;
+        return result;
+    }
+    
+    /**
+     * Cancel the verifications whose results are no longer needed
+     * 
+     * @param results Pending results of the verifications
+     */
+    private static void cancel(Future<?>... results) {
         
-        // Get the web service domain form the config file
-        String wsDomain = Smack.smackConfig.getProperty("verificationWSUrl");
-        if(wsDomain != null) {
-            // Get the response after verification
-            response = Boolean.parseBoolean(Utilities.readFromUrl(wsDomain+"?action=verify_receiver&receiverBIC="+receiverBIC+"&receiverIBAN="+receiverIBAN));
-        } else {
-            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Webservice url is not define in the config file.");
+        for(Future<?> result : results) {
+            result.cancel(false);
         }
+    }
+    
+    /**
+     * Verify the receiver field of the missive
+     * 
+     * @return Whether the receiver field of the missive is valid
+     */
+    private Boolean verifyReceiver() throws MalformedURLException, IOException {
         
-        return response;
+        long startTime = System.nanoTime();
+        
+        try {
+            Boolean valid = this.verifier.verifyReceiver(this.missiveHeader.getReceiverBIC(), this.missiveHeader.getReceiverIBAN());
+            RECEIVER_STAGE.record(startTime);
+            return valid;
+        } catch (IOException | RuntimeException ex) {
+            RECEIVER_STAGE.recordError(startTime);
+            throw ex;
+        }
     }
 
     
@@ -178,125 +331,83 @@ public class MissiveNominal {
      * Verify the sender field of the missive
      * 
      * @return Whether the sender field of the missive is valid
-     * @todo Get the sender's node using XPATH
      */
     private Boolean verifySender() throws MalformedURLException, IOException {
         
-        // Get the sender tag
-        NodeList sndNodeList = this.missiveXMLDocument.getElementsByTagName("sem:Snd");
-        
-        // Get the BIC and IBAN content
-        String senderBIC = URLEncoder.encode(sndNodeList.item(0).getChildNodes().item(1).getTextContent().trim(),"UTF-8");
-        String senderIBAN = URLEncoder.encode(sndNodeList.item(0).getChildNodes().item(3).getTextContent().trim(),"UTF-8");
-        
-        Boolean response = false;
+        long startTime = System.nanoTime();
         
-        // Get the web service domain form the config file
-        String wsDomain = Smack.smackConfig.getProperty("verificationWSUrl");
-        
-        if(wsDomain != null) {
-            // Get the response after verification
-            response = Boolean.parseBoolean(Utilities.readFromUrl(wsDomain+"?action=verify_sender&senderBIC="+senderBIC+"&senderIBAN="+senderIBAN));
-        } else {
-            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Webservice url is not define in the config file.");
+        try {
+            Boolean valid = this.verifier.verifySender(this.missiveHeader.getSenderBIC(), this.missiveHeader.getSenderIBAN());
+            SENDER_STAGE.record(startTime);
+            return valid;
+        } catch (IOException | RuntimeException ex) {
+            SENDER_STAGE.recordError(startTime);
+            throw ex;
         }
-        
-        return response;
     }
     
     /**
      * Verify the send datetime of the missive
      * 
      * @return Whether the sent datetime of the missive valid
-     * @todo Get the date node using XPATH
      */
     private Boolean verifyCorrectDate() throws MalformedURLException, IOException {
         
-        // Get the date tag
-        NodeList dateNodeList = this.missiveXMLDocument.getElementsByTagName("sem:SndDtTm");
-        
-        // Set the sender
-        String date = dateNodeList.item(0).getTextContent().trim();
-        
-        Boolean response = false;
-        
-        // Get the web service domain form the config file
-        String wsDomain = Smack.smackConfig.getProperty("verificationWSUrl");
+        long startTime = System.nanoTime();
         
-        if(wsDomain != null) {
-            // Get the response after verification
-            response = Boolean.parseBoolean(Utilities.readFromUrl(wsDomain+"?action=verify_date_correct&date="+date));
-        } else {
-            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Webservice url is not define in the config file.");
+        try {
+            Boolean valid = this.verifier.verifyCorrectDate(this.missiveHeader.getSendDateTime());
+            CORRECT_DATE_STAGE.record(startTime);
+            return valid;
+        } catch (IOException | RuntimeException ex) {
+            CORRECT_DATE_STAGE.recordError(startTime);
+            throw ex;
         }
-        
-        return response;
     }
     
     /**
      * Verify if the sent datetime has been passed
      * 
      * @return Whether the sent datetime has been passed
-     * @todo Get the date node using XPATH
      */
     private Boolean verifyPassedDate() throws MalformedURLException, IOException {
         
-        // Get the date tag
-        NodeList dateNodeList = this.missiveXMLDocument.getElementsByTagName("sem:SndDtTm");
-        
-        // Set the sender
-        String date = dateNodeList.item(0).getTextContent().trim();
-        
-        Boolean response = false;
-        
-        // Get the web service domain form the config file
-        String wsDomain = Smack.smackConfig.getProperty("verificationWSUrl");
+        long startTime = System.nanoTime();
         
-        if(wsDomain != null) {
-            // Get the response after verification
-            response = Boolean.parseBoolean(Utilities.readFromUrl(wsDomain+"?action=verify_date_passed&date="+date));
-        } else {
-            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Webservice url is not define in the config file.");
+        try {
+            Boolean valid = this.verifier.verifyPassedDate(this.missiveHeader.getSendDateTime());
+            PASSED_DATE_STAGE.record(startTime);
+            return valid;
+        } catch (IOException | RuntimeException ex) {
+            PASSED_DATE_STAGE.recordError(startTime);
+            throw ex;
         }
-        
-        return response;
     }
     
     /**
      * Verify the priority field of the missive
      * 
      * @return Whether the priority is taken care.
-     * @todo Get the priority node using XPATH
      */
     private Boolean verifyPriority() throws MalformedURLException, IOException {
         
-        // Get the priority tag
-        NodeList priorityNodeList = this.missiveXMLDocument.getElementsByTagName("sem:MsvPri");
-        
-        // Set the sender
-        String priority = priorityNodeList.item(0).getTextContent().trim();
-        
+        long startTime = System.nanoTime();
         String strResponse;
         
-        Boolean response = false;
-        
-        // Get the web service domain form the config file
-        String wsDomain = Smack.smackConfig.getProperty("verificationWSUrl");
-        
-        if(wsDomain != null) {
-            
-            strResponse = Utilities.readFromUrl(wsDomain+"?action=verify_priority&priority="+priority);
+        try {
+            strResponse = this.verifier.verifyPriority(this.missiveHeader.getPriority());
+            PRIORITY_STAGE.record(startTime);
+        } catch (IOException | RuntimeException ex) {
+            PRIORITY_STAGE.recordError(startTime);
+            throw ex;
+        }
                     
-            // Get the response after verification
-            response = Boolean.parseBoolean(strResponse);
+        // Get the response after verification
+        Boolean response = Boolean.parseBoolean(strResponse);
             
-            if(!response) {
-               priotityLevel = strResponse;
-            } else {}
-            
-        } else {
-            Smack.logController.log(Level.SEVERE, Smack.class.getSimpleName(), "Webservice url is not define in the config file.");
-        }
+        if(!response) {
+           priotityLevel = strResponse;
+        } else {}
         
         return response;
     }
@@ -0,0 +1,32 @@
+package smack.verification;
+
+import java.util.Locale;
+
+/**
+ * The MissivePriority enumeration defines the priorities of a missive (MsvPri), highest first
+ * 
+ * @version 1.0
+ */
+public enum MissivePriority {
+    
+    HIGHEST, HIGH, NORMAL, LOW, LOWEST;
+    
+    /**
+     * Get the priority of a MsvPri value
+     * 
+     * @param value Value of the MsvPri field, possibly null
+     * @return Priority of the value, NORMAL when the value is missing or unknown
+     */
+    public static MissivePriority of(String value) {
+        
+        if (value != null) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException ex) {
+                // Unknown priority, handled as a normal missive
+            }
+        }
+        
+        return NORMAL;
+    }
+}
@@ -0,0 +1,53 @@
+package smack.verification;
+
+/**
+ * The RetryBudget class limits the retries to a share of the queries
+ *
+ * Every query deposits "ratio" of a retry in the budget and every retry withdraws a whole one,
+ * so that the retries cannot multiply the load of a service which is already struggling. The
+ * budget starts full and never holds more than "maxRetries" retries, which allows some retries
+ * when the traffic is low.
+ *
+ * @version 1.0
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double maxRetries;
+    private double balance;
+
+    /**
+     * RetryBudget class constructor
+     *
+     * @param ratio Share of the queries which may be retried
+     * @param maxRetries Maximum number of retries held in the budget
+     */
+    RetryBudget(double ratio, int maxRetries) {
+
+        this.ratio = ratio;
+        this.maxRetries = maxRetries;
+        this.balance = maxRetries;
+    }
+
+    /**
+     * Record a query
+     */
+    synchronized void deposit() {
+        this.balance = Math.min(this.maxRetries, this.balance + this.ratio);
+    }
+
+    /**
+     * Take a retry from the budget
+     *
+     * @return Whether a retry was available
+     */
+    synchronized boolean withdraw() {
+
+        if (this.balance < 1.0) {
+            return false;
+        }
+
+        this.balance -= 1.0;
+        return true;
+    }
+}
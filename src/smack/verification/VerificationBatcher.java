@@ -0,0 +1,330 @@
+package smack.verification;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The VerificationBatcher class groups the verification queries sent to a web service
+ * into a single "verify_batch" request
+ *
+ * A batch is sent as soon as it holds "verificationBatchSize" queries or when its first
+ * query has waited for "verificationBatchMaxWait" milliseconds. The batch is posted form
+ * encoded with one "query[]" field holding the query string of each verification, and
+ * the web service answers with a JSON array holding the response of each query in order.
+ *
+ * A full batch is posted by the thread of its last query and a batch whose waiting time is
+ * over by a sender thread, so that a slow web service never delays the other batches.
+ *
+ * @version 1.0
+ */
+public class VerificationBatcher {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            // Batch threads must not prevent the application from exiting
+            Thread thread = new Thread(runnable, "smack-verification-batch");
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    });
+
+    private static final ExecutorService SENDER = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            // Batch threads must not prevent the application from exiting
+            Thread thread = new Thread(runnable, "smack-verification-batch-send");
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    });
+
+    private final VerificationClient client;
+    private final String wsUrl;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private List<PendingQuery> currentBatch = new ArrayList<>();
+
+    /**
+     * VerificationBatcher class constructor
+     *
+     * @param client Client posting the batches
+     * @param wsUrl URL of the verification web service
+     * @param batchSize Maximum number of queries of a batch
+     * @param maxWaitMillis Maximum time a query waits for its batch to be sent
+     */
+    public VerificationBatcher(VerificationClient client, String wsUrl, int batchSize, long maxWaitMillis) {
+
+        this.client = client;
+        this.wsUrl = wsUrl;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Send a verification query as part of a batch and wait for its response
+     *
+     * @param queryString URL encoded query string of the verification
+     * @return Response of the web service to the query
+     * @throws IOException
+     */
+    public String query(String queryString) throws IOException {
+
+        PendingQuery pendingQuery = new PendingQuery(queryString);
+        List<PendingQuery> fullBatch = null;
+
+        synchronized (this) {
+
+            final List<PendingQuery> batch = this.currentBatch;
+            batch.add(pendingQuery);
+
+            if (batch.size() >= this.batchSize) {
+
+                // The batch is full so the calling thread sends it
+                fullBatch = batch;
+                this.currentBatch = new ArrayList<>();
+
+            } else if (batch.size() == 1) {
+
+                // The first query of a batch bounds the time the batch waits for more queries
+                SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(batch);
+                    }
+                }, this.maxWaitMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (fullBatch != null) {
+            this.send(fullBatch);
+        }
+
+        return pendingQuery.await();
+    }
+
+    /**
+     * Send the parameterized batch if it has not been sent yet
+     *
+     * @param batch Batch whose waiting time is over
+     */
+    private void flush(final List<PendingQuery> batch) {
+
+        synchronized (this) {
+
+            // The batch has already been sent because it was full
+            if (batch != this.currentBatch) {
+                return;
+            }
+
+            this.currentBatch = new ArrayList<>();
+        }
+
+        // The scheduler only times the batches, the blocking post runs on a sender thread
+        try {
+            SENDER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(batch);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            this.send(batch);
+        }
+    }
+
+    /**
+     * Post a batch of queries and hand its response to each query
+     *
+     * @param batch Queries to send
+     */
+    private void send(List<PendingQuery> batch) {
+
+        try {
+            StringBuilder body = new StringBuilder(batch.size() * 128);
+            body.append("action=verify_batch");
+
+            for (PendingQuery pendingQuery : batch) {
+                body.append("&query%5B%5D=").append(URLEncoder.encode(pendingQuery.queryString, "UTF-8"));
+            }
+
+            List<String> responses = parseJsonArray(this.client.post(this.wsUrl, body.toString()));
+
+            if (responses.size() != batch.size()) {
+                throw new IOException("Verification web service returned " + responses.size() + " response(s) for a batch of " + batch.size() + " query(ies).");
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(responses.get(i), null);
+            }
+
+        } catch (IOException | RuntimeException ex) {
+
+            IOException failure = ex instanceof IOException ? (IOException) ex : new IOException(ex);
+
+            for (PendingQuery pendingQuery : batch) {
+                pendingQuery.complete(null, failure);
+            }
+        }
+    }
+
+    /**
+     * Parse a JSON array of scalar values
+     *
+     * Strings are returned without their quotes and the other values as they appear.
+     *
+     * @param json JSON array
+     * @return Values of the array
+     * @throws IOException When the JSON is not an array of scalars
+     */
+    static List<String> parseJsonArray(String json) throws IOException {
+
+        String array = json.trim();
+
+        if (array.length() < 2 || array.charAt(0) != '[' || array.charAt(array.length() - 1) != ']') {
+            throw new IOException("Invalid batch response from the verification web service: " + json);
+        }
+
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean inString = false;
+        boolean hasValue = false;
+
+        for (int i = 1; i < array.length() - 1; i++) {
+
+            char c = array.charAt(i);
+
+            if (inString) {
+
+                if (c == '"') {
+                    inString = false;
+                } else if (c == '\\' && i + 1 < array.length() - 1) {
+
+                    char escaped = array.charAt(++i);
+
+                    switch (escaped) {
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 'u':
+                            value.append(parseUnicodeEscape(array, i + 1, json));
+                            i += 4;
+                            break;
+                        default:
+                            value.append(escaped);
+                            break;
+                    }
+                } else {
+                    value.append(c);
+                }
+
+            } else if (c == '"') {
+                inString = true;
+                hasValue = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+                hasValue = false;
+            } else if (!Character.isWhitespace(c)) {
+                value.append(c);
+                hasValue = true;
+            }
+        }
+
+        if (hasValue || !values.isEmpty()) {
+            values.add(value.toString());
+        }
+
+        return values;
+    }
+
+    /**
+     * Parse the four hexadecimal digits of a unicode escape
+     *
+     * @param array JSON array
+     * @param start Position of the first digit
+     * @param json Whole response, used in the error message
+     * @return Escaped character
+     * @throws IOException When the escape does not have four hexadecimal digits
+     */
+    private static char parseUnicodeEscape(String array, int start, String json) throws IOException {
+
+        // The digits must end before the closing bracket of the array
+        if (start + 4 > array.length() - 1) {
+            throw new IOException("Invalid batch response from the verification web service: " + json);
+        }
+
+        int c = 0;
+
+        for (int i = start; i < start + 4; i++) {
+
+            int digit = Character.digit(array.charAt(i), 16);
+
+            if (digit < 0) {
+                throw new IOException("Invalid batch response from the verification web service: " + json);
+            }
+
+            c = (c << 4) | digit;
+        }
+
+        return (char) c;
+    }
+
+    /**
+     * Query waiting for the response of its batch
+     */
+    private static final class PendingQuery {
+
+        private final String queryString;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private String response;
+        private IOException failure;
+
+        private PendingQuery(String queryString) {
+            this.queryString = queryString;
+        }
+
+        private void complete(String response, IOException failure) {
+
+            this.response = response;
+            this.failure = failure;
+            this.done.countDown();
+        }
+
+        private String await() throws IOException {
+
+            try {
+                this.done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Verification was interrupted.");
+            }
+
+            if (this.failure != null) {
+                throw this.failure;
+            }
+
+            return this.response;
+        }
+    }
+}
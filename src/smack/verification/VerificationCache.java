@@ -0,0 +1,166 @@
+package smack.verification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import smack.utilities.ConfigReader;
+import smack.utilities.NanoClock;
+
+/**
+ * The VerificationCache class keeps the responses of the verification web service in memory
+ * so that the same sender or receiver is not verified over and over again.
+ *
+ * Responses are kept for "verificationCacheTTL" seconds, negative responses for
+ * "verificationCacheNegativeTTL" seconds, and at most "verificationCacheMaxSize" responses
+ * are kept, the least recently used being evicted first. A TTL of 0 disables the caching
+ * of the corresponding responses.
+ *
+ * @version 1.0
+ */
+public class VerificationCache {
+
+    private static final long DEFAULT_TTL = 300;
+    private static final long DEFAULT_NEGATIVE_TTL = 30;
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<String, CachedResponse> responses;
+    private final NanoClock clock;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * VerificationCache class constructor
+     *
+     * @param config SMACK configuration
+     */
+    public VerificationCache(Properties config) {
+        this(config, NanoClock.SYSTEM);
+    }
+
+    /**
+     * VerificationCache class constructor
+     *
+     * @param config SMACK configuration
+     * @param clock Clock of the expiry times
+     */
+    VerificationCache(Properties config, NanoClock clock) {
+
+        this.clock = clock;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ConfigReader.getLongProperty(config, "verificationCacheTTL", DEFAULT_TTL));
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(ConfigReader.getLongProperty(config, "verificationCacheNegativeTTL", DEFAULT_NEGATIVE_TTL));
+
+        final int maxSize = (int) ConfigReader.getLongProperty(config, "verificationCacheMaxSize", DEFAULT_MAX_SIZE);
+
+        // Access ordered map evicting the least recently used response
+        this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Check whether responses are cached at all
+     *
+     * @return Whether responses are cached
+     */
+    public boolean isEnabled() {
+        return this.ttlNanos > 0 || this.negativeTtlNanos > 0;
+    }
+
+    /**
+     * Get a cached response
+     *
+     * @param key Verification action and parameters
+     * @return Cached response or null if the response is not cached or has expired
+     */
+    public String get(String key) {
+
+        CachedResponse cachedResponse;
+
+        synchronized (this.responses) {
+
+            cachedResponse = this.responses.get(key);
+
+            // Drop the expired response
+            if (cachedResponse != null && this.clock.nanoTime() - cachedResponse.expiresAt >= 0) {
+                this.responses.remove(key);
+                cachedResponse = null;
+            }
+        }
+
+        if (cachedResponse == null) {
+            this.missCount.incrementAndGet();
+            return null;
+        }
+
+        this.hitCount.incrementAndGet();
+
+        return cachedResponse.response;
+    }
+
+    /**
+     * Cache a response of the verification web service
+     *
+     * @param key Verification action and parameters
+     * @param response Response of the web service
+     */
+    public void put(String key, String response) {
+
+        long ttl = Boolean.parseBoolean(response) ? this.ttlNanos : this.negativeTtlNanos;
+
+        if (ttl > 0) {
+            synchronized (this.responses) {
+                this.responses.put(key, new CachedResponse(response, this.clock.nanoTime() + ttl));
+            }
+        }
+    }
+
+    /**
+     * Get the number of responses found in the cache
+     *
+     * @return Number of cache hits
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Get the number of responses not found in the cache
+     *
+     * @return Number of cache misses
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Get the number of responses currently cached
+     *
+     * @return Number of cached responses
+     */
+    public int size() {
+        synchronized (this.responses) {
+            return this.responses.size();
+        }
+    }
+
+    /**
+     * Cached response along with its expiry time
+     */
+    private static final class CachedResponse {
+
+        private final String response;
+        private final long expiresAt;
+
+        private CachedResponse(String response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package smack.verification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import smack.Smack;
+import smack.metrics.Metrics;
+import smack.utilities.ConfigReader;
+
+/**
+ * The VerificationClient class sends the verification queries to the verification web service
+ *
+ * Connections are kept alive and reused between queries, and both the connection and the read
+ * timeouts are bounded. The timeouts are set in the SMACK configuration file with
+ * "verificationWSConnectTimeout" and "verificationWSReadTimeout" (in milliseconds). The number
+ * of idle connections kept alive per host is a setting of the JVM, read once when the first
+ * connection is opened, so it is given at launch: java -Dhttp.maxConnections=10 ... (5 by default).
+ * When "verificationBatchSize" is greater than 1, the queries are grouped into batches
+ * sent as a single request, see VerificationBatcher.
+ *
+ * A failed query is retried up to "verificationRetries" times after a random backoff of up to
+ * "verificationRetryBackoff" milliseconds, doubled at each attempt, as long as the retries stay
+ * within "verificationRetryBudget" of the queries and the query does not last more than
+ * "verificationTimeout" milliseconds overall. Each web service is protected by a circuit
+ * breaker, see CircuitBreaker, and the queries which cannot be answered fail with a
+ * VerificationUnavailableException.
+ *
+ * When "verificationCoalescing" is enabled, identical queries sent while the same query is
+ * already in flight do not reach the web service: they wait for the response of the query in
+ * flight, whether or not the responses are cached.
+ *
+ * @version 1.0
+ */
+public class VerificationClient {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    private static final int DEFAULT_READ_TIMEOUT = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 1;
+    private static final int DEFAULT_BATCH_MAX_WAIT = 10;
+    private static final int DEFAULT_RETRIES = 2;
+    private static final int DEFAULT_RETRY_BACKOFF = 100;
+    private static final double DEFAULT_RETRY_BUDGET = 0.1;
+    private static final int RETRY_BUDGET_MAX_RETRIES = 10;
+    private static final int DEFAULT_TIMEOUT = 30000;
+    private static final int DEFAULT_BREAKER_FAILURES = 5;
+    private static final int DEFAULT_BREAKER_OPEN_TIME = 30000;
+    private static final int RESPONSE_BUFFER_SIZE = 64;
+    private static final int MAX_RESPONSE_BUFFER_SIZE = 8192;
+
+    private static VerificationClient verificationClient;
+
+    private int connectTimeout;
+    private int readTimeout;
+    private VerificationCache cache;
+    private int batchSize;
+    private int batchMaxWait;
+    private ConcurrentMap<String, VerificationBatcher> batchers = new ConcurrentHashMap<>();
+    private int retries;
+    private int retryBackoff;
+    private RetryBudget retryBudget;
+    private long timeoutNanos;
+    private int breakerFailures;
+    private int breakerOpenTime;
+    private ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private boolean coalescing;
+    private ConcurrentMap<String, FutureTask<String>> inFlightQueries = new ConcurrentHashMap<>();
+    private AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * VerificationClient class constructor, the application uses the single instance given by
+     * getVerificationClient()
+     *
+     * @param config SMACK configuration
+     */
+    VerificationClient(Properties config) {
+
+        this.connectTimeout = ConfigReader.getIntProperty(config, "verificationWSConnectTimeout", DEFAULT_CONNECT_TIMEOUT);
+        this.readTimeout = ConfigReader.getIntProperty(config, "verificationWSReadTimeout", DEFAULT_READ_TIMEOUT);
+        this.cache = new VerificationCache(config);
+        this.batchSize = ConfigReader.getIntProperty(config, "verificationBatchSize", DEFAULT_BATCH_SIZE);
+        this.batchMaxWait = ConfigReader.getIntProperty(config, "verificationBatchMaxWait", DEFAULT_BATCH_MAX_WAIT);
+        this.retries = Math.max(0, ConfigReader.getIntProperty(config, "verificationRetries", DEFAULT_RETRIES));
+        this.retryBackoff = Math.max(1, ConfigReader.getIntProperty(config, "verificationRetryBackoff", DEFAULT_RETRY_BACKOFF));
+        this.retryBudget = new RetryBudget(ConfigReader.getDoubleProperty(config, "verificationRetryBudget", DEFAULT_RETRY_BUDGET), RETRY_BUDGET_MAX_RETRIES);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(ConfigReader.getIntProperty(config, "verificationTimeout", DEFAULT_TIMEOUT));
+        this.breakerFailures = ConfigReader.getIntProperty(config, "verificationBreakerFailures", DEFAULT_BREAKER_FAILURES);
+        this.breakerOpenTime = ConfigReader.getIntProperty(config, "verificationBreakerOpenTime", DEFAULT_BREAKER_OPEN_TIME);
+        this.coalescing = Boolean.parseBoolean(config.getProperty("verificationCoalescing", "true").trim());
+    }
+
+    /**
+     * Get an instance of the VerificationClient class
+     *
+     * @return VerificationClient class instance
+     */
+    public static synchronized VerificationClient getVerificationClient() {
+
+        // Check if an instance of the client has already been declared
+        if (verificationClient == null) {
+            verificationClient = new VerificationClient(Smack.smackConfig != null ? Smack.smackConfig : new Properties());
+        }
+
+        return verificationClient;
+    }
+
+    /**
+     * Send a verification query to the web service
+     *
+     * @param wsUrl URL of the verification web service
+     * @param action Verification action
+     * @param parameters Names and values of the query parameters, one after the other
+     * @return Response of the web service
+     * @throws IOException
+     */
+    public String query(String wsUrl, String action, String... parameters) throws IOException {
+        return this.fetchShared(wsUrl, buildQueryString(action, parameters));
+    }
+
+    /**
+     * Send a verification query to the web service unless its response is cached
+     *
+     * Only the queries whose response does not depend on the time should be cached.
+     *
+     * @param wsUrl URL of the verification web service
+     * @param action Verification action
+     * @param parameters Names and values of the query parameters, one after the other
+     * @return Response of the web service
+     * @throws IOException
+     */
+    public String queryCached(String wsUrl, String action, String... parameters) throws IOException {
+
+        if (!this.cache.isEnabled()) {
+            return this.query(wsUrl, action, parameters);
+        }
+
+        String queryString = buildQueryString(action, parameters);
+        String key = wsUrl + "?" + queryString;
+        String response = this.cache.get(key);
+
+        if (response == null) {
+            response = this.fetchShared(wsUrl, queryString);
+            this.cache.put(key, response);
+        }
+
+        return response;
+    }
+
+    /**
+     * Send a verification query unless the same query is already in flight
+     *
+     * The first thread sending a query runs it while the threads sending the same query in the
+     * meantime wait for its response or its failure.
+     *
+     * @param wsUrl URL of the verification web service
+     * @param queryString URL encoded query string
+     * @return Response of the web service
+     * @throws IOException
+     */
+    private String fetchShared(final String wsUrl, final String queryString) throws IOException {
+
+        if (!this.coalescing) {
+            return this.fetch(wsUrl, queryString);
+        }
+
+        String key = wsUrl + "?" + queryString;
+
+        while (true) {
+
+            FutureTask<String> query = new FutureTask<>(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return fetch(wsUrl, queryString);
+                }
+            });
+
+            FutureTask<String> inFlightQuery = this.inFlightQueries.putIfAbsent(key, query);
+
+            if (inFlightQuery == null) {
+
+                // No identical query in flight, this thread sends it
+                try {
+                    query.run();
+                } finally {
+                    this.inFlightQueries.remove(key, query);
+                }
+
+                inFlightQuery = query;
+
+            } else {
+                this.coalescedCount.incrementAndGet();
+            }
+
+            // The shared query is never cancelled since other threads may be waiting for it
+            try {
+                return inFlightQuery.get();
+
+            } catch (InterruptedException ex) {
+
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Verification was interrupted.");
+
+            } catch (ExecutionException ex) {
+
+                Throwable cause = ex.getCause();
+
+                // The thread sending the identical query was interrupted, send the query again
+                if (inFlightQuery != query && cause instanceof IOException && isInterrupt((IOException) cause)) {
+                    continue;
+                }
+
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Get the number of queries which were answered by an identical query in flight
+     *
+     * @return Number of coalesced queries
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.get();
+    }
+
+    /**
+     * Send a verification query, retrying it while the retry policy allows it
+     *
+     * @param wsUrl URL of the verification web service
+     * @param queryString URL encoded query string
+     * @return Response of the web service
+     * @throws VerificationUnavailableException When the web service could not answer the query
+     * @throws IOException
+     */
+    private String fetch(String wsUrl, String queryString) throws IOException {
+
+        CircuitBreaker breaker = this.getCircuitBreaker(wsUrl);
+        long startTime = System.nanoTime();
+        long deadline = startTime + this.timeoutNanos;
+        IOException failure = null;
+        int attempt = 0;
+
+        this.retryBudget.deposit();
+
+        while (true) {
+
+            // Fail fast while the web service is known to be down
+            if (!breaker.allowRequest()) {
+                throw new VerificationUnavailableException("Verification web service \"" + wsUrl + "\" is unavailable, its circuit breaker is open.", failure);
+            }
+
+            boolean recorded = false;
+
+            try {
+                String response = this.send(wsUrl, queryString);
+                breaker.recordSuccess();
+                recorded = true;
+
+                return response;
+
+            } catch (IOException ex) {
+
+                // A timeout is a failure of the web service, only an interrupt of the thread stops the query
+                if (isInterrupt(ex)) {
+                    throw ex;
+                }
+
+                breaker.recordFailure(startTime);
+                recorded = true;
+                failure = ex;
+
+            } finally {
+
+                // A trial query which neither succeeded nor failed must not keep the breaker half open
+                if (!recorded) {
+                    breaker.releaseTrial();
+                }
+            }
+
+            // Random backoff, doubled at each attempt, so that the retries of the threads are spread out
+            long backoffNanos = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong((long) this.retryBackoff << Math.min(attempt, 16)) + 1);
+
+            if (attempt >= this.retries || System.nanoTime() + backoffNanos - deadline > 0 || !this.retryBudget.withdraw()) {
+                break;
+            }
+
+            attempt++;
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoffNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Verification was interrupted.");
+            }
+        }
+
+        throw new VerificationUnavailableException("Verification web service \"" + wsUrl + "\" failed after " + (attempt + 1) + " attempt(s): " + failure.getLocalizedMessage(), failure);
+    }
+
+    /**
+     * Check whether a failure of a query is an interrupt of the thread sending it
+     *
+     * @param failure Failure of the query
+     * @return Whether the thread was interrupted, false for the connect and read timeouts
+     */
+    static boolean isInterrupt(IOException failure) {
+        return failure instanceof InterruptedIOException && !(failure instanceof SocketTimeoutException);
+    }
+
+    /**
+     * Get the circuit breaker of a web service, created on first use
+     *
+     * @param wsUrl URL of the verification web service
+     * @return Circuit breaker of the web service
+     */
+    private CircuitBreaker getCircuitBreaker(String wsUrl) {
+
+        CircuitBreaker breaker = this.breakers.get(wsUrl);
+
+        if (breaker == null) {
+
+            CircuitBreaker newBreaker = new CircuitBreaker(wsUrl, this.breakerFailures, this.breakerOpenTime);
+            breaker = this.breakers.putIfAbsent(wsUrl, newBreaker);
+
+            if (breaker == null) {
+                breaker = newBreaker;
+                Metrics.register(breaker, "CircuitBreaker", wsUrl);
+            }
+        }
+
+        return breaker;
+    }
+
+    /**
+     * Send a verification query on its own or as part of a batch
+     *
+     * @param wsUrl URL of the verification web service
+     * @param queryString URL encoded query string
+     * @return Response of the web service
+     * @throws IOException
+     */
+    private String send(String wsUrl, String queryString) throws IOException {
+
+        if (this.batchSize <= 1) {
+            return this.get(wsUrl + "?" + queryString);
+        }
+
+        VerificationBatcher batcher = this.batchers.get(wsUrl);
+
+        if (batcher == null) {
+            this.batchers.putIfAbsent(wsUrl, new VerificationBatcher(this, wsUrl, this.batchSize, this.batchMaxWait));
+            batcher = this.batchers.get(wsUrl);
+        }
+
+        return batcher.query(queryString);
+    }
+
+    /**
+     * Get the cache of the verification responses
+     *
+     * @return Verification response cache
+     */
+    public VerificationCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Build the query string of a verification query
+     *
+     * @param action Verification action
+     * @param parameters Names and values of the query parameters, one after the other
+     * @return URL encoded query string
+     * @throws IOException
+     */
+    static String buildQueryString(String action, String... parameters) throws IOException {
+
+        StringBuilder queryString = new StringBuilder(128);
+        queryString.append("action=").append(URLEncoder.encode(action, "UTF-8"));
+
+        for (int i = 0; i + 1 < parameters.length; i += 2) {
+            queryString.append('&').append(URLEncoder.encode(parameters[i], "UTF-8"));
+            queryString.append('=').append(URLEncoder.encode(parameters[i + 1], "UTF-8"));
+        }
+
+        return queryString.toString();
+    }
+
+    /**
+     * Read the parameterized URL
+     *
+     * @param url URL to read
+     * @return Response of the web service
+     * @throws IOException
+     */
+    public String get(String url) throws IOException {
+
+        HttpURLConnection connection = this.openConnection(url);
+
+        return decodeResponse(readResponse(connection, url));
+    }
+
+    /**
+     * Post a form encoded body to the parameterized URL
+     *
+     * @param url URL to post to
+     * @param body URL encoded form body
+     * @return Raw response of the web service
+     * @throws IOException
+     */
+    public String post(String url, String body) throws IOException {
+
+        byte[] content = body.getBytes(UTF8);
+
+        HttpURLConnection connection = this.openConnection(url);
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+        connection.setFixedLengthStreamingMode(content.length);
+
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(content);
+        }
+
+        return readResponse(connection, url);
+    }
+
+    /**
+     * Open a connection to the parameterized URL with the configured timeouts
+     *
+     * @param url URL to connect to
+     * @return Connection to the URL
+     * @throws IOException
+     */
+    private HttpURLConnection openConnection(String url) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(this.connectTimeout);
+        connection.setReadTimeout(this.readTimeout);
+        connection.setUseCaches(false);
+
+        return connection;
+    }
+
+    /**
+     * Read the response of a connection
+     *
+     * @param connection Connection to the web service
+     * @param url URL of the request, used in the error message
+     * @return Raw response of the web service
+     * @throws IOException When the web service did not answer with HTTP 200
+     */
+    private static String readResponse(HttpURLConnection connection, String url) throws IOException {
+
+        int responseCode = connection.getResponseCode();
+
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+
+            // Consume the error body so that the connection can be reused
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null) {
+                readBody(errorStream, 0);
+            }
+
+            throw new IOException("Verification web service returned HTTP " + responseCode + " for " + url);
+        }
+
+        return readBody(connection.getInputStream(), connection.getContentLength());
+    }
+
+    /**
+     * Read a response body entirely and close its stream, which releases the connection to the keep-alive pool
+     *
+     * @param in Response body stream
+     * @param contentLength Length of the body if known, otherwise a negative or zero value
+     * @return Response body
+     * @throws IOException
+     */
+    private static String readBody(InputStream in, int contentLength) throws IOException {
+
+        try {
+            int bufferSize = contentLength > 0 ? Math.min(contentLength, MAX_RESPONSE_BUFFER_SIZE) : RESPONSE_BUFFER_SIZE;
+            ByteArrayOutputStream body = new ByteArrayOutputStream(bufferSize);
+            byte[] buffer = new byte[bufferSize];
+            int count;
+
+            while ((count = in.read(buffer)) != -1) {
+                body.write(buffer, 0, count);
+            }
+
+            return new String(body.toByteArray(), UTF8);
+
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Decode the JSON scalar returned by the web service
+     *
+     * Booleans are returned as "true" or "false" while strings are returned without their quotes.
+     *
+     * @param response Raw response of the web service
+     * @return Decoded response
+     */
+    static String decodeResponse(String response) {
+
+        String value = response.trim();
+
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            value = value.substring(1, value.length() - 1);
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,128 @@
+package smack.verification;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import smack.Smack;
+import smack.utilities.ConfigReader;
+
+/**
+ * The VerificationEngine class runs the independent verifications of the missives
+ * concurrently on a bounded pool of threads shared by the whole application.
+ *
+ * @version 1.0
+ */
+public class VerificationEngine {
+
+    private static final int DEFAULT_THREAD_COUNT = 10;
+    private static ExecutorService executor;
+
+    /**
+     * VerificationEngine class constructor hidden since the class only has static methods
+     */
+    private VerificationEngine() {
+    }
+
+    /**
+     * Get the thread pool running the verifications, creating it on first use
+     *
+     * The size of the pool is given by the "verificationThreads" configuration, an invalid
+     * value is logged and replaced by the default size.
+     *
+     * @return Verification thread pool
+     */
+    private static synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+
+            int threadCount = ConfigReader.getIntProperty(Smack.smackConfig, "verificationThreads", DEFAULT_THREAD_COUNT);
+
+            // An invalid value must not fail the verifications
+            if (threadCount < 1) {
+                Smack.logController.log(Level.WARNING, Smack.class.getSimpleName(), "Invalid verification thread count \"" + threadCount + "\". Using " + DEFAULT_THREAD_COUNT + ".");
+                threadCount = DEFAULT_THREAD_COUNT;
+            }
+
+            executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+
+                    // Verification threads must not prevent the application from exiting
+                    Thread thread = new Thread(runnable, "smack-verification-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Start the parameterized verification in the background
+     *
+     * @param verification Verification to run
+     * @return Pending result of the verification
+     */
+    public static <T> Future<T> submit(Callable<T> verification) {
+        return getExecutor().submit(verification);
+    }
+
+    /**
+     * Wait for the result of a verification started with submit
+     *
+     * @param result Pending result of the verification
+     * @return Result of the verification
+     * @throws IOException When the verification failed or the wait was interrupted
+     */
+    public static <T> T await(Future<T> result) throws IOException {
+
+        try {
+            return result.get();
+
+        } catch (InterruptedException ex) {
+
+            // Cancel the verification and keep the interrupted status of the thread
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Verification was interrupted.");
+
+        } catch (ExecutionException ex) {
+
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Stop the verification threads
+     */
+    public static synchronized void shutdown() {
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
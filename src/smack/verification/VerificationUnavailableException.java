@@ -0,0 +1,24 @@
+package smack.verification;
+
+import java.io.IOException;
+
+/**
+ * The VerificationUnavailableException signals that the verification web service could not
+ * answer a query, either because its circuit breaker is open or because every attempt failed
+ *
+ * @version 1.0
+ */
+public class VerificationUnavailableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * VerificationUnavailableException class constructor
+     *
+     * @param message Description of the failure
+     * @param cause Failure of the last attempt, possibly null
+     */
+    public VerificationUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
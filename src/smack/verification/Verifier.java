@@ -0,0 +1,65 @@
+package smack.verification;
+
+import java.io.IOException;
+
+/**
+ * The Verifier interface defines the elementary verifications performed on a nominal missive
+ * 
+ * @version 1.0
+ */
+public interface Verifier {
+    
+    /**
+     * Check whether the verifications involve remote calls that are worth running concurrently
+     * 
+     * @return Whether the verifications are remote
+     */
+    boolean isRemote();
+    
+    /**
+     * Verify the receiver of a missive
+     * 
+     * @param receiverBIC BIC of the receiver
+     * @param receiverIBAN QXBAN of the receiver
+     * @return Whether the receiver is handled
+     * @throws IOException 
+     */
+    Boolean verifyReceiver(String receiverBIC, String receiverIBAN) throws IOException;
+    
+    /**
+     * Verify the sender of a missive
+     * 
+     * @param senderBIC BIC of the sender
+     * @param senderIBAN QXBAN of the sender
+     * @return Whether the sender is allowed
+     * @throws IOException 
+     */
+    Boolean verifySender(String senderBIC, String senderIBAN) throws IOException;
+    
+    /**
+     * Verify that the send datetime of a missive is not in the future
+     * 
+     * @param sendDateTime Send datetime of the missive
+     * @return Whether the send datetime is correct
+     * @throws IOException 
+     */
+    Boolean verifyCorrectDate(String sendDateTime) throws IOException;
+    
+    /**
+     * Verify that the send datetime of a missive has been passed
+     * 
+     * @param sendDateTime Send datetime of the missive
+     * @return Whether the send datetime has been passed
+     * @throws IOException 
+     */
+    Boolean verifyPassedDate(String sendDateTime) throws IOException;
+    
+    /**
+     * Verify the priority of a missive
+     * 
+     * @param priority Priority of the missive
+     * @return "true" when the priority is handled, otherwise the priority that will be applied
+     * @throws IOException 
+     */
+    String verifyPriority(String priority) throws IOException;
+}
@@ -69,68 +69,99 @@ function verifyPriority($priority) {
 }
 
 
-// Set the value default value
-$value = "An error has occurred";
-
-// Check if we gave an action
-if (isset($_GET["action"]))
-{
-    // Switch for the action
-    switch ($_GET["action"])
+/**
+ * Perform the verification requested by the parameterized query parameters
+ * 
+ * @param array $query Query parameters including the "action"
+ * @return boolean | string
+ */
+function handleAction($query) {
+    
+    // Set the value default value
+    $value = "An error has occurred";
+    
+    // Check if we gave an action
+    if (isset($query["action"]))
     {
-        case "verify_receiver":
-          //var_dump($_GET);
-          if (!isset($_GET["receiverBIC"])) {
-              $value = "Missing argument receiver BIC";
+        // Switch for the action
+        switch ($query["action"])
+        {
+            case "verify_receiver":
+              if (!isset($query["receiverBIC"])) {
+                  $value = "Missing argument receiver BIC";
+                  break;
+              }
+              else {}
+              if (!isset($query["receiverIBAN"])) {
+                  $value = "Missing argument receiver IBAN";
+                  break;
+              }
+              else {}
+              $value = verifyReceiver($query["receiverBIC"], $query["receiverIBAN"]);
               break;
-          }
-          else {}
-          if (!isset($_GET["receiverIBAN"])) {
-              $value = "Missing argument receiver IBAN";
+            case "verify_sender":
+              if (!isset($query["senderBIC"])) {
+                  $value = "Missing argument sender BIC";
+                  break;
+              }
+              else {}
+              if (!isset($query["senderIBAN"])) {
+                  $value = "Missing argument sender IBAN";
+                  break;
+              }
+              else {}
+              $value = verifySender($query["senderBIC"], $query["senderIBAN"]);
               break;
-          }
-          else {}
-          $value = verifyReceiver($_GET["receiverBIC"], $_GET["receiverIBAN"]);
-          break;
-        case "verify_sender":
-          if (!isset($_GET["senderBIC"])) {
-              $value = "Missing argument sender BIC";
+            case "verify_date_correct":
+              if (isset($query["date"])) {
+                  $value = verifyDateCorrecte($query["date"]);
+              }
+              else {
+                  $value = "Missing argument date1";
+              }
               break;
-          }
-          else {}
-          if (!isset($_GET["senderIBAN"])) {
-              $value = "Missing argument sender IBAN";
+            case "verify_date_passed":
+              if (isset($query["date"])) {
+                  $value = verifyDatePassed($query["date"]);
+              }
+              else {
+                  $value = "Missing argument date2";
+              }
               break;
-          }
-          else {}
-          $value = verifySender($_GET["senderBIC"], $_GET["senderIBAN"]);
-          break;
-        case "verify_date_correct":
-          if (isset($_GET["date"])) {
-              $value = verifyDateCorrecte($_GET["date"]);
-          }
-          else {
-              $value = "Missing argument date1";
-          }
-          break;
-        case "verify_date_passed":
-          if (isset($_GET["date"])) {
-              $value = verifyDatePassed($_GET["date"]);
-          }
-          else {
-              $value = "Missing argument date2";
-          }
-          break;
-        case "verify_priority":
-          if (isset($_GET["priority"])) {
-              $value = verifyPriority($_GET["priority"]);
-          }
-          else {
-              $value = "Missing argument priority";
-          }
-        break;
+            case "verify_priority":
+              if (isset($query["priority"])) {
+                  $value = verifyPriority($query["priority"]);
+              }
+              else {
+                  $value = "Missing argument priority";
+              }
+            break;
+        }
     }
+    
+    return $value;
 }
 
+
+// Check if we received a batch of verifications
+if (isset($_POST["action"]) && $_POST["action"] == "verify_batch")
+{
+    $values = array();
+    
+    // Each entry is the query string of a single verification, answered in the same order
+    if (isset($_POST["query"]) && is_array($_POST["query"])) {
+        foreach ($_POST["query"] as $queryString) {
+            parse_str($queryString, $query);
+            $values[] = handleAction($query);
+        }
+    }
+    else {}
+    
+    exit(json_encode($values));
+}
+else {}
+
+$value = handleAction($_GET);
+
 exit(json_encode($value));
 ?>
@@ -0,0 +1,200 @@
+package smack.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import smack.Smack;
+import smack.controller.AcknowledgementProcessor.VerificationFallback;
+import smack.controller.AcknowledgementProcessor.WriterMode;
+import smack.verification.Verifier;
+
+/**
+ * Golden file tests of the acknowledgements written by the StAX writer and by the stylesheet
+ *
+ * Each missive of the golden directory is acknowledged by both writers, which must give the
+ * same outcome and, for the acknowledged missives, the acknowledgement of the golden file
+ * "name.ack.xml". The send datetime, which is the current time, is not compared.
+ *
+ * @version 1.0
+ */
+public class AcknowledgementWriterTest {
+
+    private static final String XSL_FILE_NAME = "xsl/payment_activation_transition_message_ActivationRequest2ActivationAcknowledgement.xsl";
+    private static final String GOLDEN_DIRECTORY = "golden/";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static AcknowledgementProcessor staxProcessor;
+    private static AcknowledgementProcessor xsltProcessor;
+
+    @BeforeClass
+    public static void setUpClass() {
+
+        Verifier verifier = new GoldenVerifier();
+        LogController logController = LogController.getLogController();
+
+        // The verification logs through the application log
+        Smack.logController = logController;
+        Smack.smackConfig = new Properties();
+
+        staxProcessor = new AcknowledgementProcessor(XSL_FILE_NAME, verifier, logController, VerificationFallback.FAIL, null, WriterMode.STAX);
+        xsltProcessor = new AcknowledgementProcessor(XSL_FILE_NAME, verifier, logController, VerificationFallback.FAIL, null, WriterMode.XSLT);
+    }
+
+    @Test
+    public void testNominal() throws IOException {
+        assertGolden("nominal", ProcessingStatus.ACK);
+    }
+
+    @Test
+    public void testNegativeAcknowledgement() throws IOException {
+        assertGolden("nack", ProcessingStatus.NACK);
+    }
+
+    @Test
+    public void testRoutingWarning() throws IOException {
+        assertGolden("lowest", ProcessingStatus.ACK);
+    }
+
+    @Test
+    public void testEmptyFields() throws IOException {
+        assertGolden("empty", ProcessingStatus.ACK);
+    }
+
+    @Test
+    public void testEscapedEntities() throws IOException {
+        assertGolden("entity", ProcessingStatus.ACK);
+    }
+
+    @Test
+    public void testEscapedMarkup() throws IOException {
+        assertGolden("markup", ProcessingStatus.ACK);
+    }
+
+    @Test
+    public void testEscapedAmpersandIsRejected() throws IOException {
+        assertGolden("amp", ProcessingStatus.FAILED);
+    }
+
+    @Test
+    public void testCDATASectionIsRejected() throws IOException {
+        assertGolden("cdata", ProcessingStatus.FAILED);
+    }
+
+    @Test
+    public void testCDATASectionEndIsRejected() throws IOException {
+        assertGolden("cdataend", ProcessingStatus.FAILED);
+    }
+
+    @Test
+    public void testSpecialCharactersAreRejected() throws IOException {
+        assertGolden("special", ProcessingStatus.FAILED);
+    }
+
+    /**
+     * Acknowledge a golden missive with both writers and compare the acknowledgements
+     *
+     * @param name Name of the golden missive, without its extension
+     * @param expectedStatus Outcome expected from both writers
+     * @throws IOException
+     */
+    private static void assertGolden(String name, ProcessingStatus expectedStatus) throws IOException {
+
+        byte[] missive = readGoldenFile(name + ".xml");
+
+        ByteArrayOutputStream staxAcknowledgement = new ByteArrayOutputStream();
+        ByteArrayOutputStream xsltAcknowledgement = new ByteArrayOutputStream();
+
+        assertEquals("STAX outcome of " + name, expectedStatus, staxProcessor.process(name, missive, staxAcknowledgement));
+        assertEquals("XSLT outcome of " + name, expectedStatus, xsltProcessor.process(name, missive, xsltAcknowledgement));
+
+        if (expectedStatus == ProcessingStatus.FAILED) {
+            assertEquals("STAX acknowledgement of " + name, 0, staxAcknowledgement.size());
+            assertEquals("XSLT acknowledgement of " + name, 0, xsltAcknowledgement.size());
+            return;
+        }
+
+        String expected = maskSendDateTime(new String(readGoldenFile(name + ".ack.xml"), UTF_8));
+
+        assertEquals("STAX acknowledgement of " + name, expected, maskSendDateTime(new String(staxAcknowledgement.toByteArray(), UTF_8)));
+        assertEquals("XSLT acknowledgement of " + name, expected, maskSendDateTime(new String(xsltAcknowledgement.toByteArray(), UTF_8)));
+    }
+
+    /**
+     * Read a file of the golden directory
+     *
+     * @param name Name of the file
+     * @return Content of the file
+     * @throws IOException
+     */
+    private static byte[] readGoldenFile(String name) throws IOException {
+
+        try (InputStream in = AcknowledgementWriterTest.class.getResourceAsStream(GOLDEN_DIRECTORY + name)) {
+
+            if (in == null) {
+                throw new IOException("Golden file \"" + name + "\" was not found.");
+            }
+
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+
+            while ((count = in.read(buffer)) != -1) {
+                content.write(buffer, 0, count);
+            }
+
+            return content.toByteArray();
+        }
+    }
+
+    /**
+     * Remove the send datetime of an acknowledgement
+     *
+     * @param acknowledgement Acknowledgement missive
+     * @return Acknowledgement missive with an empty send datetime
+     */
+    private static String maskSendDateTime(String acknowledgement) {
+        return acknowledgement.replaceAll("<sem:SndDtTm>[^<]*</sem:SndDtTm>", "<sem:SndDtTm></sem:SndDtTm>");
+    }
+
+    /**
+     * Verifier handling every missive, except the receiver QXBANs ending with 9, and rerouting
+     * the LOWEST priority to NORMAL
+     */
+    private static final class GoldenVerifier implements Verifier {
+
+        @Override
+        public boolean isRemote() {
+            return false;
+        }
+
+        @Override
+        public Boolean verifyReceiver(String receiverBIC, String receiverIBAN) {
+            return !receiverIBAN.endsWith("9");
+        }
+
+        @Override
+        public Boolean verifySender(String senderBIC, String senderIBAN) {
+            return true;
+        }
+
+        @Override
+        public Boolean verifyCorrectDate(String sendDateTime) {
+            return true;
+        }
+
+        @Override
+        public Boolean verifyPassedDate(String sendDateTime) {
+            return true;
+        }
+
+        @Override
+        public String verifyPriority(String priority) {
+            return "LOWEST".equals(priority) ? "NORMAL" : "true";
+        }
+    }
+}
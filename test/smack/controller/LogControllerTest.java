@@ -0,0 +1,245 @@
+package smack.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import smack.Smack;
+import smack.controller.LogController.OverflowPolicy;
+
+/**
+ * Tests of the asynchronous log with several threads logging at once
+ *
+ * The records written by the drain thread are counted by a handler of the application
+ * logger. The records dropped by an overflow policy are counted from the warnings the log
+ * writes about them, so that every record logged is either written or reported as dropped.
+ *
+ * @version 1.0
+ */
+public class LogControllerTest {
+
+    private static final Logger LOGGER = Logger.getLogger(Smack.class.getName());
+    private static final String SOURCE = "LogControllerTest";
+    private static final int PRODUCER_COUNT = 4;
+    private static final int RECORDS_PER_PRODUCER = 2000;
+
+    private CountingHandler handler;
+    private boolean useParentHandlers;
+
+    @Before
+    public void setUp() {
+
+        // The records are counted, not printed on the console
+        this.handler = new CountingHandler();
+        this.useParentHandlers = LOGGER.getUseParentHandlers();
+        LOGGER.setUseParentHandlers(false);
+        LOGGER.addHandler(this.handler);
+    }
+
+    @After
+    public void tearDown() {
+        LOGGER.removeHandler(this.handler);
+        LOGGER.setUseParentHandlers(this.useParentHandlers);
+    }
+
+    @Test(timeout = 60000)
+    public void testBlockKeepsEveryRecordInOrder() throws InterruptedException {
+
+        LogController logController = newAsyncLog(OverflowPolicy.BLOCK);
+
+        runProducers(logController, false);
+        logController.close();
+
+        assertEquals(PRODUCER_COUNT * RECORDS_PER_PRODUCER, this.handler.infoCount.get());
+        assertEquals(0, this.handler.droppedCount.get());
+        assertEquals(0, this.handler.outOfOrderCount.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testDropInfoKeepsEveryWarning() throws InterruptedException {
+
+        LogController logController = newAsyncLog(OverflowPolicy.DROP_INFO);
+
+        runProducers(logController, true);
+        logController.close();
+
+        assertAccounted();
+    }
+
+    @Test(timeout = 60000)
+    public void testSampleKeepsEveryWarning() throws InterruptedException {
+
+        LogController logController = newAsyncLog(OverflowPolicy.SAMPLE);
+
+        runProducers(logController, true);
+        logController.close();
+
+        assertAccounted();
+    }
+
+    @Test(timeout = 60000)
+    public void testNoRecordIsLostWhenClosedWhileLogging() throws InterruptedException {
+
+        for (int run = 0; run < 20; run++) {
+
+            final LogController logController = newAsyncLog(OverflowPolicy.BLOCK);
+            CountingHandler runHandler = new CountingHandler();
+            LOGGER.addHandler(runHandler);
+
+            Thread closer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    LockSupport.parkNanos(200000L);
+                    logController.close();
+                }
+            });
+
+            closer.start();
+            runProducers(logController, false);
+            closer.join();
+
+            LOGGER.removeHandler(runHandler);
+
+            assertEquals("Records written in run " + run, PRODUCER_COUNT * RECORDS_PER_PRODUCER, runHandler.infoCount.get());
+        }
+    }
+
+    /**
+     * Check that the warnings were all written and the other records written or reported as dropped
+     */
+    private void assertAccounted() {
+
+        assertEquals(PRODUCER_COUNT * RECORDS_PER_PRODUCER / 2, this.handler.warningCount.get());
+        assertEquals(PRODUCER_COUNT * RECORDS_PER_PRODUCER / 2, this.handler.infoCount.get() + this.handler.droppedCount.get());
+        assertTrue("Records dropped by the full buffer", this.handler.droppedCount.get() > 0);
+    }
+
+    /**
+     * Create an asynchronous log with a small buffer
+     *
+     * @param policy Overflow policy
+     * @return Log, started
+     */
+    private static LogController newAsyncLog(OverflowPolicy policy) {
+
+        Properties config = new Properties();
+        config.setProperty("logAsync", "true");
+        config.setProperty("logOverflowPolicy", policy.toString());
+        config.setProperty("logBufferSize", "16");
+        config.setProperty("logSampleRate", "4");
+
+        LogController logController = new LogController();
+        logController.configure(config);
+
+        return logController;
+    }
+
+    /**
+     * Log from several threads at once and wait for them
+     *
+     * @param logController Log
+     * @param withWarnings Whether every other record is a warning
+     * @throws InterruptedException
+     */
+    private static void runProducers(final LogController logController, final boolean withWarnings) throws InterruptedException {
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+
+        for (int p = 0; p < PRODUCER_COUNT; p++) {
+
+            final int producer = p;
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+
+                    for (int i = 0; i < RECORDS_PER_PRODUCER; i++) {
+                        Level level = withWarnings && i % 2 == 1 ? Level.WARNING : Level.INFO;
+                        logController.log(level, SOURCE, producer + ":" + i);
+                    }
+                }
+            });
+
+            thread.start();
+            producers.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : producers) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Handler counting the records of the test and the dropped records reported by the log
+     */
+    private static final class CountingHandler extends Handler {
+
+        private final AtomicLong infoCount = new AtomicLong();
+        private final AtomicLong warningCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private final AtomicLong outOfOrderCount = new AtomicLong();
+        private final ConcurrentMap<String, Integer> lastRecords = new ConcurrentHashMap<>();
+
+        @Override
+        public void publish(LogRecord record) {
+
+            if (!SOURCE.equals(record.getSourceClassName())) {
+
+                // Warning of the log about the records dropped since the buffer was full
+                String message = record.getMessage();
+                if (message.endsWith("dropped since the log buffer was full.")) {
+                    this.droppedCount.addAndGet(Long.parseLong(message.substring(0, message.indexOf(' '))));
+                }
+
+                return;
+            }
+
+            // Slow down the drain thread so that the buffer fills up
+            LockSupport.parkNanos(20000L);
+
+            String[] producerRecord = record.getMessage().split(":");
+            int sequence = Integer.parseInt(producerRecord[1]);
+            Integer last = this.lastRecords.put(producerRecord[0], sequence);
+
+            if (last != null && last >= sequence) {
+                this.outOfOrderCount.incrementAndGet();
+            }
+
+            if (record.getLevel() == Level.WARNING) {
+                this.warningCount.incrementAndGet();
+            } else {
+                this.infoCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package smack.controller;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import smack.utilities.ManualClock;
+import smack.verification.MissiveHeader;
+import smack.verification.MissivePriority;
+
+/**
+ * Tests of the order in which the priority queue hands out the missives, on a clock moved by
+ * the tests so that the promotion of the waiting missives does not depend on the machine
+ *
+ * @version 1.0
+ */
+public class PriorityWorkQueueTest {
+
+    private static final long AGING_INTERVAL = 1000;
+
+    @Rule
+    public TemporaryFolder missiveDirectory = new TemporaryFolder();
+
+    private ManualClock clock;
+    private PriorityWorkQueue queue;
+    private List<String> ran;
+
+    @Before
+    public void setUp() {
+        this.clock = new ManualClock();
+        this.queue = new PriorityWorkQueue(AGING_INTERVAL, this.clock);
+        this.ran = new ArrayList<>();
+    }
+
+    @Test
+    public void testHighestPriorityFirst() {
+
+        this.offer("low", MissivePriority.LOW);
+        this.offer("normal", MissivePriority.NORMAL);
+        this.offer("highest", MissivePriority.HIGHEST);
+        this.offer("lowest", MissivePriority.LOWEST);
+        this.offer("high", MissivePriority.HIGH);
+
+        assertEquals(Arrays.asList("highest", "high", "normal", "low", "lowest"), this.runAll());
+    }
+
+    @Test
+    public void testSamePriorityInArrivalOrder() {
+
+        this.offer("first", MissivePriority.NORMAL);
+        this.queue.offer(this.named("untagged"));
+        this.offer("third", MissivePriority.NORMAL);
+
+        assertEquals(Arrays.asList("first", "untagged", "third"), this.runAll());
+    }
+
+    @Test
+    public void testWaitingMissiveIsPromoted() {
+
+        this.offer("low", MissivePriority.LOW);
+        this.clock.advanceMillis(AGING_INTERVAL - 1);
+        this.offer("normal", MissivePriority.NORMAL);
+
+        assertEquals("Not promoted yet", "normal", this.pollName());
+
+        this.offer("normal", MissivePriority.NORMAL);
+        this.clock.advanceMillis(1);
+
+        // Promoted to NORMAL and waiting longer than the NORMAL missive
+        assertEquals(Arrays.asList("low", "normal"), this.runAll());
+    }
+
+    @Test
+    public void testPromotionStopsAtHigh() {
+
+        this.offer("lowest", MissivePriority.LOWEST);
+        this.clock.advanceMillis(100 * AGING_INTERVAL);
+        this.offer("highest", MissivePriority.HIGHEST);
+        this.offer("high", MissivePriority.HIGH);
+
+        assertEquals(Arrays.asList("highest", "lowest", "high"), this.runAll());
+    }
+
+    @Test
+    public void testPromotionCanBeDisabled() {
+
+        this.queue = new PriorityWorkQueue(0, this.clock);
+
+        this.offer("lowest", MissivePriority.LOWEST);
+        this.clock.advanceMillis(TimeUnit.HOURS.toMillis(1));
+        this.offer("normal", MissivePriority.NORMAL);
+
+        assertEquals(Arrays.asList("normal", "lowest"), this.runAll());
+    }
+
+    @Test
+    public void testPeekAndDrainFollowThePolls() {
+
+        this.offer("low", MissivePriority.LOW);
+        this.offer("high", MissivePriority.HIGH);
+        this.clock.advanceMillis(2 * AGING_INTERVAL);
+        this.offer("normal", MissivePriority.NORMAL);
+
+        this.queue.peek().run();
+        assertEquals(Arrays.asList("high"), this.ran);
+        assertEquals(3, this.queue.size());
+        assertEquals("{HIGHEST=0, HIGH=1, NORMAL=1, LOW=1, LOWEST=0}", this.queue.getDepths().toString());
+
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(3, this.queue.drainTo(drained));
+
+        this.ran.clear();
+        for (Runnable runnable : drained) {
+            runnable.run();
+        }
+
+        assertEquals(Arrays.asList("high", "low", "normal"), this.ran);
+        assertNull(this.queue.poll());
+    }
+
+    @Test
+    public void testMissiveIsQueuedWithThePriorityOfItsHeader() throws Exception {
+
+        this.offer("normal", MissivePriority.NORMAL);
+        this.queue.offer(this.missiveTask("low", "LOW"));
+        this.queue.offer(this.missiveTask("highest", "HIGHEST"));
+        this.queue.offer(this.missiveTask("unreadable", null));
+
+        // The headers are read first, ahead of the missive already queued
+        for (int i = 0; i < 3; i++) {
+            Runnable headerTask = this.queue.poll();
+            assertTrue("Header task " + headerTask, !(headerTask instanceof MissiveTask));
+            headerTask.run();
+        }
+
+        assertEquals(Arrays.asList("highest HIGHEST", "normal", "unreadable null", "low LOW"), this.runAll());
+        assertEquals("{HIGHEST=0, HIGH=0, NORMAL=0, LOW=0, LOWEST=0}", this.queue.getDepths().toString());
+    }
+
+    /**
+     * Create the task of a missive file, recording its name and the priority of the header it is given
+     *
+     * @param name Name of the missive file
+     * @param priority MsvPri of the missive, null for a file which is not a missive
+     * @return Task
+     * @throws IOException
+     */
+    private MissiveTask missiveTask(final String name, String priority) throws IOException {
+
+        File missiveFile = this.missiveDirectory.newFile(name + ".xml");
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(missiveFile), "UTF-8")) {
+            if (priority != null) {
+                writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<sem:Missive xmlns:sem=\"http://www.sepamail.eu/xsd/bleedingEdge\">"
+                        + "<sem:sepamail_missive_001><sem:MsvTyp>Nominal</sem:MsvTyp><sem:MsvPri>" + priority + "</sem:MsvPri>"
+                        + "</sem:sepamail_missive_001></sem:Missive>\n");
+            } else {
+                writer.write("not a missive");
+            }
+        }
+
+        return new MissiveTask(missiveFile) {
+            @Override
+            protected ProcessingStatus process(MissiveHeader header) {
+
+                ran.add(name + " " + (header != null ? header.getPriority() : null));
+
+                return ProcessingStatus.ACK;
+            }
+        };
+    }
+
+    /**
+     * Queue a named task
+     *
+     * @param name Name recorded when the task runs
+     * @param priority Priority of the task
+     */
+    private void offer(String name, MissivePriority priority) {
+        this.queue.offer(PriorityWorkQueue.task(priority, this.named(name)));
+    }
+
+    /**
+     * Create a task recording its name when it runs
+     *
+     * @param name Name of the task
+     * @return Task
+     */
+    private Runnable named(final String name) {
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    /**
+     * Run the next task
+     *
+     * @return Name of the task
+     */
+    private String pollName() {
+
+        this.queue.poll().run();
+
+        return this.ran.remove(this.ran.size() - 1);
+    }
+
+    /**
+     * Run the tasks of the queue in the order they are handed out
+     *
+     * @return Names of the tasks
+     */
+    private List<String> runAll() {
+
+        List<String> names = new ArrayList<>();
+
+        while (this.queue.size() > 0) {
+            names.add(this.pollName());
+        }
+
+        return names;
+    }
+}
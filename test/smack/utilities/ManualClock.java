@@ -0,0 +1,27 @@
+package smack.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock of the tests, which only moves when the test moves it
+ *
+ * @version 1.0
+ */
+public final class ManualClock implements NanoClock {
+
+    private volatile long now = 1000000000L;
+
+    @Override
+    public long nanoTime() {
+        return this.now;
+    }
+
+    /**
+     * Move the clock forward
+     *
+     * @param millis Time to add in milliseconds
+     */
+    public void advanceMillis(long millis) {
+        this.now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,134 @@
+package smack.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the bounded multi-producer single-consumer queue
+ *
+ * @version 1.0
+ */
+public class RingBufferTest {
+
+    private static final int PRODUCER_COUNT = 4;
+    private static final int ELEMENTS_PER_PRODUCER = 100000;
+
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo() {
+
+        RingBuffer<Integer> buffer = new RingBuffer<>(10);
+
+        assertEquals(16, buffer.capacity());
+
+        for (int i = 0; i < 16; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        assertFalse("Full buffer", buffer.offer(16));
+        assertEquals(16, buffer.size());
+
+        for (int i = 0; i < 16; i++) {
+            assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+
+        assertNull(buffer.poll());
+        assertEquals(buffer.getAddedCount(), buffer.getRemovedCount());
+    }
+
+    @Test
+    public void testSlotsAreReusedAfterEachLap() {
+
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(i + 1000));
+            assertEquals(Integer.valueOf(i), buffer.poll());
+            assertEquals(Integer.valueOf(i + 1000), buffer.poll());
+        }
+
+        assertNull(buffer.poll());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentProducers() throws InterruptedException {
+
+        // A small buffer so that the producers keep finding it full
+        final RingBuffer<Long> buffer = new RingBuffer<>(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+
+        for (int p = 0; p < PRODUCER_COUNT; p++) {
+
+            final long producer = p;
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+
+                    awaitQuietly(start);
+
+                    for (long i = 0; i < ELEMENTS_PER_PRODUCER; i++) {
+                        while (!buffer.offer((producer << 32) | i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+
+            thread.start();
+            producers.add(thread);
+        }
+
+        start.countDown();
+
+        // Each producer's elements must be received once and in the order they were added
+        long[] nextExpected = new long[PRODUCER_COUNT];
+        int received = 0;
+
+        while (received < PRODUCER_COUNT * ELEMENTS_PER_PRODUCER) {
+
+            Long element = buffer.poll();
+
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+
+            int producer = (int) (element >>> 32);
+            long sequence = element & 0xffffffffL;
+
+            assertEquals("Next element of producer " + producer, nextExpected[producer], sequence);
+            nextExpected[producer]++;
+            received++;
+        }
+
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        assertNull(buffer.poll());
+        assertEquals(PRODUCER_COUNT * ELEMENTS_PER_PRODUCER, buffer.getAddedCount());
+        assertEquals(PRODUCER_COUNT * ELEMENTS_PER_PRODUCER, buffer.getRemovedCount());
+    }
+
+    /**
+     * Wait for the start of the test
+     *
+     * @param start Latch released when all the threads are ready
+     */
+    private static void awaitQuietly(CountDownLatch start) {
+
+        try {
+            start.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package smack.verification;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import smack.utilities.ManualClock;
+
+/**
+ * Tests of the states of the circuit breaker, on a clock moved by the tests
+ *
+ * @version 1.0
+ */
+public class CircuitBreakerTest {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MILLIS = 1000;
+
+    private ManualClock clock;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        this.clock = new ManualClock();
+        this.breaker = new CircuitBreaker("test", FAILURE_THRESHOLD, OPEN_MILLIS, this.clock);
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+
+        for (int i = 1; i < FAILURE_THRESHOLD; i++) {
+            this.failRequest();
+            assertEquals("CLOSED", this.breaker.getState());
+            assertTrue(this.breaker.allowRequest());
+        }
+
+        this.failRequest();
+
+        assertEquals("OPEN", this.breaker.getState());
+        assertEquals(FAILURE_THRESHOLD, this.breaker.getConsecutiveFailures());
+        assertEquals(1, this.breaker.getOpenCount());
+        assertFalse(this.breaker.allowRequest());
+        assertEquals(1, this.breaker.getRejectedCount());
+    }
+
+    @Test
+    public void testSuccessResetsTheFailures() {
+
+        for (int i = 1; i < FAILURE_THRESHOLD; i++) {
+            this.failRequest();
+        }
+
+        this.breaker.recordSuccess();
+        this.failRequest();
+
+        assertEquals("CLOSED", this.breaker.getState());
+        assertEquals(1, this.breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testFailuresOfRequestsInFlightAreNotCounted() {
+
+        // Every check of a missive started before the first one failed
+        long requestStartTime = this.clock.nanoTime();
+        this.clock.advanceMillis(1);
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            this.breaker.recordFailure(requestStartTime);
+        }
+
+        assertEquals("CLOSED", this.breaker.getState());
+        assertEquals(1, this.breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testHalfOpenTrialClosesTheBreaker() {
+
+        this.openBreaker();
+
+        this.clock.advanceMillis(OPEN_MILLIS - 1);
+        assertFalse("Open time not over", this.breaker.allowRequest());
+
+        this.clock.advanceMillis(1);
+        assertTrue("Trial query", this.breaker.allowRequest());
+        assertEquals("HALF_OPEN", this.breaker.getState());
+        assertFalse("Single trial query", this.breaker.allowRequest());
+        assertEquals(2, this.breaker.getRejectedCount());
+
+        this.breaker.recordSuccess();
+
+        assertEquals("CLOSED", this.breaker.getState());
+        assertEquals(0, this.breaker.getConsecutiveFailures());
+        assertTrue(this.breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedTrialOpensTheBreakerAgain() {
+
+        this.openBreaker();
+        this.clock.advanceMillis(OPEN_MILLIS);
+
+        long trialStartTime = this.clock.nanoTime();
+        assertTrue(this.breaker.allowRequest());
+        this.breaker.recordFailure(trialStartTime);
+
+        assertEquals("OPEN", this.breaker.getState());
+        assertEquals(2, this.breaker.getOpenCount());
+        assertFalse(this.breaker.allowRequest());
+
+        // The open time starts again from the failed trial
+        this.clock.advanceMillis(OPEN_MILLIS);
+        assertTrue(this.breaker.allowRequest());
+    }
+
+    @Test
+    public void testReleasedTrialLetsAnotherTrialThrough() {
+
+        this.openBreaker();
+        this.clock.advanceMillis(OPEN_MILLIS);
+
+        assertTrue(this.breaker.allowRequest());
+        this.breaker.releaseTrial();
+
+        assertEquals("HALF_OPEN", this.breaker.getState());
+        assertTrue(this.breaker.allowRequest());
+    }
+
+    @Test
+    public void testThresholdZeroNeverOpens() {
+
+        this.breaker = new CircuitBreaker("test", 0, OPEN_MILLIS, this.clock);
+
+        for (int i = 0; i < 100; i++) {
+            this.failRequest();
+        }
+
+        assertEquals("CLOSED", this.breaker.getState());
+        assertTrue(this.breaker.allowRequest());
+        assertEquals(0, this.breaker.getOpenCount());
+    }
+
+    /**
+     * Open the breaker with consecutive failures
+     */
+    private void openBreaker() {
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            this.failRequest();
+        }
+
+        assertEquals("OPEN", this.breaker.getState());
+    }
+
+    /**
+     * Record a request failing 1 ms after it started
+     */
+    private void failRequest() {
+
+        long requestStartTime = this.clock.nanoTime();
+
+        this.clock.advanceMillis(1);
+        this.breaker.recordFailure(requestStartTime);
+    }
+}
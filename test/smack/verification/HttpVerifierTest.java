@@ -0,0 +1,112 @@
+package smack.verification;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import javax.xml.stream.XMLStreamException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import smack.Smack;
+import smack.controller.LogController;
+import smack.utilities.RoutingWarning;
+
+/**
+ * Tests of the verifications performed through a local stand-in of the verification web
+ * service, see WebServiceStandIn
+ *
+ * @version 1.0
+ */
+public class HttpVerifierTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static WebServiceStandIn standIn;
+    private static HttpVerifier verifier;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+
+        standIn = WebServiceStandIn.start();
+
+        // The verification client reads its configuration on first use
+        Properties config = new Properties();
+        config.setProperty("verificationWSUrl", standIn.getUrl());
+        config.setProperty("verificationRetries", "0");
+
+        Smack.smackConfig = config;
+        Smack.logController = LogController.getLogController();
+
+        verifier = new HttpVerifier(config.getProperty("verificationWSUrl"));
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        standIn.stop();
+    }
+
+    @Test
+    public void testHandledPriority() throws IOException {
+        assertEquals("true", verifier.verifyPriority("NORMAL"));
+    }
+
+    @Test
+    public void testDefaultPriorityIsUnquoted() throws IOException {
+        assertEquals(WebServiceStandIn.DEFAULT_PRIORITY, verifier.verifyPriority("URGENT"));
+    }
+
+    @Test
+    public void testHandledPriorityHasNoRoutingWarning() throws IOException, XMLStreamException {
+
+        MissiveNominal missiveNominal = new MissiveNominal(readHeader("NORMAL"), verifier);
+
+        assertTrue(missiveNominal.verify());
+        assertNull(missiveNominal.getRoutingWarning());
+    }
+
+    @Test
+    public void testDefaultPriorityRoutingWarning() throws IOException, XMLStreamException {
+
+        MissiveNominal missiveNominal = new MissiveNominal(readHeader("URGENT"), verifier);
+
+        assertTrue(missiveNominal.verify());
+
+        RoutingWarning routingWarning = missiveNominal.getRoutingWarning();
+
+        assertEquals("PRI_LOWEST", routingWarning != null ? routingWarning.getCode() : null);
+    }
+
+    @Test
+    public void testQueryParametersAreEncoded() throws IOException {
+
+        String sendDateTime = "2012-11-14T16:16:00+01:00";
+
+        assertTrue(verifier.verifyCorrectDate(sendDateTime));
+        assertEquals(sendDateTime, standIn.getLastDate());
+    }
+
+    /**
+     * Read the header of a missive sent to the handled receiver
+     *
+     * @param priority Priority of the missive
+     * @return Header of the missive
+     * @throws XMLStreamException
+     */
+    private static MissiveHeader readHeader(String priority) throws XMLStreamException {
+
+        String missive = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<sem:Missive xmlns:sem=\"http://www.sepamail.eu/xsd/bleedingEdge\" version=\"1206\"><sem:sepamail_missive_001>"
+                + "<sem:MsvId>MSV-0001</sem:MsvId><sem:MsvTyp>Nominal</sem:MsvTyp><sem:MsvOrd>1</sem:MsvOrd>"
+                + "<sem:MsvPri>" + priority + "</sem:MsvPri><sem:MsvHdr>"
+                + "<sem:Snd><sem:BIC>BICVERT1</sem:BIC><sem:IBAN>QX87BICVERT1XXXTEST000000000000002</sem:IBAN></sem:Snd>"
+                + "<sem:SndDtTm>2012-11-14T16:16:00</sem:SndDtTm>"
+                + "<sem:Rcv><sem:BIC>BICVERT1</sem:BIC><sem:IBAN>" + WebServiceStandIn.RECEIVER_IBAN + "</sem:IBAN></sem:Rcv>"
+                + "</sem:MsvHdr><sem:MsvBody/></sem:sepamail_missive_001></sem:Missive>";
+
+        return MissiveHeaderReader.read(new ByteArrayInputStream(missive.getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,153 @@
+package smack.verification;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the in-process verifications, with rule files written in the "ini" format of the
+ * verification web service
+ *
+ * @version 1.0
+ */
+public class LocalVerifierTest {
+
+    private static final String RECEIVER_IBAN = "QX87BICVERT1XXXTEST000000000000001";
+    private static final String SENDER_IBAN = "QX12BICVERT2XXXABCDEFGHJK123456789";
+    private static final String BLACK_LISTED_IBAN = "QX12BICVERT2XXX999999999999999999Z";
+
+    @Rule
+    public TemporaryFolder rulesDirectory = new TemporaryFolder();
+
+    private LocalVerifier verifier;
+
+    @Before
+    public void setUp() throws IOException {
+
+        this.writeRules("configRcvBIC.ini", "; Receivers", "[bics]", "bicList[] = BICVERT1", "bicList[] = \"BICVERT2\"");
+        this.writeRules("configRcvQXBAN.ini", "[qxbans]", "qxbanList[] = " + RECEIVER_IBAN);
+        this.writeRules("configSndBIC.ini", "# Senders", "", "bicList[] = BICVERT2", "bicList[] = BICVERT3XYZ", "not an entry");
+        this.writeRules("configSndBlackListQxban.ini", "[qxbans]", "qxbanList[]=" + BLACK_LISTED_IBAN);
+        this.writeRules("configPriority.ini", "[priority]", "priorityList[] = HIGH", "priorityList[] = NORMAL", "priorityDefault = LOWEST");
+
+        this.verifier = new LocalVerifier(this.rulesDirectory.getRoot().getPath());
+    }
+
+    @Test
+    public void testVerificationsAreLocal() {
+        assertFalse(this.verifier.isRemote());
+    }
+
+    @Test
+    public void testReceiver() {
+
+        assertTrue(this.verifier.verifyReceiver("BICVERT1", RECEIVER_IBAN));
+        assertTrue("Quoted value", this.verifier.verifyReceiver("BICVERT2", RECEIVER_IBAN));
+        assertFalse("Unknown BIC", this.verifier.verifyReceiver("BICVERT9", RECEIVER_IBAN));
+        assertFalse("Unknown QXBAN", this.verifier.verifyReceiver("BICVERT1", SENDER_IBAN));
+    }
+
+    @Test
+    public void testSender() {
+
+        assertTrue(this.verifier.verifySender("BICVERT2", SENDER_IBAN));
+        assertTrue("BIC on eleven characters", this.verifier.verifySender("BICVERT3XYZ", "QX00BICVERT3XYZ0000000000000000000"));
+        assertFalse("Unknown BIC", this.verifier.verifySender("BICVERT1", "QX12BICVERT1XXXABCDEFGHJK123456789"));
+        assertFalse("Black listed QXBAN", this.verifier.verifySender("BICVERT2", BLACK_LISTED_IBAN));
+    }
+
+    @Test
+    public void testInvalidSenderQXBAN() {
+
+        assertFalse("Too short", this.verifier.verifySender("BICVERT2", "QX12BICVERT2XXXABCDEFGHJK12345678"));
+        assertFalse("Not QX", this.verifier.verifySender("BICVERT2", "FR12BICVERT2XXXABCDEFGHJK123456789"));
+        assertFalse("Key not numeric", this.verifier.verifySender("BICVERT2", "QX1ABICVERT2XXXABCDEFGHJK123456789"));
+        assertFalse("Other BIC", this.verifier.verifySender("BICVERT2", "QX12BICVERT3XXXABCDEFGHJK123456789"));
+        assertFalse("Lowercase", this.verifier.verifySender("BICVERT2", "QX12BICVERT2XXXabcdefghjk123456789"));
+    }
+
+    @Test
+    public void testDates() {
+
+        long now = System.currentTimeMillis();
+        String passed = format(now - TimeUnit.HOURS.toMillis(1));
+        String slightlyAhead = format(now + 1000);
+        String future = format(now + TimeUnit.HOURS.toMillis(1));
+
+        assertTrue(this.verifier.verifyCorrectDate(passed));
+        assertTrue(this.verifier.verifyPassedDate(passed));
+
+        // The send datetime may be ahead of the local clock by less than 3 seconds
+        assertTrue(this.verifier.verifyCorrectDate(slightlyAhead));
+        assertFalse(this.verifier.verifyPassedDate(slightlyAhead));
+
+        assertFalse(this.verifier.verifyCorrectDate(future));
+        assertFalse(this.verifier.verifyPassedDate(future));
+
+        assertTrue("Default time zone", this.verifier.verifyPassedDate("2001-01-01T00:00:00"));
+        assertFalse("Invalid datetime", this.verifier.verifyCorrectDate("yesterday"));
+        assertFalse("Invalid datetime", this.verifier.verifyPassedDate(""));
+    }
+
+    @Test
+    public void testPriority() throws IOException {
+
+        assertEquals("true", this.verifier.verifyPriority("HIGH"));
+        assertEquals("true", this.verifier.verifyPriority("NORMAL"));
+        assertEquals("LOWEST", this.verifier.verifyPriority("HIGHEST"));
+
+        // Without a default priority the unhandled priorities are rejected
+        this.writeRules("configPriority.ini", "priorityList[] = HIGH");
+        LocalVerifier noDefault = new LocalVerifier(this.rulesDirectory.getRoot().getPath());
+
+        assertEquals("false", noDefault.verifyPriority("LOW"));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingRulesFile() throws IOException {
+
+        assertTrue(new File(this.rulesDirectory.getRoot(), "configSndBIC.ini").delete());
+
+        new LocalVerifier(this.rulesDirectory.getRoot().getPath());
+    }
+
+    /**
+     * Write a rules file of the rules directory
+     *
+     * @param fileName Name of the file
+     * @param lines Lines of the file
+     * @throws IOException
+     */
+    private void writeRules(String fileName, String... lines) throws IOException {
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(this.rulesDirectory.getRoot(), fileName)), "UTF-8")) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Format a time as an ISO 8601 datetime with its time zone
+     *
+     * @param millis Time in milliseconds since 1970
+     * @return Datetime
+     */
+    private static String format(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(new Date(millis));
+    }
+}
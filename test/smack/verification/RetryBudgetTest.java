@@ -0,0 +1,86 @@
+package smack.verification;
+
+import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the share of the queries which may be retried
+ *
+ * @version 1.0
+ */
+public class RetryBudgetTest {
+
+    @Test
+    public void testBudgetStartsFull() {
+
+        RetryBudget budget = new RetryBudget(0.25, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue("Retry " + i, budget.withdraw());
+        }
+
+        assertFalse("Empty budget", budget.withdraw());
+    }
+
+    @Test
+    public void testQueriesEarnRetries() {
+
+        RetryBudget budget = emptyBudget(0.25, 3);
+
+        for (int i = 0; i < 3; i++) {
+            budget.deposit();
+            assertFalse("Part of a retry after " + (i + 1) + " queries", budget.withdraw());
+        }
+
+        budget.deposit();
+
+        assertTrue("Whole retry after 4 queries", budget.withdraw());
+        assertFalse(budget.withdraw());
+    }
+
+    @Test
+    public void testBudgetIsCapped() {
+
+        RetryBudget budget = emptyBudget(0.5, 2);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertTrue(budget.withdraw());
+        assertTrue(budget.withdraw());
+        assertFalse("No more than 2 retries held", budget.withdraw());
+    }
+
+    @Test
+    public void testZeroRatioOnlyAllowsTheInitialRetries() {
+
+        RetryBudget budget = new RetryBudget(0, 1);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertTrue(budget.withdraw());
+        assertFalse(budget.withdraw());
+    }
+
+    /**
+     * Create a budget and withdraw its initial retries
+     *
+     * @param ratio Share of the queries which may be retried
+     * @param maxRetries Maximum number of retries held in the budget
+     * @return Empty budget
+     */
+    private static RetryBudget emptyBudget(double ratio, int maxRetries) {
+
+        RetryBudget budget = new RetryBudget(ratio, maxRetries);
+
+        while (budget.withdraw()) {
+            // Spend the initial retries
+        }
+
+        return budget;
+    }
+}
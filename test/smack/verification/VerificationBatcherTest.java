@@ -0,0 +1,190 @@
+package smack.verification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the "verify_batch" protocol against a local stand-in of the verification web
+ * service, see WebServiceStandIn
+ *
+ * @version 1.0
+ */
+public class VerificationBatcherTest {
+
+    private static WebServiceStandIn standIn;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        standIn = WebServiceStandIn.start();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        standIn.stop();
+    }
+
+    @Before
+    public void setUp() {
+        standIn.reset();
+    }
+
+    @Test(timeout = 30000)
+    public void testResponsesFollowTheOrderOfTheQueries() throws Exception {
+
+        // A full batch only, the waiting time never runs out
+        VerificationClient client = newClient(4, 60000);
+        List<String> values = Arrays.asList("first", "second", "third", "fourth");
+
+        List<Object> responses = queryConcurrently(client, values);
+
+        assertEquals(values, responses);
+        assertEquals(Collections.singletonList(4), standIn.getBatchSizes());
+    }
+
+    @Test(timeout = 30000)
+    public void testEscapedResponses() throws Exception {
+
+        VerificationClient client = newClient(2, 20);
+        String value = "\u00e9t\u00e9 \"quoted\" back\\slash / line\nbreak\ttab \ud83d\ude00";
+
+        assertEquals(value, client.query(standIn.getUrl(), "echo", "value", value));
+    }
+
+    @Test
+    public void testParseJsonArray() throws IOException {
+
+        assertEquals(Arrays.asList("true", "LOWEST", "a,b", "\u00e9", "null", "12"),
+                VerificationBatcher.parseJsonArray(" [true, \"LOWEST\" ,\"a,b\",\"\\u00E9\",null,12] "));
+        assertEquals(Collections.singletonList(""), VerificationBatcher.parseJsonArray("[\"\"]"));
+        assertEquals(Collections.<String>emptyList(), VerificationBatcher.parseJsonArray("[]"));
+    }
+
+    @Test
+    public void testInvalidUnicodeEscapeIsRejected() {
+
+        for (String json : new String[] {"[\"\\u00\"]", "[\"\\u00zz\"]", "[\"\\u"}) {
+            try {
+                VerificationBatcher.parseJsonArray(json);
+                fail("Response " + json + " must be rejected");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().startsWith("Invalid batch response"));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testShortResponseFailsTheBatch() throws Exception {
+
+        VerificationClient client = newClient(2, 60000);
+        standIn.setBatchAnswer("[true]");
+
+        for (Object response : queryConcurrently(client, Arrays.asList("first", "second"))) {
+            assertTrue("Failure expected instead of " + response, response instanceof IOException);
+            assertTrue(((IOException) response).getMessage(), ((IOException) response).getMessage().contains("returned 1 response(s) for a batch of 2"));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testPartialResponseFailsTheBatch() throws Exception {
+
+        VerificationClient client = newClient(2, 60000);
+        standIn.setBatchAnswer("[true,\"LOW");
+
+        for (Object response : queryConcurrently(client, Arrays.asList("first", "second"))) {
+            assertTrue("Failure expected instead of " + response, response instanceof IOException);
+            assertTrue(((IOException) response).getMessage(), ((IOException) response).getMessage().contains("Invalid batch response"));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testWaitingTimeSendsAPartialBatch() throws Exception {
+
+        VerificationClient client = newClient(10, 50);
+        long startTime = System.nanoTime();
+
+        assertEquals("alone", client.query(standIn.getUrl(), "echo", "value", "alone"));
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        assertTrue("Batch sent after " + elapsedMillis + " ms", elapsedMillis >= 50 && elapsedMillis < 10000);
+        assertEquals(Collections.singletonList(1), standIn.getBatchSizes());
+    }
+
+    /**
+     * Create a client batching its queries, without retries
+     *
+     * @param batchSize Maximum number of queries of a batch
+     * @param batchMaxWait Maximum time a query waits for its batch to be sent
+     * @return Verification client
+     */
+    private static VerificationClient newClient(int batchSize, int batchMaxWait) {
+
+        Properties config = new Properties();
+        config.setProperty("verificationBatchSize", String.valueOf(batchSize));
+        config.setProperty("verificationBatchMaxWait", String.valueOf(batchMaxWait));
+        config.setProperty("verificationRetries", "0");
+
+        return new VerificationClient(config);
+    }
+
+    /**
+     * Echo values from one thread per value, all started at once
+     *
+     * @param client Verification client
+     * @param values Values to echo
+     * @return Response or failure of each query, in the order of the values
+     * @throws InterruptedException
+     */
+    private static List<Object> queryConcurrently(final VerificationClient client, List<String> values) throws InterruptedException {
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(values.size());
+        List<Future<String>> futures = new ArrayList<>();
+
+        for (final String value : values) {
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return client.query(standIn.getUrl(), "echo", "value", value);
+                }
+            }));
+        }
+
+        start.countDown();
+
+        List<Object> responses = new ArrayList<>();
+
+        try {
+            for (Future<String> future : futures) {
+                try {
+                    responses.add(future.get());
+                } catch (ExecutionException ex) {
+                    responses.add(ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return responses;
+    }
+}
@@ -0,0 +1,122 @@
+package smack.verification;
+
+import java.util.Properties;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import smack.utilities.ManualClock;
+
+/**
+ * Tests of the expiry and the eviction of the cached verification responses, on a clock moved
+ * by the tests
+ *
+ * @version 1.0
+ */
+public class VerificationCacheTest {
+
+    private ManualClock clock;
+
+    @Before
+    public void setUp() {
+        this.clock = new ManualClock();
+    }
+
+    @Test
+    public void testResponseExpiresAfterItsTtl() {
+
+        VerificationCache cache = this.newCache(10, 2, 100);
+        cache.put("receiver", "true");
+
+        this.clock.advanceMillis(9999);
+        assertEquals("true", cache.get("receiver"));
+
+        this.clock.advanceMillis(1);
+        assertNull("Expired response", cache.get("receiver"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testNegativeResponseExpiresAfterTheNegativeTtl() {
+
+        VerificationCache cache = this.newCache(10, 2, 100);
+        cache.put("receiver", "false");
+        cache.put("priority", "\"LOWEST\"");
+
+        this.clock.advanceMillis(1999);
+        assertEquals("false", cache.get("receiver"));
+        assertEquals("\"LOWEST\"", cache.get("priority"));
+
+        this.clock.advanceMillis(1);
+        assertNull(cache.get("receiver"));
+        assertNull(cache.get("priority"));
+    }
+
+    @Test
+    public void testZeroTtlDisablesTheCaching() {
+
+        VerificationCache cache = this.newCache(10, 0, 100);
+        cache.put("receiver", "false");
+        cache.put("sender", "true");
+
+        assertTrue(cache.isEnabled());
+        assertNull("Negative response not cached", cache.get("receiver"));
+        assertEquals("true", cache.get("sender"));
+
+        assertFalse(this.newCache(0, 0, 100).isEnabled());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResponseIsEvicted() {
+
+        VerificationCache cache = this.newCache(10, 2, 2);
+        cache.put("first", "true");
+        cache.put("second", "true");
+
+        // Reading the first response makes the second one the least recently used
+        assertEquals("true", cache.get("first"));
+        cache.put("third", "true");
+
+        assertEquals(2, cache.size());
+        assertNull("Evicted response", cache.get("second"));
+        assertEquals("true", cache.get("first"));
+        assertEquals("true", cache.get("third"));
+    }
+
+    @Test
+    public void testHitsAndMissesAreCounted() {
+
+        VerificationCache cache = this.newCache(10, 2, 100);
+
+        assertNull(cache.get("receiver"));
+        cache.put("receiver", "true");
+        assertEquals("true", cache.get("receiver"));
+        assertEquals("true", cache.get("receiver"));
+
+        this.clock.advanceMillis(10000);
+        assertNull(cache.get("receiver"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    /**
+     * Create a cache on the clock of the test
+     *
+     * @param ttl TTL of the responses in seconds
+     * @param negativeTtl TTL of the negative responses in seconds
+     * @param maxSize Maximum number of responses
+     * @return Verification cache
+     */
+    private VerificationCache newCache(long ttl, long negativeTtl, int maxSize) {
+
+        Properties config = new Properties();
+        config.setProperty("verificationCacheTTL", String.valueOf(ttl));
+        config.setProperty("verificationCacheNegativeTTL", String.valueOf(negativeTtl));
+        config.setProperty("verificationCacheMaxSize", String.valueOf(maxSize));
+
+        return new VerificationCache(config, this.clock);
+    }
+}
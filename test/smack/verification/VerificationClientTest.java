@@ -0,0 +1,162 @@
+package smack.verification;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the connections of the verification client against a local stand-in of the
+ * verification web service, see WebServiceStandIn
+ *
+ * @version 1.0
+ */
+public class VerificationClientTest {
+
+    private static WebServiceStandIn standIn;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        standIn = WebServiceStandIn.start();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        standIn.stop();
+    }
+
+    @Before
+    public void setUp() {
+        standIn.reset();
+    }
+
+    @Test(timeout = 30000)
+    public void testConnectionsAreReused() throws IOException {
+
+        VerificationClient client = newClient(1000, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value" + i, client.query(standIn.getUrl(), "echo", "value", "value" + i));
+        }
+
+        assertEquals("Connections opened", 1, standIn.getClientPorts().size());
+    }
+
+    @Test(timeout = 30000)
+    public void testReadTimeout() throws IOException {
+
+        VerificationClient client = newClient(1000, 200);
+        standIn.setStallMillis(5000);
+
+        long startTime = System.nanoTime();
+
+        try {
+            client.query(standIn.getUrl(), "echo", "value", "stalled");
+            fail("The stalled query must time out");
+        } catch (VerificationUnavailableException ex) {
+            assertTrue("Cause " + ex.getCause(), ex.getCause() instanceof SocketTimeoutException);
+        }
+
+        assertElapsedLessThan(startTime, 4000);
+    }
+
+    @Test(timeout = 30000)
+    public void testConnectTimeout() throws IOException {
+
+        // A listening socket whose backlog is full and which never accepts leaves the next connections pending
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+
+            List<Socket> backlog = fillBacklog(server);
+
+            try {
+                VerificationClient client = newClient(200, 1000);
+                long startTime = System.nanoTime();
+
+                try {
+                    client.query("http://127.0.0.1:" + server.getLocalPort() + "/ws.php", "echo", "value", "pending");
+                    fail("The pending connection must time out");
+                } catch (VerificationUnavailableException ex) {
+                    assertTrue("Cause " + ex.getCause(), ex.getCause() instanceof SocketTimeoutException);
+                }
+
+                assertElapsedLessThan(startTime, 4000);
+
+            } finally {
+                for (Socket socket : backlog) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a client sending each query once
+     *
+     * @param connectTimeout Connection timeout in milliseconds
+     * @param readTimeout Read timeout in milliseconds
+     * @return Verification client
+     */
+    private static VerificationClient newClient(int connectTimeout, int readTimeout) {
+
+        Properties config = new Properties();
+        config.setProperty("verificationWSConnectTimeout", String.valueOf(connectTimeout));
+        config.setProperty("verificationWSReadTimeout", String.valueOf(readTimeout));
+        config.setProperty("verificationRetries", "0");
+        config.setProperty("verificationBreakerFailures", "0");
+
+        return new VerificationClient(config);
+    }
+
+    /**
+     * Open connections to a socket which never accepts them until the next one is left pending
+     *
+     * @param server Listening socket
+     * @return Connections filling the backlog of the socket
+     * @throws IOException
+     */
+    private static List<Socket> fillBacklog(ServerSocket server) throws IOException {
+
+        List<Socket> backlog = new ArrayList<>();
+
+        for (int i = 0; i < 16; i++) {
+
+            Socket socket = new Socket();
+
+            try {
+                socket.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()), 200);
+                backlog.add(socket);
+            } catch (SocketTimeoutException ex) {
+                socket.close();
+                return backlog;
+            }
+        }
+
+        throw new IOException("The backlog of the socket could not be filled.");
+    }
+
+    /**
+     * Check the time elapsed since the start of a query
+     *
+     * @param startTime Start of the query
+     * @param maxMillis Maximum time in milliseconds
+     */
+    private static void assertElapsedLessThan(long startTime, long maxMillis) {
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        assertTrue("Query failed after " + elapsedMillis + " ms", elapsedMillis < maxMillis);
+    }
+}
@@ -0,0 +1,234 @@
+package smack.verification;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the identical queries sharing the query in flight, against a local stand-in of the
+ * verification web service which stalls so that the queries overlap, see WebServiceStandIn
+ *
+ * @version 1.0
+ */
+public class VerificationCoalescingTest {
+
+    private static final long STALL_MILLIS = 1000;
+
+    private static WebServiceStandIn standIn;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        standIn = WebServiceStandIn.start();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        standIn.stop();
+    }
+
+    @Before
+    public void setUp() {
+        standIn.reset();
+        standIn.setStallMillis(STALL_MILLIS);
+    }
+
+    @Test(timeout = 30000)
+    public void testIdenticalQueriesShareOneRequest() throws Exception {
+
+        VerificationClient client = newClient(true, 1, 10000);
+
+        List<Object> responses = queryConcurrently(client, Arrays.asList("same", "same", "same", "same"));
+
+        assertEquals(Arrays.asList("same", "same", "same", "same"), responses);
+        assertEquals("Requests sent", 1, standIn.getRequestCount());
+        assertEquals(3, client.getCoalescedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testDifferentQueriesAreSentApart() throws Exception {
+
+        VerificationClient client = newClient(true, 1, 10000);
+
+        List<Object> responses = queryConcurrently(client, Arrays.asList("first", "second"));
+
+        assertEquals(Arrays.asList("first", "second"), responses);
+        assertEquals("Requests sent", 2, standIn.getRequestCount());
+        assertEquals(0, client.getCoalescedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testCoalescingCanBeDisabled() throws Exception {
+
+        VerificationClient client = newClient(false, 1, 10000);
+
+        List<Object> responses = queryConcurrently(client, Arrays.asList("same", "same", "same"));
+
+        assertEquals(Arrays.asList("same", "same", "same"), responses);
+        assertEquals("Requests sent", 3, standIn.getRequestCount());
+        assertEquals(0, client.getCoalescedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testFailureIsShared() throws Exception {
+
+        // The read timeout runs out while the stand-in stalls
+        VerificationClient client = newClient(true, 1, 200);
+
+        for (Object response : queryConcurrently(client, Arrays.asList("same", "same", "same"))) {
+            assertTrue("Failure expected instead of " + response, response instanceof VerificationUnavailableException);
+            assertTrue("Cause " + ((IOException) response).getCause(), ((IOException) response).getCause() instanceof SocketTimeoutException);
+        }
+
+        assertEquals("Requests sent", 1, standIn.getRequestCount());
+        assertEquals(2, client.getCoalescedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testInterruptedQueryIsSentAgain() throws Exception {
+
+        // Batches of 2 which are never sent on time: a query waits in its batch until it is interrupted or the batch is full
+        final VerificationClient client = newClient(true, 2, 10000);
+        final AtomicReference<Object> firstResponse = new AtomicReference<>();
+        final AtomicReference<Object> secondResponse = new AtomicReference<>();
+        standIn.setStallMillis(0);
+
+        Thread first = startQuery(client, firstResponse);
+        awaitWaiting(first);
+
+        Thread second = startQuery(client, secondResponse);
+
+        while (client.getCoalescedCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        // The second query is sent again in the batch of the interrupted one, which fills it
+        first.interrupt();
+        first.join();
+        second.join();
+
+        assertTrue("Interrupt expected instead of " + firstResponse.get(), firstResponse.get() instanceof IOException && VerificationClient.isInterrupt((IOException) firstResponse.get()));
+        assertEquals("same", secondResponse.get());
+        assertEquals(Collections.singletonList(2), standIn.getBatchSizes());
+    }
+
+    /**
+     * Create a client sending each query once, whose responses are not cached
+     *
+     * @param coalescing Whether identical queries share the query in flight
+     * @param batchSize Maximum number of queries of a batch
+     * @param readTimeout Read timeout in milliseconds
+     * @return Verification client
+     */
+    private static VerificationClient newClient(boolean coalescing, int batchSize, int readTimeout) {
+
+        Properties config = new Properties();
+        config.setProperty("verificationCoalescing", String.valueOf(coalescing));
+        config.setProperty("verificationBatchSize", String.valueOf(batchSize));
+        config.setProperty("verificationBatchMaxWait", "60000");
+        config.setProperty("verificationWSReadTimeout", String.valueOf(readTimeout));
+        config.setProperty("verificationRetries", "0");
+        config.setProperty("verificationBreakerFailures", "0");
+        config.setProperty("verificationCacheTTL", "0");
+        config.setProperty("verificationCacheNegativeTTL", "0");
+
+        return new VerificationClient(config);
+    }
+
+    /**
+     * Echo "same" from a new thread
+     *
+     * @param client Verification client
+     * @param response Response or failure of the query once the thread ends
+     * @return Started thread
+     */
+    private static Thread startQuery(final VerificationClient client, final AtomicReference<Object> response) {
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    response.set(client.query(standIn.getUrl(), "echo", "value", "same"));
+                } catch (IOException ex) {
+                    response.set(ex);
+                }
+            }
+        });
+
+        thread.start();
+
+        return thread;
+    }
+
+    /**
+     * Wait for a thread to block
+     *
+     * @param thread Thread sending a query
+     * @throws InterruptedException
+     */
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Echo values from one thread per value, all started at once
+     *
+     * @param client Verification client
+     * @param values Values to echo
+     * @return Response or failure of each query, in the order of the values
+     * @throws InterruptedException
+     */
+    private static List<Object> queryConcurrently(final VerificationClient client, List<String> values) throws InterruptedException {
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(values.size());
+        List<Future<String>> futures = new ArrayList<>();
+
+        for (final String value : values) {
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return client.query(standIn.getUrl(), "echo", "value", value);
+                }
+            }));
+        }
+
+        start.countDown();
+
+        List<Object> responses = new ArrayList<>();
+
+        try {
+            for (Future<String> future : futures) {
+                try {
+                    responses.add(future.get());
+                } catch (ExecutionException ex) {
+                    responses.add(ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return responses;
+    }
+}
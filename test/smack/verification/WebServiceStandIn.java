@@ -0,0 +1,358 @@
+package smack.verification;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in of the verification web service test/bouchon_ws/ws.php
+ *
+ * The stand-in answers like ws.php with its shipped configuration: the answers are JSON
+ * encoded, so a priority which is not handled is answered with the quoted default priority
+ * "LOWEST". A "verify_batch" request posts one "query[]" field per query and is answered
+ * with the JSON array of the answers of its queries, in order. The "echo" action answers
+ * its "value" parameter as a JSON string whose non-ASCII characters are escaped, like the
+ * json_encode function of PHP.
+ *
+ * The tests can make the stand-in stall before answering or replace the answer of the
+ * batches, and read the requests, the batches and the client connections it has seen.
+ *
+ * @version 1.0
+ */
+final class WebServiceStandIn implements HttpHandler {
+
+    static final List<String> PRIORITIES = Arrays.asList("HIGHEST", "HIGH", "NORMAL", "LOW");
+    static final String DEFAULT_PRIORITY = "LOWEST";
+    static final String RECEIVER_IBAN = "QX87BICVERT1XXXTEST000000000000001";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final HttpServer server;
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Set<Integer> clientPorts = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private volatile String lastDate;
+    private volatile String batchAnswer;
+    private volatile long stallMillis;
+
+    /**
+     * WebServiceStandIn class constructor
+     *
+     * @throws IOException
+     */
+    private WebServiceStandIn() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    }
+
+    /**
+     * Start a stand-in on a free local port
+     *
+     * @return Stand-in answering on "/ws.php"
+     * @throws IOException
+     */
+    static WebServiceStandIn start() throws IOException {
+
+        WebServiceStandIn standIn = new WebServiceStandIn();
+
+        // Several threads so that a stalled request does not hold the others
+        standIn.server.createContext("/ws.php", standIn);
+        standIn.server.setExecutor(Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "ws-stand-in");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        }));
+        standIn.server.start();
+
+        return standIn;
+    }
+
+    /**
+     * Stop the stand-in
+     */
+    void stop() {
+        this.server.stop(0);
+    }
+
+    /**
+     * Get the URL of the stand-in
+     *
+     * @return URL of ws.php
+     */
+    String getUrl() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + "/ws.php";
+    }
+
+    /**
+     * Get the date of the last "verify_date_correct" query
+     *
+     * @return Decoded date
+     */
+    String getLastDate() {
+        return this.lastDate;
+    }
+
+    /**
+     * Replace the answer of the next batches
+     *
+     * @param batchAnswer Raw body answered to the batches, null to answer their queries
+     */
+    void setBatchAnswer(String batchAnswer) {
+        this.batchAnswer = batchAnswer;
+    }
+
+    /**
+     * Make the stand-in wait before answering each request
+     *
+     * @param stallMillis Time to wait in milliseconds, 0 to answer at once
+     */
+    void setStallMillis(long stallMillis) {
+        this.stallMillis = stallMillis;
+    }
+
+    /**
+     * Get the number of requests received so far
+     *
+     * @return Number of requests, a batch counting as one
+     */
+    int getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    /**
+     * Get the number of queries of each batch received so far
+     *
+     * @return Sizes of the batches, in the order they were received
+     */
+    List<Integer> getBatchSizes() {
+        synchronized (this.batchSizes) {
+            return new ArrayList<>(this.batchSizes);
+        }
+    }
+
+    /**
+     * Get the client ports of the requests received so far, one per connection
+     *
+     * @return Client ports
+     */
+    Set<Integer> getClientPorts() {
+        return this.clientPorts;
+    }
+
+    /**
+     * Forget the requests, the batches and the connections received so far and answer normally again
+     */
+    void reset() {
+        this.requestCount.set(0);
+        this.batchSizes.clear();
+        this.clientPorts.clear();
+        this.batchAnswer = null;
+        this.stallMillis = 0;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+
+        this.requestCount.incrementAndGet();
+        this.clientPorts.add(exchange.getRemoteAddress().getPort());
+
+        try {
+            if (this.stallMillis > 0) {
+                Thread.sleep(this.stallMillis);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        String answer;
+
+        if ("POST".equals(exchange.getRequestMethod())) {
+            answer = this.answerBatch(parseQuery(readBody(exchange.getRequestBody())));
+        } else {
+            answer = this.answer(toMap(parseQuery(exchange.getRequestURI().getRawQuery())));
+        }
+
+        byte[] body = answer.getBytes(UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Answer a "verify_batch" request
+     *
+     * @param form Fields of the posted form
+     * @return JSON array of the answers of the queries
+     * @throws IOException
+     */
+    private String answerBatch(List<String[]> form) throws IOException {
+
+        StringBuilder answers = new StringBuilder("[");
+        int size = 0;
+
+        for (String[] field : form) {
+
+            if (!"query[]".equals(field[0])) {
+                continue;
+            }
+
+            if (size++ > 0) {
+                answers.append(',');
+            }
+
+            answers.append(this.answer(toMap(parseQuery(field[1]))));
+        }
+
+        this.batchSizes.add(size);
+
+        return this.batchAnswer != null ? this.batchAnswer : answers.append(']').toString();
+    }
+
+    /**
+     * Answer a single verification query
+     *
+     * @param query Parameters of the query
+     * @return JSON encoded answer
+     */
+    private String answer(Map<String, String> query) {
+
+        String action = query.get("action");
+
+        if ("verify_receiver".equals(action)) {
+            return String.valueOf(RECEIVER_IBAN.equals(query.get("receiverIBAN")));
+        } else if ("verify_sender".equals(action) || "verify_date_passed".equals(action)) {
+            return "true";
+        } else if ("verify_date_correct".equals(action)) {
+            this.lastDate = query.get("date");
+            return "true";
+        } else if ("verify_priority".equals(action)) {
+            return PRIORITIES.contains(query.get("priority")) ? "true" : "\"" + DEFAULT_PRIORITY + "\"";
+        } else if ("echo".equals(action)) {
+            return toJsonString(query.get("value"));
+        }
+
+        return "null";
+    }
+
+    /**
+     * Encode a string as JSON the way json_encode does
+     *
+     * @param value String to encode
+     * @return JSON string, the characters outside of printable ASCII being escaped as \\uXXXX
+     */
+    static String toJsonString(String value) {
+
+        StringBuilder json = new StringBuilder("\"");
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\' || c == '/') {
+                json.append('\\').append(c);
+            } else if (c == '\n') {
+                json.append("\\n");
+            } else if (c == '\t') {
+                json.append("\\t");
+            } else if (c == '\r') {
+                json.append("\\r");
+            } else if (c < 0x20 || c > 0x7e) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+
+        return json.append('"').toString();
+    }
+
+    /**
+     * Read a request body
+     *
+     * @param in Request body stream
+     * @return Request body
+     * @throws IOException
+     */
+    private static String readBody(InputStream in) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+
+        while ((count = in.read(buffer)) != -1) {
+            body.write(buffer, 0, count);
+        }
+
+        return new String(body.toByteArray(), UTF_8);
+    }
+
+    /**
+     * Parse a URL encoded query string or form
+     *
+     * @param rawQuery Query string
+     * @return Decoded names and values of the parameters, in order
+     * @throws IOException
+     */
+    private static List<String[]> parseQuery(String rawQuery) throws IOException {
+
+        List<String[]> query = new ArrayList<>();
+
+        if (rawQuery == null) {
+            return query;
+        }
+
+        for (String parameter : rawQuery.split("&")) {
+
+            int separator = parameter.indexOf('=');
+
+            if (separator > 0) {
+                query.add(new String[] {URLDecoder.decode(parameter.substring(0, separator), "UTF-8"), URLDecoder.decode(parameter.substring(separator + 1), "UTF-8")});
+            }
+        }
+
+        return query;
+    }
+
+    /**
+     * Get the parameters of a query by name
+     *
+     * @param query Names and values of the parameters
+     * @return Value of each parameter
+     */
+    private static Map<String, String> toMap(List<String[]> query) {
+
+        Map<String, String> parameters = new HashMap<>();
+
+        for (String[] parameter : query) {
+            parameters.put(parameter[0], parameter[1]);
+        }
+
+        return parameters;
+    }
+}